@@ -17,6 +17,14 @@
 package org.commonjava.maven.ext.manip.model;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +42,10 @@ import org.apache.maven.model.Profile;
 import org.apache.maven.model.ReportPlugin;
 import org.apache.maven.model.Reporting;
 import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 
@@ -70,6 +82,11 @@ public class Project
      */
     private boolean executionRoot;
 
+    /**
+     * Digest of the serialized model before any manipulation, recorded when first needed.
+     */
+    private byte[] fingerprint;
+
     public Project( final ProjectVersionRef key, final File pom, final Model model )
         throws ManipulationException
     {
@@ -489,4 +506,97 @@ public class Project
     {
         return executionRoot;
     }
+
+    /**
+     * Record the current state of the model, against which {@link #isModified()} compares.
+     *
+     * @throws ManipulationException if the model cannot be serialized.
+     */
+    public void markUnmodified()
+        throws ManipulationException
+    {
+        fingerprint = fingerprint( model );
+    }
+
+    /**
+     * Unless {@link #markUnmodified()} was called, the model is compared with the one read from {@link #getPom()}. The
+     * POM is read and fingerprinted on the first call only, so it must not have been rewritten by then; projects which
+     * are never checked are never fingerprinted.
+     *
+     * @return true if the model differs from the recorded state, or if there is no readable POM to compare with.
+     * @throws ManipulationException if the model cannot be serialized.
+     */
+    public boolean isModified()
+        throws ManipulationException
+    {
+        if ( fingerprint == null )
+        {
+            final Model original = readPom();
+            if ( original == null )
+            {
+                return true;
+            }
+            fingerprint = fingerprint( original );
+        }
+        return !Arrays.equals( fingerprint, fingerprint( model ) );
+    }
+
+    private Model readPom()
+    {
+        if ( pom == null || !pom.isFile() )
+        {
+            return null;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( pom );
+            return new MavenXpp3Reader().read( in, false );
+        }
+        catch ( final IOException e )
+        {
+            return null;
+        }
+        catch ( final XmlPullParserException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private static byte[] fingerprint( final Model model )
+        throws ManipulationException
+    {
+        try
+        {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            final DigestOutputStream out = new DigestOutputStream( new OutputStream()
+            {
+                @Override
+                public void write( final int b )
+                {
+                }
+
+                @Override
+                public void write( final byte[] b, final int off, final int len )
+                {
+                }
+            }, digest );
+
+            new MavenXpp3Writer().write( out, model );
+            return digest.digest();
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new ManipulationException( "Unable to fingerprint model %s", e, model );
+        }
+        catch ( final IOException e )
+        {
+            throw new ManipulationException( "Unable to fingerprint model %s", e, model );
+        }
+    }
 }
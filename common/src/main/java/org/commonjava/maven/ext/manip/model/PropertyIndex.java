@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.commonjava.maven.ext.manip.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the properties defined by a set of projects, keyed by property name, so that property lookups and
+ * <code>${...}</code> resolution do not require scanning every project.
+ * <p>
+ * Where several projects define the same property, the definition of the last project (in the order given) is used
+ * for resolution. Resolved values are cached; cyclic references are detected and left unresolved, as are references
+ * to properties which are not defined.
+ * </p>
+ * <p>
+ * The index reflects the properties at the time it was built. Changes made through
+ * {@link #setProperty(Project, String, String)} are applied to the model and keep the index up to date; changes made
+ * directly to a model are not seen.
+ * </p>
+ */
+public class PropertyIndex
+{
+    private final Map<String, List<Project>> definitions = new HashMap<String, List<Project>>();
+
+    private final Map<String, String> resolved = new HashMap<String, String>();
+
+    public PropertyIndex( final Collection<Project> projects )
+    {
+        for ( final Project project : projects )
+        {
+            for ( final String name : project.getModel()
+                                             .getProperties()
+                                             .stringPropertyNames() )
+            {
+                define( project, name );
+            }
+        }
+    }
+
+    /**
+     * @param name the property name.
+     * @return the projects which define the property, in their original order.
+     */
+    public List<Project> getDefiningProjects( final String name )
+    {
+        final List<Project> result = definitions.get( name );
+        return result == null ? Collections.<Project>emptyList() : Collections.unmodifiableList( result );
+    }
+
+    public boolean isDefined( final String name )
+    {
+        return definitions.containsKey( name );
+    }
+
+    /**
+     * @param name the property name.
+     * @return the unresolved value of the property, or null if it is not defined.
+     */
+    public String getValue( final String name )
+    {
+        final List<Project> projects = definitions.get( name );
+        return projects == null ? null : projects.get( projects.size() - 1 )
+                                                 .getModel()
+                                                 .getProperties()
+                                                 .getProperty( name );
+    }
+
+    /**
+     * @param name the property name.
+     * @return the value of the property with all property references resolved, or null if it is not defined.
+     */
+    public String resolve( final String name )
+    {
+        return resolve( name, new LinkedHashSet<String>(), new boolean[1] );
+    }
+
+    /**
+     * @param value a value which may contain property references, e.g. a dependency version.
+     * @return the value with every reference to a defined property resolved.
+     * @see VersionExpression#evaluate(PropertyIndex)
+     */
+    public String interpolate( final String value )
+    {
+        return interpolate( value, new LinkedHashSet<String>(), new boolean[1] );
+    }
+
+    /**
+     * Follows a property whose value is a reference to another property, e.g. <code>a=${b}</code>,
+     * <code>b=1.0</code>, to the property which holds the actual value.
+     *
+     * @param name the property name.
+     * @return the names of the properties in the chain, starting with the given name. The chain ends at the first
+     *         property whose value is not a single reference, or whose reference is undefined or cyclic.
+     */
+    public List<String> getChain( final String name )
+    {
+        final Set<String> chain = new LinkedHashSet<String>();
+        String current = name;
+        while ( current != null && chain.add( current ) )
+        {
+            final String reference = getReference( getValue( current ) );
+            current = reference != null && isDefined( reference ) ? reference : null;
+        }
+        return new ArrayList<String>( chain );
+    }
+
+    /**
+     * Set a property in the given project's model, recording the definition if it is new.
+     *
+     * @param project the project to modify.
+     * @param name the property name.
+     * @param value the new value.
+     */
+    public void setProperty( final Project project, final String name, final String value )
+    {
+        project.getModel()
+               .getProperties()
+               .setProperty( name, value );
+
+        final List<Project> projects = definitions.get( name );
+        if ( projects == null || !projects.contains( project ) )
+        {
+            define( project, name );
+        }
+        resolved.clear();
+    }
+
+    /**
+     * @param value a property value.
+     * @return the name of the referenced property if the value consists of a single property reference, e.g.
+     *         <code>${version.foo}</code>, otherwise null.
+     */
+    public static String getReference( final String value )
+    {
+        return value == null ? null : VersionExpression.compile( value ).getProperty();
+    }
+
+    private void define( final Project project, final String name )
+    {
+        List<Project> projects = definitions.get( name );
+        if ( projects == null )
+        {
+            projects = new ArrayList<Project>( 1 );
+            definitions.put( name, projects );
+        }
+        projects.add( project );
+    }
+
+    /**
+     * Results which depend on a cyclic reference are not cached, as they depend on where the cycle was entered.
+     */
+    private String resolve( final String name, final Set<String> inProgress, final boolean[] cyclic )
+    {
+        final String cached = resolved.get( name );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        final String value = getValue( name );
+        if ( value == null )
+        {
+            return null;
+        }
+        if ( !inProgress.add( name ) )
+        {
+            cyclic[0] = true;
+            return null;
+        }
+
+        final boolean[] innerCyclic = new boolean[1];
+        final String result = interpolate( value, inProgress, innerCyclic );
+        inProgress.remove( name );
+
+        if ( innerCyclic[0] )
+        {
+            cyclic[0] = true;
+        }
+        else
+        {
+            resolved.put( name, result );
+        }
+        return result;
+    }
+
+    private String interpolate( final String value, final Set<String> inProgress, final boolean[] cyclic )
+    {
+        final VersionExpression expression = VersionExpression.compile( value );
+        if ( expression.isLiteral() )
+        {
+            return value;
+        }
+
+        final StringBuilder sb = new StringBuilder( value.length() );
+        for ( int i = 0; i < expression.size(); i++ )
+        {
+            final String segment = expression.getSegment( i );
+            if ( !expression.isReference( i ) )
+            {
+                sb.append( segment );
+                continue;
+            }
+
+            final String replacement = resolve( segment, inProgress, cyclic );
+            if ( replacement == null )
+            {
+                sb.append( "${" )
+                  .append( segment )
+                  .append( '}' );
+            }
+            else
+            {
+                sb.append( replacement );
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PropertyIndex{" +
+                "properties=" + definitions.size() +
+                '}';
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.commonjava.maven.ext.manip.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Parent;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+
+/**
+ * Index of the projects in the current reactor, keyed by GA and by GAV, along with the parent / child
+ * relationships between them. Built once from the parsed project list so that reactor membership and
+ * parent lookups do not require scanning (and re-parsing) every project.
+ * <p>
+ * The index reflects the project coordinates at the time it was built; it is not updated if a manipulator
+ * later changes a project version.
+ * </p>
+ * <p>
+ * A reactor should not contain the same GA twice, but this is not enforced. If it does, the last such project (in
+ * the order given) is the one returned by the GA lookups, and is the parent of every project whose parent declares
+ * that GA, whatever the declared version. Likewise the last project with a given GAV is returned by the GAV lookups.
+ * </p>
+ */
+public class ReactorIndex
+{
+    private final List<Project> projects;
+
+    private final Map<ProjectRef, Project> byGA = new HashMap<ProjectRef, Project>();
+
+    private final Map<ProjectVersionRef, Project> byGAV = new HashMap<ProjectVersionRef, Project>();
+
+    private final Map<Project, Project> parents = new HashMap<Project, Project>();
+
+    private final Map<Project, List<Project>> children = new HashMap<Project, List<Project>>();
+
+    public ReactorIndex( final Collection<Project> projects )
+    {
+        this.projects = Collections.unmodifiableList( new ArrayList<Project>( projects ) );
+
+        for ( final Project project : projects )
+        {
+            final ProjectVersionRef key = project.getKey();
+
+            byGA.put( key.asProjectRef(), project );
+            byGAV.put( key, project );
+        }
+
+        for ( final Project project : projects )
+        {
+            final Parent parent = project.getParent();
+            if ( parent == null )
+            {
+                continue;
+            }
+
+            final Project parentProject = byGA.get( new ProjectRef( parent.getGroupId(), parent.getArtifactId() ) );
+            if ( parentProject != null )
+            {
+                parents.put( project, parentProject );
+
+                List<Project> siblings = children.get( parentProject );
+                if ( siblings == null )
+                {
+                    siblings = new ArrayList<Project>();
+                    children.put( parentProject, siblings );
+                }
+                siblings.add( project );
+            }
+        }
+    }
+
+    /**
+     * @return the projects in the reactor, in their original order.
+     */
+    public List<Project> getProjects()
+    {
+        return projects;
+    }
+
+    /**
+     * @return the groupId:artifactId of every project in the reactor.
+     */
+    public Set<ProjectRef> getGAs()
+    {
+        return Collections.unmodifiableSet( byGA.keySet() );
+    }
+
+    public boolean containsGA( final ProjectRef ga )
+    {
+        return byGA.containsKey( ga.asProjectRef() );
+    }
+
+    public boolean containsGAV( final ProjectVersionRef gav )
+    {
+        return byGAV.containsKey( gav.asProjectVersionRef() );
+    }
+
+    /**
+     * @param ga the groupId:artifactId to look up. Any version information is ignored.
+     * @return the matching project (the last one, if several share the GA) or null if it is not part of the reactor.
+     */
+    public Project getProjectByGA( final ProjectRef ga )
+    {
+        return byGA.get( ga.asProjectRef() );
+    }
+
+    /**
+     * @param gav the groupId:artifactId:version to look up.
+     * @return the matching project (the last one, if several share the GAV) or null if it is not part of the reactor.
+     */
+    public Project getProjectByGAV( final ProjectVersionRef gav )
+    {
+        return byGAV.get( gav.asProjectVersionRef() );
+    }
+
+    /**
+     * @param project the project to look up.
+     * @return the parent of the given project if that parent is part of the reactor, otherwise null.
+     */
+    public Project getParent( final Project project )
+    {
+        return parents.get( project );
+    }
+
+    /**
+     * @param project the project to look up.
+     * @return the projects in the reactor which declare the given project as their parent.
+     */
+    public List<Project> getChildren( final Project project )
+    {
+        final List<Project> result = children.get( project );
+        return result == null ? Collections.<Project>emptyList() : Collections.unmodifiableList( result );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReactorIndex{" +
+                "projects=" + projects.size() +
+                '}';
+    }
+}
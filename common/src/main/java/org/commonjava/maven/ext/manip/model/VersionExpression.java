@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.commonjava.maven.ext.manip.model;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed value such as <code>1.0</code>, <code>${version.foo}</code>, <code>1.${minor}</code> or
+ * <code>${major}${minor}</code>, made up of literal and property reference segments.
+ * <p>
+ * Builds use the same handful of expressions for many dependencies, so expressions are obtained through
+ * {@link #compile(String)}, which parses each distinct string once and caches the result.
+ * </p>
+ */
+public final class VersionExpression
+{
+    private static final int MAX_CACHE_SIZE = 8192;
+
+    private static final ConcurrentMap<String, VersionExpression> CACHE =
+        new ConcurrentHashMap<String, VersionExpression>();
+
+    private final String source;
+
+    /**
+     * Literal text, or property names where the corresponding entry of {@link #references} is set.
+     */
+    private final String[] segments;
+
+    private final boolean[] references;
+
+    private final List<String> properties;
+
+    private VersionExpression( final String source )
+    {
+        final List<String> segments = new ArrayList<String>();
+        final List<String> properties = new ArrayList<String>();
+        final StringBuilder literal = new StringBuilder();
+
+        int pos = 0;
+        while ( pos < source.length() )
+        {
+            final int start = source.indexOf( "${", pos );
+            final int end = start < 0 ? -1 : source.indexOf( '}', start + 2 );
+            if ( end < 0 )
+            {
+                // No further (terminated) references.
+                literal.append( source, pos, source.length() );
+                break;
+            }
+            literal.append( source, pos, start );
+
+            if ( end == start + 2 )
+            {
+                // An empty reference is not a property.
+                literal.append( "${}" );
+            }
+            else
+            {
+                if ( literal.length() > 0 )
+                {
+                    segments.add( literal.toString() );
+                    literal.setLength( 0 );
+                }
+                segments.add( null );
+                properties.add( source.substring( start + 2, end ) );
+            }
+            pos = end + 1;
+        }
+        if ( literal.length() > 0 )
+        {
+            segments.add( literal.toString() );
+        }
+
+        this.source = source;
+        this.segments = new String[segments.size()];
+        this.references = new boolean[segments.size()];
+        int property = 0;
+        for ( int i = 0; i < segments.size(); i++ )
+        {
+            references[i] = segments.get( i ) == null;
+            this.segments[i] = references[i] ? properties.get( property++ ) : segments.get( i );
+        }
+        this.properties = Collections.unmodifiableList( properties );
+    }
+
+    /**
+     * @param value the value to parse; may not be null.
+     * @return the (possibly shared) expression for the value.
+     */
+    public static VersionExpression compile( final String value )
+    {
+        VersionExpression result = CACHE.get( value );
+        if ( result == null )
+        {
+            if ( CACHE.size() >= MAX_CACHE_SIZE )
+            {
+                // Only reached when interpolating arbitrary values; start again rather than growing without bound.
+                CACHE.clear();
+            }
+            result = new VersionExpression( value );
+            final VersionExpression existing = CACHE.putIfAbsent( value, result );
+            if ( existing != null )
+            {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    public String getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return true if the expression does not contain any property references.
+     */
+    public boolean isLiteral()
+    {
+        return properties.isEmpty();
+    }
+
+    /**
+     * @return the name of the property if the expression consists of a single property reference, e.g.
+     *         <code>${version.foo}</code>, otherwise null.
+     */
+    public String getProperty()
+    {
+        return segments.length == 1 && references[0] ? segments[0] : null;
+    }
+
+    /**
+     * @return the names of the referenced properties, in order of appearance.
+     */
+    public List<String> getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * @param properties the properties to resolve references against.
+     * @return the value with every reference to a defined property resolved; other references are left as written.
+     */
+    public String evaluate( final PropertyIndex properties )
+    {
+        return evaluate( properties, 0, segments.length );
+    }
+
+    /**
+     * Works out which property to change so that the expression evaluates to the given value. Property segments are
+     * tried from last to first, the other segments keeping their current values; e.g. for <code>${major}.${minor}</code>
+     * where <code>major=1</code>, the value <code>1.2-redhat-1</code> is expressed as <code>minor=2-redhat-1</code>.
+     *
+     * @param value the required value of the whole expression.
+     * @param properties the current properties.
+     * @return the name of the property and its new value, or null if the expression is literal or no single property
+     *         can be changed to produce the value.
+     */
+    public Map.Entry<String, String> bind( final String value, final PropertyIndex properties )
+    {
+        for ( int i = segments.length - 1; i >= 0; i-- )
+        {
+            if ( !references[i] )
+            {
+                continue;
+            }
+
+            final String prefix = evaluate( properties, 0, i );
+            final String suffix = evaluate( properties, i + 1, segments.length );
+            if ( value.length() > prefix.length() + suffix.length() && value.startsWith( prefix )
+                && value.endsWith( suffix ) )
+            {
+                final String bound = value.substring( prefix.length(), value.length() - suffix.length() );
+                return new SimpleImmutableEntry<String, String>( segments[i], bound );
+            }
+        }
+        return null;
+    }
+
+    int size()
+    {
+        return segments.length;
+    }
+
+    boolean isReference( final int segment )
+    {
+        return references[segment];
+    }
+
+    /**
+     * @return the literal text or property name of the given segment.
+     */
+    String getSegment( final int segment )
+    {
+        return segments[segment];
+    }
+
+    private String evaluate( final PropertyIndex properties, final int from, final int to )
+    {
+        if ( to - from == 1 && !references[from] )
+        {
+            return segments[from];
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = from; i < to; i++ )
+        {
+            final String value = references[i] ? properties.resolve( segments[i] ) : segments[i];
+            if ( value == null )
+            {
+                sb.append( "${" )
+                  .append( segments[i] )
+                  .append( '}' );
+            }
+            else
+            {
+                sb.append( value );
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return source;
+    }
+}
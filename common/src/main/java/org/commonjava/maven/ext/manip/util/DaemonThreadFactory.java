@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after a prefix and a sequence number, so that worker pools never keep the JVM alive
+ * and can be told apart in thread dumps.
+ */
+public final class DaemonThreadFactory
+    implements ThreadFactory
+{
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final String name;
+
+    /**
+     * @param name the prefix of the thread names, e.g. "pom-reader" for threads named "pom-reader-1" etc.
+     */
+    public DaemonThreadFactory( final String name )
+    {
+        this.name = name;
+    }
+
+    @Override
+    public Thread newThread( final Runnable r )
+    {
+        final Thread t = new Thread( r, name + "-" + count.incrementAndGet() );
+        t.setDaemon( true );
+        return t;
+    }
+}
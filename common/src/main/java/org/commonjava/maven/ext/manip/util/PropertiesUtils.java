@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import org.commonjava.maven.ext.manip.ManipulationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,4 +67,58 @@ public final class PropertiesUtils
         return matchedProperties;
     }
 
+    /**
+     * Read an integer property, which must be no less than the given minimum.
+     * @param properties the properties to read from.
+     * @param name the name of the property.
+     * @param defaultValue the value to use if the property is not set.
+     * @param minimum the smallest valid value.
+     * @return the value of the property, or the default.
+     * @throws ManipulationException if the value is not an integer or is less than the minimum.
+     */
+    public static int getIntegerProperty( final Properties properties, final String name, final int defaultValue,
+                                          final int minimum )
+        throws ManipulationException
+    {
+        final long value = getLongProperty( properties, name, defaultValue, minimum );
+        if ( value > Integer.MAX_VALUE )
+        {
+            throw new ManipulationException( "Invalid value for " + name + ": " + properties.getProperty( name ) );
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read a long property, which must be no less than the given minimum.
+     * @param properties the properties to read from.
+     * @param name the name of the property.
+     * @param defaultValue the value to use if the property is not set.
+     * @param minimum the smallest valid value.
+     * @return the value of the property, or the default.
+     * @throws ManipulationException if the value is not an integer or is less than the minimum.
+     */
+    public static long getLongProperty( final Properties properties, final String name, final long defaultValue,
+                                        final long minimum )
+        throws ManipulationException
+    {
+        final String value = properties.getProperty( name );
+        if ( value == null || value.trim().length() == 0 )
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            final long result = Long.parseLong( value.trim() );
+            if ( result < minimum )
+            {
+                throw new ManipulationException( "Invalid value for " + name + ": " + value );
+            }
+            return result;
+        }
+        catch ( final NumberFormatException e )
+        {
+            throw new ManipulationException( "Invalid value for " + name + ": " + value, e );
+        }
+    }
 }
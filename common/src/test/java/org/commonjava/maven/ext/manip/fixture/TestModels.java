@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.fixture;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+
+/**
+ * Builds the in-memory models used by tests which do not read POMs from disk. Every project is in the group
+ * "org.foo", and parents are always declared at version "1".
+ */
+public final class TestModels
+{
+    public static final String GROUP_ID = "org.foo";
+
+    private TestModels()
+    {
+    }
+
+    /**
+     * @param artifactId the artifactId of the project.
+     * @param parentArtifactId the artifactId of the parent, or null for a project without a parent.
+     * @return a model of version "1".
+     */
+    public static Model model( final String artifactId, final String parentArtifactId )
+    {
+        return model( artifactId, "1", parentArtifactId );
+    }
+
+    /**
+     * @param artifactId the artifactId of the project.
+     * @param version the version of the project.
+     * @param parentArtifactId the artifactId of the parent, or null for a project without a parent.
+     * @return the model.
+     */
+    public static Model model( final String artifactId, final String version, final String parentArtifactId )
+    {
+        final Model model = new Model();
+        model.setModelVersion( "4.0.0" );
+        model.setGroupId( GROUP_ID );
+        model.setArtifactId( artifactId );
+        model.setVersion( version );
+        if ( parentArtifactId != null )
+        {
+            final Parent parent = new Parent();
+            parent.setGroupId( GROUP_ID );
+            parent.setArtifactId( parentArtifactId );
+            parent.setVersion( "1" );
+            model.setParent( parent );
+        }
+        return model;
+    }
+
+    /**
+     * @return a dependency of the default type and without classifier.
+     */
+    public static Dependency dependency( final String groupId, final String artifactId, final String version )
+    {
+        return dependency( groupId, artifactId, version, null, null );
+    }
+
+    /**
+     * @param type the type, or null for the default.
+     * @param classifier the classifier, or null for none.
+     * @return the dependency.
+     */
+    public static Dependency dependency( final String groupId, final String artifactId, final String version,
+                                         final String type, final String classifier )
+    {
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId( groupId );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( version );
+        if ( type != null )
+        {
+            dependency.setType( type );
+        }
+        dependency.setClassifier( classifier );
+        return dependency;
+    }
+}
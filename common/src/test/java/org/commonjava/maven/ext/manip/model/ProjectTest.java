@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.model;
+
+import static org.commonjava.maven.ext.manip.fixture.TestModels.model;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedModelIsNotModified()
+        throws Exception
+    {
+        final Project project = new Project( writePom( model( "bar", null ) ), model( "bar", null ) );
+
+        assertFalse( project.isModified() );
+    }
+
+    @Test
+    public void testChangedModelIsModified()
+        throws Exception
+    {
+        final Model model = model( "bar", null );
+        final Project project = new Project( writePom( model( "bar", null ) ), model );
+
+        model.setVersion( "1.redhat-1" );
+
+        assertTrue( project.isModified() );
+    }
+
+    @Test
+    public void testPomIsOnlyReadOnce()
+        throws Exception
+    {
+        final Model model = model( "bar", null );
+        final File pom = writePom( model( "bar", null ) );
+        final Project project = new Project( pom, model );
+        assertFalse( project.isModified() );
+
+        // Once fingerprinted, rewriting the POM does not change what the model is compared with.
+        model.setVersion( "1.redhat-1" );
+        writePom( model );
+
+        assertTrue( project.isModified() );
+    }
+
+    @Test
+    public void testProjectWithoutPomIsModified()
+        throws Exception
+    {
+        assertTrue( new Project( model( "bar", null ) ).isModified() );
+    }
+
+    @Test
+    public void testMarkUnmodified()
+        throws Exception
+    {
+        final Model model = model( "bar", null );
+        final Project project = new Project( model );
+
+        project.markUnmodified();
+        assertFalse( project.isModified() );
+
+        model.getProperties()
+             .setProperty( "foo", "bar" );
+        assertTrue( project.isModified() );
+    }
+
+    private File writePom( final Model model )
+        throws Exception
+    {
+        final File pom = new File( folder.getRoot(), "pom.xml" );
+        final OutputStream out = new FileOutputStream( pom );
+        try
+        {
+            new MavenXpp3Writer().write( out, model );
+        }
+        finally
+        {
+            out.close();
+        }
+        return pom;
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.model;
+
+import static org.commonjava.maven.ext.manip.fixture.TestModels.model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.maven.model.Model;
+import org.junit.Test;
+
+public class PropertyIndexTest
+{
+    @Test
+    public void testLastDefinitionWins()
+        throws Exception
+    {
+        final Project parent = project( "parent", null, "version.foo", "1.0", "version.bar", "2.0" );
+        final Project child = project( "child", "parent", "version.foo", "1.1" );
+
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList( parent, child ) );
+
+        assertEquals( "1.1", properties.getValue( "version.foo" ) );
+        assertEquals( "1.1", properties.resolve( "version.foo" ) );
+        assertEquals( Arrays.asList( parent, child ), properties.getDefiningProjects( "version.foo" ) );
+        assertEquals( "2.0", properties.getValue( "version.bar" ) );
+        assertEquals( Arrays.asList( parent ), properties.getDefiningProjects( "version.bar" ) );
+    }
+
+    @Test
+    public void testLastDefinitionWinsInGivenOrder()
+        throws Exception
+    {
+        final Project parent = project( "parent", null, "version.foo", "1.0" );
+        final Project child = project( "child", "parent", "version.foo", "1.1" );
+
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList( child, parent ) );
+
+        assertEquals( "1.0", properties.resolve( "version.foo" ) );
+    }
+
+    @Test
+    public void testOverriddenReferenceResolvesAgainstLastDefinition()
+        throws Exception
+    {
+        final Project parent = project( "parent", null, "version.foo", "${version.base}", "version.base", "1.0" );
+        final Project child = project( "child", "parent", "version.base", "1.1" );
+
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList( parent, child ) );
+
+        assertEquals( "1.1", properties.resolve( "version.foo" ) );
+    }
+
+    @Test
+    public void testNestedInterpolation()
+        throws Exception
+    {
+        final Project parent = project( "parent", null, "major", "1", "micro", "${patch}-${qualifier}", "patch", "3" );
+        final Project child = project( "child", "parent", "version.foo", "${major}.${minor}.${micro}", "minor", "2",
+                                       "qualifier", "Final" );
+
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList( parent, child ) );
+
+        assertEquals( "1.2.3-Final", properties.resolve( "version.foo" ) );
+        assertEquals( "1.2.3-Final.redhat-1", properties.interpolate( "${version.foo}.redhat-1" ) );
+    }
+
+    @Test
+    public void testUndefinedReferenceIsLeftAsWritten()
+        throws Exception
+    {
+        final PropertyIndex properties =
+                        new PropertyIndex( Arrays.asList( project( "parent", null, "version.foo", "1.${minor}" ) ) );
+
+        assertEquals( "1.${minor}", properties.resolve( "version.foo" ) );
+        assertNull( properties.resolve( "minor" ) );
+        assertFalse( properties.isDefined( "minor" ) );
+    }
+
+    @Test
+    public void testCyclicReferenceIsLeftUnresolved()
+        throws Exception
+    {
+        final PropertyIndex properties = new PropertyIndex(
+                        Arrays.asList( project( "parent", null, "a", "${b}", "b", "${a}", "c", "1.${a}" ) ) );
+
+        assertEquals( "${a}", properties.resolve( "a" ) );
+        assertEquals( "${b}", properties.resolve( "b" ) );
+        assertEquals( "1.${a}", properties.resolve( "c" ) );
+        assertEquals( Arrays.asList( "a", "b" ), properties.getChain( "a" ) );
+    }
+
+    @Test
+    public void testSetPropertyUpdatesResolution()
+        throws Exception
+    {
+        final Project parent = project( "parent", null, "version.foo", "${version.base}", "version.base", "1.0" );
+        final Project child = project( "child", "parent" );
+
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList( parent, child ) );
+        assertEquals( "1.0", properties.resolve( "version.foo" ) );
+
+        properties.setProperty( child, "version.base", "1.1" );
+
+        assertEquals( "1.1", properties.resolve( "version.foo" ) );
+        assertEquals( "1.1", child.getModel()
+                                  .getProperties()
+                                  .getProperty( "version.base" ) );
+        assertEquals( Arrays.asList( parent, child ), properties.getDefiningProjects( "version.base" ) );
+    }
+
+    @Test
+    public void testGetChain()
+        throws Exception
+    {
+        final PropertyIndex properties = new PropertyIndex( Arrays.asList(
+                        project( "parent", null, "a", "${b}", "b", "${c}", "c", "1.${d}", "d", "0" ) ) );
+
+        assertEquals( Arrays.asList( "a", "b", "c" ), properties.getChain( "a" ) );
+        assertTrue( properties.isDefined( "d" ) );
+    }
+
+    private static Project project( final String artifactId, final String parentArtifactId,
+                                    final String... keyValues )
+        throws Exception
+    {
+        final Model model = model( artifactId, parentArtifactId );
+        for ( int i = 0; i < keyValues.length; i += 2 )
+        {
+            model.getProperties()
+                 .setProperty( keyValues[i], keyValues[i + 1] );
+        }
+        return new Project( model );
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.model;
+
+import static org.commonjava.maven.ext.manip.fixture.TestModels.model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.junit.Test;
+
+public class ReactorIndexTest
+{
+    @Test
+    public void testLookups()
+        throws Exception
+    {
+        final Project parent = project( "parent", "1", null );
+        final Project child = project( "child", "1", "parent" );
+
+        final ReactorIndex index = new ReactorIndex( Arrays.asList( parent, child ) );
+
+        assertEquals( Arrays.asList( parent, child ), index.getProjects() );
+        assertEquals( 2, index.getGAs().size() );
+
+        assertTrue( index.containsGA( ProjectRef.parse( "org.foo:child" ) ) );
+        assertFalse( index.containsGA( ProjectRef.parse( "org.foo:other" ) ) );
+        assertSame( child, index.getProjectByGA( ProjectRef.parse( "org.foo:child" ) ) );
+        // Version information is ignored for GA lookups.
+        assertSame( child, index.getProjectByGA( ProjectVersionRef.parse( "org.foo:child:2" ) ) );
+        assertNull( index.getProjectByGA( ProjectRef.parse( "org.foo:other" ) ) );
+
+        assertTrue( index.containsGAV( ProjectVersionRef.parse( "org.foo:child:1" ) ) );
+        assertFalse( index.containsGAV( ProjectVersionRef.parse( "org.foo:child:2" ) ) );
+        assertSame( child, index.getProjectByGAV( ProjectVersionRef.parse( "org.foo:child:1" ) ) );
+        assertNull( index.getProjectByGAV( ProjectVersionRef.parse( "org.foo:child:2" ) ) );
+    }
+
+    @Test
+    public void testParentsAndChildren()
+        throws Exception
+    {
+        final Project parent = project( "parent", "1", null );
+        final Project first = project( "first", "1", "parent" );
+        final Project second = project( "second", "1", "parent" );
+        final Project grandchild = project( "grandchild", "1", "first" );
+        final Project external = project( "external", "1", "outside" );
+
+        final ReactorIndex index =
+                        new ReactorIndex( Arrays.asList( parent, first, second, grandchild, external ) );
+
+        assertNull( index.getParent( parent ) );
+        assertSame( parent, index.getParent( first ) );
+        assertSame( parent, index.getParent( second ) );
+        assertSame( first, index.getParent( grandchild ) );
+        // The parent is not part of the reactor.
+        assertNull( index.getParent( external ) );
+
+        assertEquals( Arrays.asList( first, second ), index.getChildren( parent ) );
+        assertEquals( Collections.singletonList( grandchild ), index.getChildren( first ) );
+        assertTrue( index.getChildren( second ).isEmpty() );
+    }
+
+    @Test
+    public void testDuplicateGALastWins()
+        throws Exception
+    {
+        final Project first = project( "dup", "1", null );
+        final Project last = project( "dup", "2", null );
+        final Project child = project( "child", "1", "dup" );
+
+        final ReactorIndex index = new ReactorIndex( Arrays.asList( first, last, child ) );
+
+        assertEquals( 3, index.getProjects().size() );
+        assertEquals( 2, index.getGAs().size() );
+        assertSame( last, index.getProjectByGA( ProjectRef.parse( "org.foo:dup" ) ) );
+        assertSame( first, index.getProjectByGAV( ProjectVersionRef.parse( "org.foo:dup:1" ) ) );
+        assertSame( last, index.getProjectByGAV( ProjectVersionRef.parse( "org.foo:dup:2" ) ) );
+
+        // The child declares version 1 of its parent, but parents are matched by GA.
+        assertSame( last, index.getParent( child ) );
+        assertEquals( Collections.singletonList( child ), index.getChildren( last ) );
+        assertTrue( index.getChildren( first ).isEmpty() );
+    }
+
+    @Test
+    public void testDuplicateGAVLastWins()
+        throws Exception
+    {
+        final Project first = project( "dup", "1", null );
+        final Project last = project( "dup", "1", null );
+
+        final ReactorIndex index = new ReactorIndex( Arrays.asList( first, last ) );
+
+        assertSame( last, index.getProjectByGA( ProjectRef.parse( "org.foo:dup" ) ) );
+        assertSame( last, index.getProjectByGAV( ProjectVersionRef.parse( "org.foo:dup:1" ) ) );
+    }
+
+    private static Project project( final String artifactId, final String version, final String parentArtifactId )
+        throws Exception
+    {
+        return new Project( model( artifactId, version, parentArtifactId ) );
+    }
+}
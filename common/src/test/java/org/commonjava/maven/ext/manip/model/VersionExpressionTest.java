@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.maven.model.Model;
+import org.junit.Test;
+
+public class VersionExpressionTest
+{
+    @Test
+    public void testCompileSeveralProperties()
+    {
+        final VersionExpression expression = VersionExpression.compile( "${major}.${minor}-${qualifier}" );
+
+        assertFalse( expression.isLiteral() );
+        assertNull( expression.getProperty() );
+        assertEquals( Arrays.asList( "major", "minor", "qualifier" ), expression.getProperties() );
+        assertEquals( 5, expression.size() );
+        assertTrue( expression.isReference( 0 ) );
+        assertEquals( ".", expression.getSegment( 1 ) );
+        assertTrue( expression.isReference( 2 ) );
+        assertEquals( "-", expression.getSegment( 3 ) );
+        assertTrue( expression.isReference( 4 ) );
+    }
+
+    @Test
+    public void testEvaluateSeveralProperties()
+        throws Exception
+    {
+        final PropertyIndex properties = properties( "major", "1", "minor", "2" );
+
+        assertEquals( "1.2-${qualifier}",
+                      VersionExpression.compile( "${major}.${minor}-${qualifier}" ).evaluate( properties ) );
+    }
+
+    @Test
+    public void testBindLastProperty()
+        throws Exception
+    {
+        final PropertyIndex properties = properties( "major", "1", "minor", "2", "qualifier", "Final" );
+        final VersionExpression expression = VersionExpression.compile( "${major}.${minor}-${qualifier}" );
+
+        final Map.Entry<String, String> update = expression.bind( "1.2-Final-redhat-1", properties );
+        assertEquals( "qualifier", update.getKey() );
+        assertEquals( "Final-redhat-1", update.getValue() );
+    }
+
+    @Test
+    public void testBindEarlierProperty()
+        throws Exception
+    {
+        final PropertyIndex properties = properties( "major", "1", "minor", "2" );
+        final VersionExpression expression = VersionExpression.compile( "${major}.${minor}.Final" );
+
+        // The literal suffix must be kept, so only minor can produce the value.
+        final Map.Entry<String, String> update = expression.bind( "1.2-redhat-1.Final", properties );
+        assertEquals( "minor", update.getKey() );
+        assertEquals( "2-redhat-1", update.getValue() );
+    }
+
+    @Test
+    public void testBindMismatchedLiteral()
+        throws Exception
+    {
+        final PropertyIndex properties = properties( "major", "1", "minor", "2" );
+        final VersionExpression expression = VersionExpression.compile( "${major}.${minor}.Final" );
+
+        assertNull( expression.bind( "1.2.redhat-1", properties ) );
+        assertNull( expression.bind( "2.3.Final", properties ) );
+    }
+
+    @Test
+    public void testUnterminatedReferenceIsLiteral()
+        throws Exception
+    {
+        final VersionExpression expression = VersionExpression.compile( "1.${foo" );
+
+        assertTrue( expression.isLiteral() );
+        assertEquals( 1, expression.size() );
+        assertEquals( "1.${foo", expression.evaluate( properties( "foo", "2" ) ) );
+        assertNull( expression.bind( "1.2", properties( "foo", "2" ) ) );
+    }
+
+    @Test
+    public void testUnterminatedReferenceAfterProperty()
+    {
+        final VersionExpression expression = VersionExpression.compile( "${major}.${minor" );
+
+        assertEquals( Collections.singletonList( "major" ), expression.getProperties() );
+        assertEquals( ".${minor", expression.getSegment( 1 ) );
+    }
+
+    @Test
+    public void testEmptyReferenceIsLiteral()
+    {
+        assertTrue( VersionExpression.compile( "1.${}" ).isLiteral() );
+    }
+
+    @Test
+    public void testCompileIsCached()
+    {
+        assertSame( VersionExpression.compile( "${version.cached}" ), VersionExpression.compile( "${version.cached}" ) );
+    }
+
+    @Test
+    public void testCacheIsBounded()
+    {
+        final VersionExpression expression = VersionExpression.compile( "${version.bounded}" );
+
+        // Enough distinct values to fill the cache whatever it already holds, forcing it to be cleared.
+        for ( int i = 0; i < 8192; i++ )
+        {
+            VersionExpression.compile( "${version.bounded." + i + "}" );
+        }
+
+        assertNotSame( expression, VersionExpression.compile( "${version.bounded}" ) );
+    }
+
+    private static PropertyIndex properties( final String... keyValues )
+        throws Exception
+    {
+        final Model model = new Model();
+        model.setGroupId( "org.foo" );
+        model.setArtifactId( "bar" );
+        model.setVersion( "1" );
+        for ( int i = 0; i < keyValues.length; i += 2 )
+        {
+            model.getProperties()
+                 .setProperty( keyValues[i], keyValues[i + 1] );
+        }
+        return new PropertyIndex( Collections.singletonList( new Project( model ) ) );
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getIntegerProperty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.junit.Test;
+
+public class PropertiesUtilsTest
+{
+    @Test
+    public void testIntegerPropertyDefault()
+        throws Exception
+    {
+        final Properties properties = new Properties();
+        assertEquals( 4, getIntegerProperty( properties, "threads", 4, 1 ) );
+
+        properties.setProperty( "threads", " " );
+        assertEquals( 4, getIntegerProperty( properties, "threads", 4, 1 ) );
+    }
+
+    @Test
+    public void testIntegerProperty()
+        throws Exception
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( "threads", " 8 " );
+        assertEquals( 8, getIntegerProperty( properties, "threads", 4, 1 ) );
+
+        properties.setProperty( "threads", "1" );
+        assertEquals( 1, getIntegerProperty( properties, "threads", 4, 1 ) );
+    }
+
+    @Test
+    public void testInvalidIntegerProperty()
+        throws Exception
+    {
+        for ( final String value : new String[] { "0", "-1", "four", "1.5", "2147483648" } )
+        {
+            final Properties properties = new Properties();
+            properties.setProperty( "threads", value );
+            try
+            {
+                getIntegerProperty( properties, "threads", 4, 1 );
+                fail( "Expected threads=" + value + " to be rejected" );
+            }
+            catch ( final ManipulationException e )
+            {
+                assertEquals( "Invalid value for threads: " + value, e.getMessage() );
+            }
+        }
+    }
+}
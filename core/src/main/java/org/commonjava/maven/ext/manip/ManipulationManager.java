@@ -19,10 +19,19 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.ProjectBuilder;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.impl.Manipulator;
+import org.commonjava.maven.ext.manip.io.ModelCache;
+import org.commonjava.maven.ext.manip.io.ModelIO;
 import org.commonjava.maven.ext.manip.io.PomIO;
 import org.commonjava.maven.ext.manip.model.Project;
 import org.commonjava.maven.ext.manip.resolver.ExtensionInfrastructure;
+import org.commonjava.maven.ext.manip.state.DependencyState;
+import org.commonjava.maven.ext.manip.state.PluginState;
+import org.commonjava.maven.ext.manip.state.ProfileInjectionState;
+import org.commonjava.maven.ext.manip.state.PropertyState;
+import org.commonjava.maven.ext.manip.state.RepositoryInjectionState;
+import org.commonjava.maven.ext.manip.state.State;
 import org.commonjava.maven.ext.manip.util.ManipulatorPriorityComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,10 +42,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getIntegerProperty;
+
 /**
  * Coordinates manipulation of the POMs in a build, by providing methods to read the project set from files ahead of the build proper (using
  * {@link ProjectBuilder}), then other methods to coordinate all potential {@link Manipulator} implementations (along with the {@link PomIO}
@@ -73,11 +86,20 @@ public class ManipulationManager
     @Requirement
     private PomIO pomIO;
 
+    @Requirement
+    private ModelIO modelIO;
+
     /**
      * Determined from {@link Manipulator#getExecutionIndex()} comparisons during {@link #init(ManipulationSession)}.
      */
     private List<Manipulator> orderedManipulators;
 
+    /**
+     * Whether any manipulation is enabled, determined during {@link #init(ManipulationSession)}. If not, the projects
+     * are not even read.
+     */
+    private boolean active;
+
     /**
      * Initialize {@link ManipulationSession} using the given {@link MavenSession} instance, along with any state managed by the individual
      * {@link Manipulator} components.
@@ -88,11 +110,8 @@ public class ManipulationManager
     public void init( final ManipulationSession session )
         throws ManipulationException
     {
-        for ( final ExtensionInfrastructure infra : infrastructure.values() )
-        {
-            infra.init( session.getTargetDir(), session.getRemoteRepositories(), session.getLocalRepository(),
-                        session.getSettings(), session.getActiveProfiles() );
-        }
+        // Remote models are cached for the duration of a session.
+        modelIO.clearCache();
 
         final HashMap<Manipulator, String> revMap = new HashMap<Manipulator, String>();
         for ( final Map.Entry<String, Manipulator> entry : manipulators.entrySet() )
@@ -109,6 +128,86 @@ public class ManipulationManager
                                                                    .getSimpleName() );
             manipulator.init( session );
         }
+
+        // Most builds the extension is loaded into do not enable any manipulation; skip everything else for them.
+        active = session.anyStateEnabled( State.activeByDefault );
+        if ( !active )
+        {
+            logger.debug( "No manipulations are enabled." );
+            return;
+        }
+
+        // The infrastructure only sets up its remote access (e.g. the Galley transports) when first used.
+        for ( final ExtensionInfrastructure infra : infrastructure.values() )
+        {
+            infra.init( session.getTargetDir(), session.getRemoteRepositories(), session.getLocalRepository(),
+                        session.getSettings(), session.getActiveProfiles(), session.getUserProperties() );
+        }
+    }
+
+    /**
+     * Warm the {@link ModelIO} cache with every remote POM the enabled manipulators will read, fetching them
+     * concurrently rather than one at a time as each manipulator runs. The manipulators still merge the results in
+     * their own order, so precedence is unchanged. This is only done from {@link #scanAndApply(ManipulationSession)},
+     * once the caller has decided the build is to be manipulated at all.
+     */
+    private void prefetchRemoteModels( final ManipulationSession session )
+        throws ManipulationException
+    {
+        final Set<ProjectVersionRef> models = new LinkedHashSet<ProjectVersionRef>();
+        final Set<ProjectVersionRef> managedDependencies = new LinkedHashSet<ProjectVersionRef>();
+
+        final DependencyState dependencyState = session.getState( DependencyState.class );
+        if ( dependencyState != null && dependencyState.isEnabled() )
+        {
+            managedDependencies.addAll( dependencyState.getRemoteDepMgmt() );
+        }
+        final PluginState pluginState = session.getState( PluginState.class );
+        if ( pluginState != null && pluginState.isEnabled() )
+        {
+            models.addAll( pluginState.getRemotePluginMgmt() );
+        }
+        final PropertyState propertyState = session.getState( PropertyState.class );
+        if ( propertyState != null && propertyState.isEnabled() )
+        {
+            models.addAll( propertyState.getRemotePropertyMgmt() );
+        }
+        final ProfileInjectionState profileState = session.getState( ProfileInjectionState.class );
+        if ( profileState != null && profileState.isEnabled() )
+        {
+            models.add( profileState.getRemoteProfileInjectionMgmt() );
+        }
+        final RepositoryInjectionState repositoryState = session.getState( RepositoryInjectionState.class );
+        if ( repositoryState != null && repositoryState.isEnabled() )
+        {
+            models.add( repositoryState.getRemoteRepositoryInjectionMgmt() );
+        }
+
+        modelIO.prefetch( models, managedDependencies,
+                          getIntegerProperty( session.getUserProperties(), ModelIO.PREFETCH_THREADS_PROPERTY,
+                                              ModelIO.DEFAULT_PREFETCH_THREADS, 1 ) );
+    }
+
+    private int getThreads( final ManipulationSession session, final String property )
+        throws ManipulationException
+    {
+        return getIntegerProperty( session.getUserProperties(), property, 1, 1 );
+    }
+
+    private boolean isStreamingWriter( final ManipulationSession session )
+        throws ManipulationException
+    {
+        final String writer = session.getUserProperties()
+                                     .getProperty( PomIO.POM_WRITER_PROPERTY, PomIO.JDOM_WRITER );
+        if ( PomIO.STREAMING_WRITER.equals( writer ) )
+        {
+            return true;
+        }
+        else if ( !PomIO.JDOM_WRITER.equals( writer ) )
+        {
+            throw new ManipulationException( "Invalid value for " + PomIO.POM_WRITER_PROPERTY + ": " + writer );
+        }
+        return false;
     }
 
     /**
@@ -120,7 +219,17 @@ public class ManipulationManager
     public void scanAndApply( final ManipulationSession session )
                     throws ManipulationException
     {
-        final List<Project> projects = pomIO.parseProject( session.getPom() );
+        if ( !active )
+        {
+            logger.info( "Maven-Manipulation-Extension: No manipulations enabled." );
+            return;
+        }
+
+        prefetchRemoteModels( session );
+
+        final List<Project> projects = pomIO.parseProject( session.getPom(),
+                                                            getThreads( session, PomIO.PARSE_THREADS_PROPERTY ),
+                                                            ModelCache.create( session.getUserProperties() ) );
 
         scan( projects, session );
 
@@ -138,7 +247,8 @@ public class ManipulationManager
         if ( !changed.isEmpty() )
         {
             logger.info( "Maven-Manipulation-Extension: Rewrite changed: " + projects );
-            pomIO.rewritePOMs( changed );
+            pomIO.rewritePOMs( changed, getThreads( session, PomIO.REWRITE_THREADS_PROPERTY ),
+                               isStreamingWriter( session ) );
 
             try
             {
@@ -171,6 +281,7 @@ public class ManipulationManager
     public void scan( final List<Project> projects, final ManipulationSession session )
         throws ManipulationException
     {
+        // Also builds the ReactorIndex used by the manipulators for reactor membership and parent lookups.
         session.setProjects( projects );
         for ( final Manipulator manipulator : orderedManipulators )
         {
@@ -193,9 +304,16 @@ public class ManipulationManager
      */
     public Set<Project> applyManipulations( final List<Project> projects, final ManipulationSession session )
         throws ManipulationException
+    {
+        return applyManipulations( orderedManipulators, projects, session );
+    }
+
+    Set<Project> applyManipulations( final List<Manipulator> manipulators, final List<Project> projects,
+                                     final ManipulationSession session )
+        throws ManipulationException
     {
         final Set<Project> changed = new HashSet<Project>();
-        for ( final Manipulator manipulator : orderedManipulators )
+        for ( final Manipulator manipulator : manipulators )
         {
             final Set<Project> mChanged = manipulator.applyChanges( projects, session );
 
@@ -205,6 +323,19 @@ public class ManipulationManager
             }
         }
 
+        // Manipulators report the projects they may have touched; only keep those whose model really differs from
+        // the POM it was read from. Projects which are not reported are never fingerprinted.
+        final Iterator<Project> it = changed.iterator();
+        while ( it.hasNext() )
+        {
+            final Project project = it.next();
+            if ( !project.isModified() )
+            {
+                logger.debug( "Project " + project + " was not modified; it will not be rewritten." );
+                it.remove();
+            }
+        }
+
         if ( changed.isEmpty() )
         {
             logger.info( "Maven-Manipulation-Extension: No changes." );
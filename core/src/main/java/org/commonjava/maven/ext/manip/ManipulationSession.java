@@ -22,6 +22,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.commonjava.maven.ext.manip.impl.Manipulator;
 import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.ReactorIndex;
 import org.commonjava.maven.ext.manip.state.State;
 import org.commonjava.maven.ext.manip.state.VersioningState;
 
@@ -53,6 +54,11 @@ public class ManipulationSession
      */
     private List<Project> projects;
 
+    /**
+     * Index of the above projects by GA / GAV.
+     */
+    private ReactorIndex reactorIndex;
+
     private ManipulationException error;
 
     public ManipulationSession()
@@ -96,9 +102,14 @@ public class ManipulationSession
                                                                      .getUserProperties();
     }
 
+    /**
+     * Records the projects in the current build, and indexes them for reactor membership and parent lookups.
+     * @param projects the list of Projects in the build.
+     */
     public void setProjects( final List<Project> projects )
     {
         this.projects = projects;
+        this.reactorIndex = projects == null ? null : new ReactorIndex( projects );
     }
 
     public List<Project> getProjects()
@@ -106,6 +117,14 @@ public class ManipulationSession
         return projects;
     }
 
+    /**
+     * @return an index over the projects in the current build, or null if they have not been set.
+     */
+    public ReactorIndex getReactorIndex()
+    {
+        return reactorIndex;
+    }
+
     public List<ArtifactRepository> getRemoteRepositories()
     {
         return mavenSession == null ? null : mavenSession.getRequest()
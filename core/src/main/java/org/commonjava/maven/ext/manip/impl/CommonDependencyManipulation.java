@@ -25,25 +25,28 @@ import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.ManipulationSession;
 import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.PropertyIndex;
+import org.commonjava.maven.ext.manip.model.VersionExpression;
 import org.commonjava.maven.ext.manip.spi.RemoteDependenciesSPI;
 import org.commonjava.maven.ext.manip.state.DependencyState;
 import org.commonjava.maven.ext.manip.state.DependencyState.VersionPropertyFormat;
 import org.commonjava.maven.ext.manip.state.State;
+import org.commonjava.maven.ext.manip.util.OverrideIndex;
+import org.commonjava.maven.ext.manip.util.OverridePlan;
 import org.commonjava.maven.ext.manip.util.WildcardMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
-import static org.apache.commons.lang.StringUtils.join;
 import static org.commonjava.maven.ext.manip.util.IdUtils.ga;
 import static org.commonjava.maven.ext.manip.util.IdUtils.gav;
 import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getPropertiesByPrefix;
@@ -72,13 +75,19 @@ abstract public class CommonDependencyManipulation
 
         final Set<Project> result = new HashSet<Project>();
 
+        // Compile the overrides and module exclusions once; the result is shared by every project and every
+        // dependency pass.
+        final OverridePlan plan = overrides.size() > 0 ? createPlan( session, overrides ) : null;
+        // Used to work out which property a version expression such as 1.${minor} should have updated.
+        final PropertyIndex originalProperties = overrides.size() > 0 ? new PropertyIndex( projects ) : null;
+
         for ( final Project project : projects )
         {
             final Model model = project.getModel();
 
             if ( overrides.size() > 0 )
             {
-                apply( session, project, model, overrides );
+                apply( session, project, model, plan, originalProperties );
 
                 result.add( project );
             }
@@ -87,9 +96,11 @@ abstract public class CommonDependencyManipulation
         // If we've changed something now update any old properties with the new values.
         if ( result.size() > 0 )
         {
+            final PropertyIndex properties = new PropertyIndex( result );
             for ( final String key : versionPropertyUpdateMap.keySet() )
             {
-                boolean found = updateProperties( state, result, key, versionPropertyUpdateMap.get( key ) );
+                boolean found = updateProperties( state, properties, key, versionPropertyUpdateMap.get( key ),
+                                                  new HashSet<String>() );
 
                 if ( !found )
                 {
@@ -102,7 +113,7 @@ abstract public class CommonDependencyManipulation
                         if ( p.isInheritanceRoot() )
                         {
                             logger.info( "Adding property {} with {} ", key, versionPropertyUpdateMap.get( key ) );
-                            p.getModel().getProperties().setProperty( key, versionPropertyUpdateMap.get( key ) );
+                            properties.setProperty( p, key, versionPropertyUpdateMap.get( key ) );
                         }
                     }
                 }
@@ -111,66 +122,118 @@ abstract public class CommonDependencyManipulation
         return result;
     }
 
+    /**
+     * Index the overrides by GA and compile the <code>dependencyExclusion.*</code> user properties into per-module
+     * views. Overrides which refer to projects in the current reactor (e.g. inter-module dependencies) are never
+     * applied.
+     */
+    private OverridePlan createPlan( final ManipulationSession session, final Map<ArtifactRef, String> overrides )
+                    throws ManipulationException
+    {
+        final OverrideIndex index = new OverrideIndex( overrides );
+
+        // Only reactor projects whose GA is also overridden can clash. As earlier manipulators may have altered the
+        // project version, use the current model coordinates rather than the indexed key. Every project is checked,
+        // as the reactor may hold several projects with the same GA.
+        final Set<ArtifactRef> reactorRefs = new HashSet<ArtifactRef>();
+        for ( final Project project : session.getProjects() )
+        {
+            final ArtifactRef ref = ArtifactRef.parse( gav( project.getModel() ) );
+            if ( index.lookup( ref.getGroupId(), ref.getArtifactId() ).length > 0 )
+            {
+                reactorRefs.add( ref );
+            }
+        }
+
+        final Map<String, String> exclusions =
+                        getPropertiesByPrefix( session.getUserProperties(), DependencyState.DEPENDENCY_EXCLUSION_PREFIX );
+        try
+        {
+            return new OverridePlan( index, reactorRefs, exclusions );
+        }
+        catch ( InvalidRefException e )
+        {
+            logger.error( "Invalid module exclusion override {} ", exclusions );
+            throw e;
+        }
+    }
+
     /**
      * Recursively update properties.
      *
      * @param state the DependencyState
-     * @param projects the current set of projects we are scanning.
+     * @param properties the properties of the current set of projects we are scanning.
      * @param key a key to look for.
      * @param newValue a value to look for.
+     * @param inProgress the keys currently being updated, to detect cyclic references.
      * @return true if changes were made.
      * @throws ManipulationException
      */
-    private boolean updateProperties( DependencyState state, Set<Project> projects, String key, String newValue )
+    private boolean updateProperties( DependencyState state, PropertyIndex properties, String key, String newValue,
+                                      Set<String> inProgress )
                     throws ManipulationException
     {
+        if ( !inProgress.add( key ) )
+        {
+            logger.error( "Cyclic property reference {} found updating with {} ", inProgress, newValue );
+            return false;
+        }
+
         boolean found = false;
-        for ( final Project p : projects )
+        for ( final Project p : new ArrayList<Project>( properties.getDefiningProjects( key ) ) )
         {
-            if ( p.getModel().getProperties().containsKey( key ) )
-            {
-                final String oldValue = p.getModel().getProperties().getProperty( key );
+            final String oldValue = p.getModel().getProperties().getProperty( key );
+
+            logger.info( "Updating property {} / {} with {} ", key, oldValue, newValue );
 
-                logger.info( "Updating property {} / {} with {} ", key, oldValue, newValue );
+            found = true;
 
-                found = true;
+            final VersionExpression expression = oldValue == null ? null : VersionExpression.compile( oldValue );
+            final Map.Entry<String, String> update = expression == null ? null : expression.bind( newValue, properties );
 
-                if ( oldValue != null && oldValue.startsWith( "${" ) )
+            if ( update != null )
+            {
+                if ( !updateProperties( state, properties, update.getKey(), update.getValue(), inProgress ) )
                 {
-                    if ( !updateProperties( state, projects, oldValue.substring( 2, oldValue.indexOf( '}' ) ),
-                                            newValue ) )
-                    {
-                        logger.error( "Recursive property not found for {} with {} ", oldValue, newValue );
-                        return false;
-                    }
+                    logger.error( "Recursive property not found for {} with {} ", oldValue, newValue );
+                    inProgress.remove( key );
+                    return false;
                 }
-                else
+            }
+            else
+            {
+                final String currentValue = expression == null ? null : expression.evaluate( properties );
+                if ( expression != null && !expression.isLiteral() )
                 {
-                    if ( state.getStrict() )
+                    logger.warn( "Unable to express {} through a property of {}; replacing the value of {}",
+                                 newValue, oldValue, key );
+                }
+
+                if ( state.getStrict() )
+                {
+                    if ( currentValue != null && !newValue.startsWith( currentValue ) )
                     {
-                        if ( oldValue != null && !newValue.startsWith( oldValue ) )
+                        if ( state.getFailOnStrictViolation() )
                         {
-                            if ( state.getFailOnStrictViolation() )
-                            {
-                                throw new ManipulationException(
-                                                "Replacement: {} of original version: {} in property: {} violates the strict version-alignment rule!",
-                                                newValue, oldValue, key );
-                            }
-                            else
-                            {
-                                logger.warn( "Replacement: {} of original version: {} in property: {} violates the strict version-alignment rule!",
-                                             newValue, oldValue, key );
-                                // Ignore the dependency override. As found has been set to true it won't inject
-                                // a new property either.
-                                continue;
-                            }
+                            throw new ManipulationException(
+                                            "Replacement: {} of original version: {} in property: {} violates the strict version-alignment rule!",
+                                            newValue, currentValue, key );
+                        }
+                        else
+                        {
+                            logger.warn( "Replacement: {} of original version: {} in property: {} violates the strict version-alignment rule!",
+                                         newValue, currentValue, key );
+                            // Ignore the dependency override. As found has been set to true it won't inject
+                            // a new property either.
+                            continue;
                         }
                     }
-
-                    p.getModel().getProperties().setProperty( key, newValue );
                 }
+
+                properties.setProperty( p, key, newValue );
             }
         }
+        inProgress.remove( key );
         return found;
     }
 
@@ -178,70 +241,58 @@ abstract public class CommonDependencyManipulation
      * Applies dependency overrides to the project.
      */
     private void apply( final ManipulationSession session, final Project project, final Model model,
-                        final Map<ArtifactRef, String> overrides )
+                        final OverridePlan plan, final PropertyIndex properties )
                     throws ManipulationException
     {
-        // Map of Group : Map of artifactId [ may be wildcard ] : value
-        final WildcardMap explicitOverrides = new WildcardMap();
         final String projectGA = ga( project );
         final DependencyState state = session.getState( DependencyState.class );
+        final OverrideIndex index = plan.getIndex();
 
-        Map<ArtifactRef, String> moduleOverrides = new LinkedHashMap<ArtifactRef, String>( overrides );
-        moduleOverrides = removeReactorGAs( session, moduleOverrides );
-
-        try
-        {
-            moduleOverrides = applyModuleVersionOverrides( projectGA,
-                                                           getPropertiesByPrefix( session.getUserProperties(),
-                                                                                  DependencyState.DEPENDENCY_EXCLUSION_PREFIX ),
-                                                           moduleOverrides, explicitOverrides );
-        }
-        catch ( InvalidRefException e )
-        {
-            logger.error( "Invalid module exclusion override {} : {} ", moduleOverrides, explicitOverrides );
-            throw e;
-        }
+        // The global and module specific overrides which apply to this module
+        final OverridePlan.View moduleOverrides = plan.getView( projectGA );
+        // Map of Group : Map of artifactId [ may be wildcard ] : value
+        final WildcardMap explicitOverrides = moduleOverrides.getExplicitOverrides();
 
         if ( project.isInheritanceRoot() )
         {
             // Handle the situation where the top level parent refers to a prior build that is in the BOM.
             if ( project.getParent() != null)
             {
-                Iterator<ArtifactRef> it = moduleOverrides.keySet().iterator();
-                while (it.hasNext())
+                for ( final int i : index.lookup( ProjectRef.parse( ga( project.getParent() ) ) ) )
                 {
-                    ArtifactRef ar = it.next();
-                    String oldValue = project.getParent().getVersion();
-                    String newValue = moduleOverrides.get( ar );
+                    if ( !moduleOverrides.isActive( i ) )
+                    {
+                        continue;
+                    }
+
+                    final String oldValue = project.getParent().getVersion();
+                    final String newValue = index.getVersion( i );
 
-                    if ( ar.asProjectRef().equals( ProjectRef.parse( ga(project.getParent()) ) ))
+                    if ( state.getStrict() )
                     {
-                        if ( state.getStrict() )
+                        if ( oldValue != null && !newValue.startsWith( oldValue ) )
                         {
-                            if ( oldValue != null && !newValue.startsWith( oldValue ) )
+                            if ( state.getFailOnStrictViolation() )
                             {
-                                if ( state.getFailOnStrictViolation() )
-                                {
-                                    throw new ManipulationException(
-                                                    "Parent reference {} replacement: {} of original version: {} violates the strict version-alignment rule!",
-                                                    ga(project.getParent()), newValue, oldValue);
-                                }
-                                else
-                                {
-                                    logger.warn( "Parent reference {} replacement: {} of original version: {} violates the strict version-alignment rule!",
-                                                 ga(project.getParent()), newValue, oldValue);
-                                    // Ignore the dependency override. As found has been set to true it won't inject
-                                    // a new property either.
-                                    continue;
-                                }
+                                throw new ManipulationException(
+                                                "Parent reference {} replacement: {} of original version: {} violates the strict version-alignment rule!",
+                                                ga(project.getParent()), newValue, oldValue);
+                            }
+                            else
+                            {
+                                logger.warn( "Parent reference {} replacement: {} of original version: {} violates the strict version-alignment rule!",
+                                             ga(project.getParent()), newValue, oldValue);
+                                // Ignore the dependency override. As found has been set to true it won't inject
+                                // a new property either.
+                                continue;
                             }
                         }
-
-                        logger.debug( " Modifying parent reference from {} to {} for {} ", model.getParent().getVersion(),
-                                      newValue, ga( project.getParent() ));
-                        model.getParent().setVersion( newValue );
-                        break;
                     }
+
+                    logger.debug( " Modifying parent reference from {} to {} for {} ", model.getParent().getVersion(),
+                                  newValue, ga( project.getParent() ));
+                    model.getParent().setVersion( newValue );
+                    break;
                 }
             }
 
@@ -262,14 +313,21 @@ abstract public class CommonDependencyManipulation
                 logger.debug( "Applying overrides to managed dependencies for top-pom: {}\n{}", projectGA,
                               moduleOverrides );
 
-                final Map<ArtifactRef, String> nonMatchingVersionOverrides =
-                                applyOverrides( session, dependencies, moduleOverrides );
+                final BitSet matched = new BitSet( index.size() );
+                applyOverrides( session, properties, dependencies, index, moduleOverrides, matched );
 
-                final Map<ArtifactRef, String> matchedOverrides =
-                                new LinkedHashMap<ArtifactRef, String>( moduleOverrides );
-                matchedOverrides.keySet().removeAll( nonMatchingVersionOverrides.keySet() );
+                final Map<ArtifactRef, String> matchedOverrides = new LinkedHashMap<ArtifactRef, String>();
+                final Map<ArtifactRef, String> nonMatchingVersionOverrides = new LinkedHashMap<ArtifactRef, String>();
+                for ( int i = 0; i < index.size(); i++ )
+                {
+                    if ( moduleOverrides.isActive( i ) )
+                    {
+                        ( matched.get( i ) ? matchedOverrides : nonMatchingVersionOverrides ).put(
+                                        index.getArtifact( i ), index.getVersion( i ) );
+                    }
+                }
 
-                applyExplicitOverrides( versionPropertyUpdateMap, explicitOverrides, dependencies );
+                applyExplicitOverrides( properties, explicitOverrides, dependencies );
 
                 // Add/override a property to the build for each override
                 addVersionOverrideProperties( session, matchedOverrides, model.getProperties() );
@@ -279,14 +337,8 @@ abstract public class CommonDependencyManipulation
                     final List<Dependency> extraDeps = new ArrayList<Dependency>();
 
                     // Add dependencies to Dependency Management which did not match any existing dependency
-                    for ( final ArtifactRef var : overrides.keySet() )
+                    for ( final ArtifactRef var : nonMatchingVersionOverrides.keySet() )
                     {
-                        if ( !nonMatchingVersionOverrides.containsKey( var ) )
-                        {
-                            // This one in the remote pom was already dealt with ; continue.
-                            continue;
-                        }
-
                         final Dependency newDependency = new Dependency();
                         newDependency.setGroupId( var.getGroupId() );
                         newDependency.setArtifactId( var.getArtifactId() );
@@ -297,12 +349,15 @@ abstract public class CommonDependencyManipulation
                             newDependency.setOptional( var.isOptional() );
                         }
 
-                        final String artifactVersion = moduleOverrides.get( var );
+                        final String artifactVersion = nonMatchingVersionOverrides.get( var );
                         newDependency.setVersion( artifactVersion );
 
                         extraDeps.add( newDependency );
                         logger.debug( "New entry added to <DependencyManagement/> - {} : {} ", var, artifactVersion );
+                    }
 
+                    if ( !extraDeps.isEmpty() )
+                    {
                         // Add/override a property to the build for each override
                         addVersionOverrideProperties( session, nonMatchingVersionOverrides, model.getProperties() );
                     }
@@ -327,8 +382,8 @@ abstract public class CommonDependencyManipulation
             if ( session.getState( DependencyState.class ).getOverrideDependencies() && dependencyManagement != null )
             {
                 logger.debug( "Applying overrides to managed dependencies for: {}\n{}", projectGA, moduleOverrides );
-                applyOverrides( session, dependencyManagement.getDependencies(), moduleOverrides );
-                applyExplicitOverrides( versionPropertyUpdateMap, explicitOverrides,
+                applyOverrides( session, properties, dependencyManagement.getDependencies(), index, moduleOverrides, null );
+                applyExplicitOverrides( properties, explicitOverrides,
                                         dependencyManagement.getDependencies() );
             }
             else
@@ -343,8 +398,8 @@ abstract public class CommonDependencyManipulation
             logger.debug( "Applying overrides to concrete dependencies for: {}\n{}", projectGA, moduleOverrides );
             // Apply overrides to project direct dependencies
             final List<Dependency> projectDependencies = model.getDependencies();
-            applyOverrides( session, projectDependencies, moduleOverrides );
-            applyExplicitOverrides( versionPropertyUpdateMap, explicitOverrides, projectDependencies );
+            applyOverrides( session, properties, projectDependencies, index, moduleOverrides, null );
+            applyExplicitOverrides( properties, explicitOverrides, projectDependencies );
 
             // Now check all possible profiles and update them.
             List<Profile> profiles = project.getModel().getProfiles();
@@ -355,13 +410,14 @@ abstract public class CommonDependencyManipulation
                     logger.debug( "Iterating profile {} " , p.getId() );
                     if ( p.getDependencyManagement() != null )
                     {
-                        applyOverrides( session, p.getDependencyManagement().getDependencies(), moduleOverrides );
-                        applyExplicitOverrides( versionPropertyUpdateMap, explicitOverrides,
+                        applyOverrides( session, properties, p.getDependencyManagement().getDependencies(), index, moduleOverrides,
+                                        null );
+                        applyExplicitOverrides( properties, explicitOverrides,
                                                 p.getDependencyManagement().getDependencies() );
                     }
                     final List<Dependency> profileDependencies = p.getDependencies();
-                    applyOverrides( session, profileDependencies, moduleOverrides );
-                    applyExplicitOverrides( versionPropertyUpdateMap, explicitOverrides, profileDependencies );
+                    applyOverrides( session, properties, profileDependencies, index, moduleOverrides, null );
+                    applyExplicitOverrides( properties, explicitOverrides, profileDependencies );
                 }
             }
         }
@@ -371,17 +427,51 @@ abstract public class CommonDependencyManipulation
         }
     }
 
+    /**
+     * Handle the situation where we are updating a dependency whose version refers to properties - in this case we
+     * want to update the property instead. For versions such as <code>1.${minor}</code> or <code>${a}${b}</code> the
+     * property whose new value gives the override version is chosen.
+     *
+     * @param properties the properties of the projects, before any changes.
+     * @param oldVersion the current version of the dependency.
+     * @param newVersion the override version.
+     * @return true if a property update has been recorded, false if the version should be replaced instead.
+     */
+    private boolean updateVersionProperty( final PropertyIndex properties, final String oldVersion,
+                                           final String newVersion )
+    {
+        final VersionExpression expression = VersionExpression.compile( oldVersion );
+        if ( expression.isLiteral() )
+        {
+            return false;
+        }
+
+        final Map.Entry<String, String> update = expression.bind( newVersion, properties );
+        if ( update == null )
+        {
+            logger.warn( "Unable to express {} through a property of {}; replacing the version", newVersion,
+                         oldVersion );
+            return false;
+        }
+
+        logger.debug( "Original version {} was a property mapping; caching new value for update {} -> {}", oldVersion,
+                      update.getKey(), update.getValue() );
+        versionPropertyUpdateMap.put( update.getKey(), update.getValue() );
+        return true;
+    }
+
     /**
      * Apply explicit overrides to a set of dependencies from a project. The explicit overrides come from
      * dependencyExclusion. However they have to be separated out from standard overrides so we can easily
      * ignore any property references (and overwrite them).
      *
+     * @param properties the properties of the projects, before any changes.
      * @param explicitOverrides
      * @param dependencies
      * @throws ManipulationException
      */
-    private void applyExplicitOverrides( final Map<String, String> versionPropertyUpdateMap,
-                                         final WildcardMap explicitOverrides, final List<Dependency> dependencies )
+    private void applyExplicitOverrides( final PropertyIndex properties, final WildcardMap explicitOverrides,
+                                         final List<Dependency> dependencies )
                     throws ManipulationException
     {
         // Apply matching overrides to dependencies
@@ -412,24 +502,7 @@ abstract public class CommonDependencyManipulation
                 {
                     logger.debug( "Force aligning {} to {}.", groupIdArtifactId, overrideVersion );
 
-                    if ( oldVersion.startsWith( "${" ) )
-                    {
-                        final int endIndex = oldVersion.indexOf( '}' );
-                        final String oldProperty = oldVersion.substring( 2, endIndex );
-
-                        if ( endIndex != oldVersion.length() - 1 )
-                        {
-                            throw new ManipulationException( "NYI : handling for versions (" + oldVersion
-                                                                             + ") with multiple embedded properties is NYI. " );
-                        }
-                        logger.debug( "Original version was a property mapping; caching new fixed value for update {} -> {}",
-                                      oldProperty, overrideVersion );
-
-                        final String oldVersionProp = oldVersion.substring( 2, oldVersion.length() - 1 );
-
-                        versionPropertyUpdateMap.put( oldVersionProp, overrideVersion );
-                    }
-                    else
+                    if ( !updateVersionProperty( properties, oldVersion, overrideVersion ) )
                     {
                         dependency.setVersion( overrideVersion );
                     }
@@ -439,25 +512,25 @@ abstract public class CommonDependencyManipulation
     }
 
     /**
-     * Apply a set of version overrides to a list of dependencies. Return a set of the overrides which were not applied.
+     * Apply a set of version overrides to a list of dependencies. Overrides are located through the GA index rather
+     * than by scanning the full override list for every dependency.
      *
      * @param session The ManipulationSession
+     * @param properties The properties of the projects, before any changes
      * @param dependencies The list of dependencies
-     * @param overrides The map of dependency version overrides
-     * @return The map of overrides that were not matched in the dependencies
+     * @param index The GA index over all dependency version overrides
+     * @param overrides The dependency version overrides applicable to the current module
+     * @param matched If non-null, the index positions of any overrides that were applied are recorded here.
      * @throws ManipulationException
      */
-    private Map<ArtifactRef, String> applyOverrides( final ManipulationSession session, final List<Dependency> dependencies,
-                                                     final Map<ArtifactRef, String> overrides )
+    private void applyOverrides( final ManipulationSession session, final PropertyIndex properties,
+                                 final List<Dependency> dependencies, final OverrideIndex index,
+                                 final OverridePlan.View overrides, final BitSet matched )
                     throws ManipulationException
     {
-        // Duplicate the override map so unused overrides can be easily recorded
-        final Map<ArtifactRef, String> unmatchedVersionOverrides = new LinkedHashMap<ArtifactRef, String>();
-        unmatchedVersionOverrides.putAll( overrides );
-
         if ( dependencies == null )
         {
-            return unmatchedVersionOverrides;
+            return;
         }
 
         final DependencyState state = session.getState( DependencyState.class );
@@ -476,257 +549,67 @@ abstract public class CommonDependencyManipulation
         // Apply matching overrides to dependencies
         for ( final Dependency dependency : dependencies )
         {
-            ProjectRef depPr = new ProjectRef( dependency.getGroupId(), dependency.getArtifactId() );
-
             // We might have junit:junit:3.8.2 and junit:junit:4.1 for differing override scenarios within the
             // overrides list. If strict mode alignment is enabled, using multiple overrides will work with
             // different modules. It is currently undefined what will happen if non-strict mode is enabled and
             // multiple versions are in the remote override list (be it from a bom or rest call). Actually, what
             // will most likely happen is last-wins.
-            for ( final ArtifactRef ar : overrides.keySet() )
-            {
-                ProjectRef groupIdArtifactId = ar.asProjectRef();
-                logger.debug ("Comparing project group:artifact {} to overrides ga {} ", depPr, groupIdArtifactId);
-
-                if ( depPr.equals( groupIdArtifactId ) )
-                {
-                    final String oldVersion = dependency.getVersion();
-                    final String overrideVersion = overrides.get( ar );
-
-                    if ( overrideVersion == null || overrideVersion.length() == 0 || oldVersion == null
-                                    || oldVersion.length() == 0 )
-                    {
-                        logger.warn( "Unable to align to an empty version for " + groupIdArtifactId + "; ignoring" );
-                    }
-                    else
-                    {
-                        // Handle the situation where we are updating a dependency that has an existing property - in this
-                        // case we want to update the property instead.
-                        // TODO: Handle the scenario where the version might be ${....}${....}
-                        if ( oldVersion.startsWith( "${" ) )
-                        {
-                            final int endIndex = oldVersion.indexOf( '}' );
-                            final String oldProperty = oldVersion.substring( 2, endIndex );
-
-                            if ( endIndex != oldVersion.length() - 1 )
-                            {
-                                throw new ManipulationException( "NYI : handling for versions (" + oldVersion
-                                                                                 + ") with multiple embedded properties is NYI. " );
-                            }
-                            logger.debug( "Original version was a property mapping; caching new value for update {} -> {}",
-                                          oldProperty, overrideVersion );
-
-                            final String oldVersionProp = oldVersion.substring( 2, oldVersion.length() - 1 );
-
-                            versionPropertyUpdateMap.put( oldVersionProp, overrideVersion );
-                        }
-                        else
-                        {
-                            // FIXME : Here we should be able to exact match if strict ...
-                            if ( strict && !overrideVersion.startsWith( oldVersion ) )
-                            {
-                                if ( state.getFailOnStrictViolation() )
-                                {
-                                    throw new ManipulationException(
-                                                    "Replacement: {} of original version: {} in dependency: {} violates the strict version-alignment rule!",
-                                                    overrideVersion, oldVersion, groupIdArtifactId.toString() );
-                                }
-                                else
-                                {
-                                    logger.warn( "Replacement: {} of original version: {} in dependency: {} violates the strict version-alignment rule!",
-                                                 overrideVersion, oldVersion, groupIdArtifactId );
-                                }
-                            }
-                            else
-                            {
-                                logger.debug( "Altered dependency {} {} -> {}", groupIdArtifactId, oldVersion,
-                                              overrideVersion );
-                                dependency.setVersion( overrideVersion );
-                            }
-                        }
-                        unmatchedVersionOverrides.remove( ar );
-                    }
-                }
-            }
-        }
-
-        return unmatchedVersionOverrides;
-    }
-
-    /**
-     * Remove version overrides which refer to projects in the current reactor.
-     * Projects in the reactor include things like inter-module dependencies
-     * which should never be overridden.
-     * @param session the ManipulationSession
-     * @param versionOverrides current set of ArtifactRef:newVersion overrides.
-     * @return A new Map with the reactor GAs removed.
-     */
-    private Map<ArtifactRef, String> removeReactorGAs( final ManipulationSession session,
-                                                       final Map<ArtifactRef, String> versionOverrides )
-    {
-        final Map<ArtifactRef, String> reducedVersionOverrides =
-                        new LinkedHashMap<ArtifactRef, String>( versionOverrides );
-        for ( final Project project : session.getProjects() )
-        {
-            final String reactorGA = gav( project.getModel() );
-            reducedVersionOverrides.remove( ArtifactRef.parse( reactorGA ) );
-        }
-        return reducedVersionOverrides;
-    }
-
-    /**
-     * Remove module overrides which do not apply to the current module. Searches the full list of version overrides
-     * for any keys which contain the '@' symbol.  Removes these from the version overrides list, and add them back
-     * without the '@' symbol only if they apply to the current module.
-     *
-     * @param projectGA the current project group : artifact
-     * @param originalOverrides The full list of version overrides, both global and module specific
-     * @param moduleOverrides are individual overrides e.g. group:artifact@groupId:artifactId :: value
-     * @param explicitOverrides
-     * @return The map of global and module specific overrides which apply to the given module
-     * @throws ManipulationException
-     */
-    private Map<ArtifactRef, String> applyModuleVersionOverrides( final String projectGA,
-                                                                  final Map<String, String> moduleOverrides,
-                                                                  Map<ArtifactRef, String> originalOverrides,
-                                                                  final WildcardMap explicitOverrides )
-                    throws ManipulationException
-    {
-        final Map<ArtifactRef, String> remainingOverrides = new LinkedHashMap<ArtifactRef, String>( originalOverrides );
-
-        logger.debug( "Calculating module-specific version overrides. Starting with:\n  {}",
-                      join( remainingOverrides.entrySet(), "\n  " ) );
-
-        // These modes correspond to two different kinds of passes over the available override properties:
-        // 1. Module-specific: Don't process wildcard overrides here, allow module-specific settings to take precedence.
-        // 2. Wildcards: Add these IF there is no corresponding module-specific override.
-        final boolean wildcardMode[] = { false, true };
-        for ( int i = 0; i < wildcardMode.length; i++ )
-        {
-            for ( final String currentKey : new HashSet<String>( moduleOverrides.keySet() ) )
+            for ( final int i : index.lookup( dependency.getGroupId(), dependency.getArtifactId() ) )
             {
-                final String currentValue = moduleOverrides.get( currentKey );
-
-                logger.debug( "Processing key {} for override with value {}", currentKey,  currentValue);
-
-                if ( !currentKey.contains( "@" ) )
+                if ( !overrides.isActive( i ) )
                 {
-                    logger.debug( "Not an override. Skip." );
+                    // Excluded for this module.
                     continue;
                 }
 
-                final boolean isWildcard = currentKey.endsWith( "@*" );
-                logger.debug( "Is wildcard? {}", isWildcard );
+                final ProjectRef groupIdArtifactId = index.getProjectRef( i );
+                final String oldVersion = dependency.getVersion();
+                final String overrideVersion = index.getVersion( i );
 
-                // process module-specific overrides (first)
-                if ( !wildcardMode[i] )
+                if ( overrideVersion == null || overrideVersion.length() == 0 || oldVersion == null
+                                || oldVersion.length() == 0 )
                 {
-                    // skip wildcard overrides in this mode
-                    if ( isWildcard )
-                    {
-                        logger.debug( "Not currently in wildcard mode. Skip." );
-                        continue;
-                    }
-
-                    final String[] artifactAndModule = currentKey.split( "@" );
-                    if ( artifactAndModule.length != 2 )
-                    {
-                        throw new ManipulationException( "Invalid format for exclusion key " + currentKey );
-                    }
-                    final String artifactGA = artifactAndModule[0];
-                    final String moduleGA = artifactAndModule[1];
-
-                    logger.debug( "For artifact override: {}, comparing parsed module: {} to current project: {}",
-                                  artifactGA, moduleGA, projectGA );
-
-                    if ( moduleGA.equals( projectGA ) )
-                    {
-                        if ( currentValue != null && currentValue.length() > 0 )
-                        {
-                            explicitOverrides.put( ProjectRef.parse( artifactGA ), currentValue );
-                            logger.debug( "Overriding module dependency for {} with {} : {}", moduleGA, artifactGA,
-                                          currentValue );
-                        }
-                        else
-                        {
-                            removeGA( remainingOverrides, ProjectRef.parse( artifactGA ) );
-                            logger.debug( "Ignoring module dependency override for {} " + moduleGA );
-                        }
-                    }
+                    logger.warn( "Unable to align to an empty version for " + groupIdArtifactId + "; ignoring" );
                 }
-                // process wildcard overrides (second)
                 else
                 {
-                    // skip module-specific overrides in this mode
-                    if ( !isWildcard )
-                    {
-                        logger.debug( "Currently in wildcard mode. Skip." );
-                        continue;
-                    }
-
-                    final String artifactGA = currentKey.substring( 0, currentKey.length() - 2 );
-                    logger.debug( "For artifact override: {}, checking if current overrides already contain a module-specific version.",
-                                  artifactGA );
-
-                    if ( explicitOverrides.containsKey( ProjectRef.parse( artifactGA ) ) )
+                    // Handle the situation where we are updating a dependency that has an existing property - in this
+                    // case we want to update the property instead.
+                    if ( !updateVersionProperty( properties, oldVersion, overrideVersion ) )
                     {
-                        logger.debug( "For artifact override: {}, current overrides already contain a module-specific version. Skip.",
-                                      artifactGA );
-                        continue;
-                    }
+                        // The version is either literal or an expression which can't be expressed through one of its
+                        // properties, in which case it is replaced.
+                        final String currentVersion = VersionExpression.compile( oldVersion ).evaluate( properties );
 
-                    // I think this is only used for e.g. dependencyExclusion.groupId:artifactId@*=<explicitVersion>
-                    if ( currentValue != null && currentValue.length() > 0 )
-                    {
-                        logger.debug( "Overriding module dependency for {} with {} : {}", projectGA, artifactGA,
-                                      currentValue );
-                        explicitOverrides.put( ProjectRef.parse( artifactGA ), currentValue );
-                    }
-                    else
-                    {
-                        // If we have a wildcard artifact we want to replace any prior explicit overrides
-                        // with this one i.e. this takes precedence.
-                        if ( artifactGA.endsWith( ":*" ) )
+                        // FIXME : Here we should be able to exact match if strict ...
+                        if ( strict && !overrideVersion.startsWith( currentVersion ) )
                         {
-                            final ProjectRef artifactGAPr = ProjectRef.parse( artifactGA );
-                            final Iterator<ArtifactRef> it = remainingOverrides.keySet().iterator();
-                            while ( it.hasNext() )
+                            if ( state.getFailOnStrictViolation() )
+                            {
+                                throw new ManipulationException(
+                                                "Replacement: {} of original version: {} in dependency: {} violates the strict version-alignment rule!",
+                                                overrideVersion, oldVersion, groupIdArtifactId.toString() );
+                            }
+                            else
                             {
-                                final ArtifactRef pr = it.next();
-                                if ( artifactGAPr.getGroupId().equals( pr.getGroupId() ) )
-                                {
-                                    logger.debug( "Removing artifactGA " + pr + " from overrides" );
-                                    it.remove();
-                                }
+                                logger.warn( "Replacement: {} of original version: {} in dependency: {} violates the strict version-alignment rule!",
+                                             overrideVersion, oldVersion, groupIdArtifactId );
                             }
                         }
                         else
                         {
-                            removeGA( remainingOverrides, ProjectRef.parse( artifactGA ) );
-                            logger.debug( "Removing artifactGA " + artifactGA + " from overrides" );
+                            logger.debug( "Altered dependency {} {} -> {}", groupIdArtifactId, oldVersion,
+                                          overrideVersion );
+                            dependency.setVersion( overrideVersion );
                         }
-                        logger.debug( "Ignoring module dependency override for {} " + projectGA );
+                    }
+                    if ( matched != null )
+                    {
+                        matched.set( i );
                     }
                 }
             }
         }
-
-        return remainingOverrides;
-    }
-
-    private void removeGA( Map<ArtifactRef, String> map, ProjectRef ref )
-    {
-        Iterator<ArtifactRef> it = map.keySet().iterator();
-
-        while ( it.hasNext() )
-        {
-            ArtifactRef a = it.next();
-
-            if ( a.asProjectRef().equals( ref ) )
-            {
-                it.remove();
-            }
-        }
     }
 
     /***
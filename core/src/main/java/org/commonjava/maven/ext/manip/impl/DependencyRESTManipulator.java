@@ -25,16 +25,22 @@ import org.commonjava.maven.atlas.ident.ref.TypeAndClassifier;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.ManipulationSession;
 import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.PropertyIndex;
+import org.commonjava.maven.ext.manip.rest.CachingVersionTranslator;
 import org.commonjava.maven.ext.manip.rest.DefaultVersionTranslator;
+import org.commonjava.maven.ext.manip.rest.RestTransport;
 import org.commonjava.maven.ext.manip.rest.VersionTranslator;
+import org.commonjava.maven.ext.manip.rest.exception.RestException;
 import org.commonjava.maven.ext.manip.state.DependencyRESTState;
 import org.commonjava.maven.ext.manip.state.State;
 import org.commonjava.maven.ext.manip.state.VersioningState;
+import org.commonjava.maven.ext.manip.util.FutureUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -42,6 +48,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * This Manipulator runs first. It makes a REST call to an external service to load the GAVs to align the project version
@@ -58,10 +68,45 @@ public class DependencyRESTManipulator
 
     private VersionTranslator restEndpoint;
 
-    private Map<ProjectVersionRef, String> restResult = new HashMap<ProjectVersionRef, String>();
-    private ArrayList<ProjectVersionRef> restParam = new ArrayList<ProjectVersionRef>();
+    /**
+     * The HTTP transport of {@link #restEndpoint}, which holds a connection pool. It is only created once the REST
+     * call is known to be needed, and is closed once the result has been received.
+     */
+    private RestTransport transport;
+
+    /**
+     * Orders GAVs by groupId, artifactId and version so that the REST request payload is deterministic.
+     */
+    private static final Comparator<ProjectVersionRef> GAV_ORDER = new Comparator<ProjectVersionRef>()
+    {
+        @Override
+        public int compare( final ProjectVersionRef o1, final ProjectVersionRef o2 )
+        {
+            int result = o1.getGroupId().compareTo( o2.getGroupId() );
+            if ( result == 0 )
+            {
+                result = o1.getArtifactId().compareTo( o2.getArtifactId() );
+            }
+            if ( result == 0 )
+            {
+                result = o1.getVersionString().compareTo( o2.getVersionString() );
+            }
+            return result;
+        }
+    };
 
-    private Set<ArtifactRef> localDeps = new HashSet<ArtifactRef>();
+    private Future<Map<ProjectVersionRef, String>> restResult;
+    private Set<ProjectVersionRef> restParam = new TreeSet<ProjectVersionRef>( GAV_ORDER );
+
+    /**
+     * The GAVs of the projects being built, whose translations must not be served from a cache.
+     */
+    private Set<ProjectVersionRef> projectParam = new HashSet<ProjectVersionRef>();
+
+    /**
+     * The local dependencies, indexed by the GAV sent to the REST service.
+     */
+    private Map<ProjectVersionRef, Set<ArtifactRef>> localDeps = new HashMap<ProjectVersionRef, Set<ArtifactRef>>();
 
 
     protected DependencyRESTManipulator()
@@ -70,12 +115,36 @@ public class DependencyRESTManipulator
 
     @Override
     public void init( final ManipulationSession session )
+        throws ManipulationException
     {
         final Properties userProps = session.getUserProperties();
         DependencyRESTState state = new DependencyRESTState( userProps );
         session.setState( state );
+    }
 
-        restEndpoint = new DefaultVersionTranslator( state.getRESTURL() );
+    private void createEndpoint( final DependencyRESTState state )
+    {
+        closeTransport();
+
+        transport = new RestTransport( state.getRESTConnectTimeout(), state.getRESTReadTimeout(),
+                                       state.getRESTThreads(), state.isRESTCompress(), state.isRESTSmile() );
+        restEndpoint = new DefaultVersionTranslator( state.getRESTURL(), transport, state.getRESTChunkSize(),
+                                                     state.getRESTThreads(), state.getRESTRetries(),
+                                                     state.getRESTDeadline() );
+        if ( state.getRESTCacheDir() != null )
+        {
+            restEndpoint = new CachingVersionTranslator( restEndpoint, state.getRESTURL(), state.getRESTCacheDir(),
+                                                         state.getRESTCacheTTL(), state.getRESTCacheNegativeTTL() );
+        }
+    }
+
+    private void closeTransport()
+    {
+        if ( transport != null )
+        {
+            transport.close();
+            transport = null;
+        }
     }
 
     /**
@@ -93,14 +162,22 @@ public class DependencyRESTManipulator
             return;
         }
 
+        restParam.clear();
+        projectParam.clear();
+        localDeps.clear();
+
+        // Dependency versions may refer to properties defined anywhere in the reactor.
+        final PropertyIndex properties = new PropertyIndex( projects );
+
         // Iterate over current project set and populate list of dependencies and project GAs.
         for ( final Project project : projects )
         {
             // TODO: Check this : For the rest API I think we need to check every project GA not just inheritance root.
             restParam.add( project.getKey() );
+            projectParam.add( project.getKey() );
 
-            recordDependencies( projects, localDeps, project.getManagedDependencies() );
-            recordDependencies( projects, localDeps, project.getDependencies() );
+            recordDependencies( properties, localDeps, project.getManagedDependencies() );
+            recordDependencies( properties, localDeps, project.getDependencies() );
 
             List<Profile> profiles = project.getModel().getProfiles();
             if ( profiles != null )
@@ -109,9 +186,9 @@ public class DependencyRESTManipulator
                 {
                     if ( p.getDependencyManagement() != null )
                     {
-                        recordDependencies( projects, localDeps, p.getDependencyManagement().getDependencies() );
+                        recordDependencies( properties, localDeps, p.getDependencyManagement().getDependencies() );
                     }
-                    recordDependencies( projects, localDeps, p.getDependencies() );
+                    recordDependencies( properties, localDeps, p.getDependencies() );
                 }
             }
         }
@@ -124,29 +201,84 @@ public class DependencyRESTManipulator
             logger.debug( "Project GA and Dependencies are " + localDeps );
         }
 
-        // Call the REST to populate the result.
-        restResult = (Map<ProjectVersionRef, String>) load ( state, session );
+        // Call the REST in the background to populate the result, so that the remaining manipulators can scan while
+        // it is in flight. It is only waited for where the result is needed.
+        final List<ProjectVersionRef> projectKeys = new ArrayList<ProjectVersionRef>( projects.size() );
+        for ( final Project p : projects )
+        {
+            projectKeys.add( p.getKey() );
+        }
+
+        createEndpoint( state );
 
-        // Parse the rest result for the project GAs and store them in versioning state for use
-        // there by incremental suffix calculation.
+        final FutureTask<Map<ProjectVersionRef, String>> translation =
+            new FutureTask<Map<ProjectVersionRef, String>>( new Callable<Map<ProjectVersionRef, String>>()
+            {
+                @Override
+                public Map<ProjectVersionRef, String> call()
+                    throws ManipulationException
+                {
+                    try
+                    {
+                        return (Map<ProjectVersionRef, String>) load( state, session );
+                    }
+                    catch ( final RestException e )
+                    {
+                        throw new ManipulationException( "REST translation failed: %s", e, e.getMessage() );
+                    }
+                }
+            } );
+        final FutureTask<Map<ProjectRef, Set<String>>> metadata =
+            new FutureTask<Map<ProjectRef, Set<String>>>( new Callable<Map<ProjectRef, Set<String>>>()
+            {
+                @Override
+                public Map<ProjectRef, Set<String>> call()
+                    throws ManipulationException
+                {
+                    return getVersionStates( projectKeys, FutureUtils.await( translation ) );
+                }
+            } );
+
+        restResult = translation;
+        FutureUtils.submit( "rest-translation", new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                translation.run();
+                metadata.run();
+                return null;
+            }
+        } );
+
+        final VersioningState vs = session.getState( VersioningState.class );
+        vs.setRESTMetadata( metadata );
+    }
+
+    /**
+     * Parse the rest result for the project GAs so that they can be stored in versioning state for use there by
+     * incremental suffix calculation.
+     */
+    private Map<ProjectRef, Set<String>> getVersionStates( List<ProjectVersionRef> projectKeys,
+                                                           Map<ProjectVersionRef, String> restResult )
+    {
         Map<ProjectRef, Set<String>> versionStates = new HashMap<ProjectRef, Set<String>>();
-        for ( final Project p : projects )
+        for ( final ProjectVersionRef key : projectKeys )
         {
-            if ( restResult.containsKey( p.getKey() ) )
+            if ( restResult.containsKey( key ) )
             {
                 // Found part of the current project to store in Versioning State
-                Set<String> versions = versionStates.get( p.getKey().asProjectRef() );
+                Set<String> versions = versionStates.get( key.asProjectRef() );
                 if (versions == null)
                 {
                     versions = new HashSet<String>();
-                    versionStates.put( p.getKey().asProjectRef(), versions );
+                    versionStates.put( key.asProjectRef(), versions );
                 }
-                versions.add( restResult.get( p.getKey() ) );
+                versions.add( restResult.get( key ) );
             }
         }
         logger.debug ("Added the following ProjectRef:Version into VersionState" + versionStates);
-        final VersioningState vs = session.getState( VersioningState.class );
-        vs.setRESTMetadata (versionStates);
+        return versionStates;
     }
 
     /**
@@ -166,16 +298,22 @@ public class DependencyRESTManipulator
             return Collections.emptySet();
         }
 
-        final Map<ArtifactRef, String> overrides = new HashMap<ArtifactRef, String>( );
-
-        // Convert the loaded remote ProjectVersionRefs to the original ArtifactRefs
-        for (ArtifactRef a : localDeps)
+        // Wait for the REST call started during the scan; the connections are not needed once it has completed.
+        final Map<ProjectVersionRef, String> restResult;
+        try
         {
-            if (restResult.containsKey( a.asProjectVersionRef() ))
-            {
-                overrides.put( a, restResult.get( a.asProjectVersionRef()));
-            }
+            restResult = FutureUtils.await( this.restResult );
+        }
+        finally
+        {
+            closeTransport();
         }
+        if ( restResult == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final Map<ArtifactRef, String> overrides = getOverrides( restResult );
 
         logger.debug( "Calling internalApplyChanges with {} ", overrides );
         Set<Project> changed = internalApplyChanges( projects, session, overrides );
@@ -183,22 +321,61 @@ public class DependencyRESTManipulator
         return changed;
     }
 
+    /**
+     * Convert the loaded remote ProjectVersionRefs to the original ArtifactRefs; every type and classifier of a GAV
+     * receives its translation.
+     *
+     * @param restResult the translated versions, keyed by the GAVs sent to the REST service.
+     * @return the version overrides of the local dependencies.
+     */
+    Map<ArtifactRef, String> getOverrides( final Map<ProjectVersionRef, String> restResult )
+    {
+        final Map<ArtifactRef, String> overrides = new HashMap<ArtifactRef, String>( );
+
+        for ( Map.Entry<ProjectVersionRef, Set<ArtifactRef>> entry : localDeps.entrySet() )
+        {
+            final String version = restResult.get( entry.getKey() );
+            if ( version != null )
+            {
+                for ( ArtifactRef a : entry.getValue() )
+                {
+                    overrides.put( a, version );
+                }
+            }
+        }
+        return overrides;
+    }
+
     @Override
     public Map<? extends ProjectRef, String> load ( final State state, final ManipulationSession session )
             throws ManipulationException
     {
-        for ( ArtifactRef p : localDeps)
+        final List<ProjectVersionRef> request = getRESTRequest();
+        logger.debug ("Calling REST client api with {} ", request);
+        final Map<ProjectVersionRef, String> result;
+        if ( restEndpoint instanceof CachingVersionTranslator )
         {
-            restParam.add( p.asProjectVersionRef() );
+            // The project translations seed the next build number, so must always be current.
+            result = ( (CachingVersionTranslator) restEndpoint ).translateVersions( request, projectParam );
+        }
+        else
+        {
+            result = restEndpoint.translateVersions( request );
         }
-
-        logger.debug ("Calling REST client api with {} ", restParam);
-        final Map<ProjectVersionRef, String> result = restEndpoint.translateVersions( restParam );
         logger.debug ("REST Client returned {} ", result);
 
         return result;
     }
 
+    /**
+     * @return the project and dependency GAVs to send to the REST service, without duplicates and in a stable order.
+     */
+    List<ProjectVersionRef> getRESTRequest()
+    {
+        restParam.addAll( localDeps.keySet() );
+        return new ArrayList<ProjectVersionRef>( restParam );
+    }
+
     @Override
     public int getExecutionIndex()
     {
@@ -210,11 +387,12 @@ public class DependencyRESTManipulator
     /**
      * Translate a given set of dependencies into ProjectVersionRefs.
      *
-     * @param projects
-     * @param deps Set of ProjectVersionRef to store the results in.
+     * @param properties the properties of the reactor, to resolve versions with.
+     * @param deps index of ProjectVersionRef to ArtifactRefs to store the results in.
      * @param dependencies dependencies to examine
      */
-    private void recordDependencies( List<Project> projects, Set<ArtifactRef> deps, Iterable<Dependency> dependencies )
+    private void recordDependencies( PropertyIndex properties, Map<ProjectVersionRef, Set<ArtifactRef>> deps,
+                                     Iterable<Dependency> dependencies )
                     throws ManipulationException
     {
         if ( dependencies == null )
@@ -234,49 +412,18 @@ public class DependencyRESTManipulator
             }
             else
             {
-                deps.add( new ArtifactRef( new ProjectVersionRef( d.getGroupId(), d.getArtifactId(),
-                                                                  resolveProperties ( projects, d.getVersion())),
-                                           new TypeAndClassifier( d.getType(), d.getClassifier() ), Boolean.parseBoolean( d.getOptional())));
-            }
-        }
-    }
+                final ProjectVersionRef gav = new ProjectVersionRef( d.getGroupId(), d.getArtifactId(),
+                                                                     properties.interpolate( d.getVersion() ) );
 
-    /**
-     * This recursively checks the supplied version and recursively resolves it if its a property.
-     *
-     * @param projects set of projects
-     * @param version version to check
-     * @return the version string
-     * @throws ManipulationException
-     */
-    private String resolveProperties( List<Project> projects, String version )
-                    throws ManipulationException
-    {
-        String result = version;
-
-        if (version.startsWith( "${" ) )
-        {
-            final int endIndex = version.indexOf( '}' );
-            final String property = version.substring( 2, endIndex );
-
-            if ( endIndex != version.length() - 1 )
-            {
-                throw new ManipulationException( "NYI : handling for versions (" + version
-                                                                 + ") with multiple embedded properties is NYI. " );
-            }
-            for ( Project p : projects)
-            {
-                if ( p.getModel().getProperties().containsKey (property) )
+                Set<ArtifactRef> artifacts = deps.get( gav );
+                if ( artifacts == null )
                 {
-                    result = p.getModel().getProperties().getProperty( property );
-
-                    if ( result.startsWith( "${" ))
-                    {
-                        result = resolveProperties( projects, result );
-                    }
+                    artifacts = new HashSet<ArtifactRef>();
+                    deps.put( gav, artifacts );
                 }
+                artifacts.add( new ArtifactRef( gav, new TypeAndClassifier( d.getType(), d.getClassifier() ),
+                                                Boolean.parseBoolean( d.getOptional() ) ) );
             }
         }
-        return result;
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.impl;
+
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.codehaus.plexus.interpolation.AbstractValueSource;
+import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
+
+/**
+ * Value source for <code>project.*</code> / <code>pom.*</code> expressions (and their unprefixed forms) against a
+ * {@link Model}. The coordinates and the other simple fields which are used in practice are read directly; anything
+ * else falls back to the reflection-based {@link PrefixedObjectValueSource}, which is only created when needed.
+ */
+class ModelValueSource
+    extends AbstractValueSource
+{
+    private final List<String> prefixes;
+
+    private final Model model;
+
+    private PrefixedObjectValueSource fallback;
+
+    ModelValueSource( final List<String> prefixes, final Model model )
+    {
+        super( false );
+        this.prefixes = prefixes;
+        this.model = model;
+    }
+
+    @Override
+    public Object getValue( final String expression )
+    {
+        if ( expression == null )
+        {
+            return null;
+        }
+
+        String field = expression;
+        for ( final String prefix : prefixes )
+        {
+            if ( expression.length() > prefix.length() + 1 && expression.startsWith( prefix )
+                && expression.charAt( prefix.length() ) == '.' )
+            {
+                field = expression.substring( prefix.length() + 1 );
+                break;
+            }
+        }
+
+        final Parent parent = model.getParent();
+        if ( "groupId".equals( field ) )
+        {
+            return model.getGroupId();
+        }
+        else if ( "artifactId".equals( field ) )
+        {
+            return model.getArtifactId();
+        }
+        else if ( "version".equals( field ) )
+        {
+            return model.getVersion();
+        }
+        else if ( "packaging".equals( field ) )
+        {
+            return model.getPackaging();
+        }
+        else if ( "name".equals( field ) )
+        {
+            return model.getName();
+        }
+        else if ( "parent.groupId".equals( field ) )
+        {
+            return parent == null ? null : parent.getGroupId();
+        }
+        else if ( "parent.artifactId".equals( field ) )
+        {
+            return parent == null ? null : parent.getArtifactId();
+        }
+        else if ( "parent.version".equals( field ) )
+        {
+            return parent == null ? null : parent.getVersion();
+        }
+
+        if ( fallback == null )
+        {
+            fallback = new PrefixedObjectValueSource( prefixes, model, true );
+        }
+        return fallback.getValue( expression );
+    }
+}
@@ -20,6 +20,7 @@ import static org.commonjava.maven.ext.manip.util.IdUtils.gav;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,7 +37,6 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.PrefixAwareRecursionInterceptor;
-import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
 import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.StringSearchInterpolator;
@@ -44,6 +44,7 @@ import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.ManipulationSession;
 import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.VersionExpression;
 import org.commonjava.maven.ext.manip.state.VersioningState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +74,13 @@ public class ProjectVersioningManipulator
      */
     protected Map<ProjectVersionRef, String> versionsByGAV;
 
+    /**
+     * The artifactIds of {@link #versionsByGAV}, and the map they were taken from.
+     */
+    private Set<String> versionedArtifactIds;
+
+    private Map<ProjectVersionRef, String> versionedArtifactIdsSource;
+
     protected ProjectVersioningManipulator()
     {
     }
@@ -244,16 +252,7 @@ public class ProjectVersioningManipulator
             bases.addAll( profiles );
         }
 
-        final StringSearchInterpolator interp = new StringSearchInterpolator();
-        if ( model.getProperties() != null )
-        {
-            interp.addValueSource( new PropertiesBasedValueSource( model.getProperties() ) );
-        }
-
-        final List<String> prefixes = Arrays.asList( "pom", "project" );
-        interp.addValueSource( new PrefixedObjectValueSource( prefixes, model, true ) );
-
-        final RecursionInterceptor ri = new PrefixAwareRecursionInterceptor( prefixes, true );
+        final ModelInterpolator interp = new ModelInterpolator( model );
 
         for ( final ModelBase base : bases )
         {
@@ -262,10 +261,7 @@ public class ProjectVersioningManipulator
             {
                 for ( final Dependency d : dm.getDependencies() )
                 {
-                    gav =
-                        new ProjectVersionRef( interpolate( d.getGroupId(), ri, interp ), interpolate( d.getArtifactId(), ri, interp ),
-                             interpolate( d.getVersion(), ri, interp ) );
-                    final String newVersion = versionsByGAV.get( gav );
+                    final String newVersion = getNewVersion( d, interp );
                     if ( newVersion != null )
                     {
                         d.setVersion( newVersion );
@@ -279,10 +275,7 @@ public class ProjectVersioningManipulator
             {
                 for ( final Dependency d : base.getDependencies() )
                 {
-                    gav =
-                        new ProjectVersionRef( interpolate( d.getGroupId(), ri, interp ), interpolate( d.getArtifactId(), ri, interp ),
-                             interpolate( d.getVersion(), ri, interp ) );
-                    final String newVersion = versionsByGAV.get( gav );
+                    final String newVersion = getNewVersion( d, interp );
                     if ( newVersion != null && d.getVersion() != null )
                     {
                         d.setVersion( newVersion );
@@ -302,18 +295,97 @@ public class ProjectVersioningManipulator
     }
 
     /**
-     * Simple wrapper around the plexus-interpolation call to clean up exception translation in the event of an error.
+     * @return the new version of the (interpolated) dependency, or null if it is not being versioned.
      */
-    private String interpolate( final String src, final RecursionInterceptor ri, final StringSearchInterpolator interp )
+    private String getNewVersion( final Dependency d, final ModelInterpolator interp )
         throws ManipulationException
     {
-        try
+        // Only projects in the current build are versioned, so most dependencies can be rejected by their artifactId
+        // without building a GAV.
+        final String artifactId = interp.interpolate( d.getArtifactId() );
+        if ( !getVersionedArtifactIds().contains( artifactId ) )
+        {
+            return null;
+        }
+
+        return versionsByGAV.get( new ProjectVersionRef( interp.interpolate( d.getGroupId() ), artifactId,
+                                                         interp.interpolate( d.getVersion() ) ) );
+    }
+
+    private Set<String> getVersionedArtifactIds()
+    {
+        if ( versionedArtifactIds == null || versionedArtifactIdsSource != versionsByGAV )
+        {
+            versionedArtifactIds = new HashSet<String>();
+            for ( final ProjectVersionRef ref : versionsByGAV.keySet() )
+            {
+                versionedArtifactIds.add( ref.getArtifactId() );
+            }
+            versionedArtifactIdsSource = versionsByGAV;
+        }
+        return versionedArtifactIds;
+    }
+
+    /**
+     * Interpolates values against a single model. Literal values are returned as they are, and the plexus-interpolation
+     * machinery is only set up once a value containing an expression is found. Results are cached, as the same few
+     * expressions (e.g. <code>${project.version}</code>) are typically used by many dependencies.
+     */
+    private static final class ModelInterpolator
+    {
+        private final Model model;
+
+        private final Map<String, String> cache = new HashMap<String, String>();
+
+        private StringSearchInterpolator interp;
+
+        private RecursionInterceptor ri;
+
+        private ModelInterpolator( final Model model )
         {
-            return interp.interpolate( src, ri );
+            this.model = model;
         }
-        catch ( final InterpolationException e )
+
+        /**
+         * Simple wrapper around the plexus-interpolation call to clean up exception translation in the event of an
+         * error.
+         */
+        private String interpolate( final String src )
+            throws ManipulationException
         {
-            throw new ManipulationException( "Failed to interpolate: %s. Reason: %s", e, src, e.getMessage() );
+            if ( src == null || VersionExpression.compile( src ).isLiteral() )
+            {
+                return src;
+            }
+
+            String result = cache.get( src );
+            if ( result == null )
+            {
+                if ( interp == null )
+                {
+                    interp = new StringSearchInterpolator();
+                    if ( model.getProperties() != null )
+                    {
+                        interp.addValueSource( new PropertiesBasedValueSource( model.getProperties() ) );
+                    }
+
+                    final List<String> prefixes = Arrays.asList( "pom", "project" );
+                    interp.addValueSource( new ModelValueSource( prefixes, model ) );
+
+                    ri = new PrefixAwareRecursionInterceptor( prefixes, true );
+                }
+
+                try
+                {
+                    result = interp.interpolate( src, ri );
+                }
+                catch ( final InterpolationException e )
+                {
+                    throw new ManipulationException( "Failed to interpolate: %s. Reason: %s", e, src, e.getMessage() );
+                }
+                cache.put( src, result );
+            }
+            return result;
         }
     }
 
@@ -19,19 +19,18 @@ import static org.commonjava.maven.ext.manip.util.IdUtils.ga;
 
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Properties;
 import java.util.Set;
 
-import org.apache.maven.model.Model;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.io.ModelIO;
 import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.PropertyIndex;
 import org.commonjava.maven.ext.manip.ManipulationSession;
 import org.commonjava.maven.ext.manip.state.PropertyState;
 import org.slf4j.Logger;
@@ -84,40 +83,35 @@ public class PropertyManipulator
         final Properties overrides = loadRemotePOMProperties( state.getRemotePropertyMgmt(), session );
         final Set<Project> changed = new HashSet<Project>();
 
-        for ( final Project project : projects )
+        if ( overrides.size() > 0 )
         {
-            final Model model = project.getModel();
+            // Index the existing definitions before the new properties are injected.
+            final PropertyIndex properties = new PropertyIndex( projects );
 
-            if ( overrides.size() > 0 )
+            for ( final Project project : projects )
             {
                 // Only inject the new properties at the top level.
                 if ( project.isInheritanceRoot() )
                 {
                     logger.info( "Applying property changes to: " + ga( project ) + " with " + overrides );
 
-                    model.getProperties().putAll( overrides );
+                    project.getModel().getProperties().putAll( overrides );
 
                     changed.add( project );
                 }
-                else
-                {
-                    // For any matching property that exists in the current project overwrite that value.
-                    @SuppressWarnings( { "unchecked", "rawtypes" } )
-                    final
-                    Set<String> keyClone = new HashSet(model.getProperties().keySet());
-                    keyClone.retainAll( overrides.keySet() );
+            }
 
-                    if ( keyClone.size() > 0 )
+            // For any matching property that exists in the other projects overwrite that value.
+            for ( final String matchingKey : overrides.stringPropertyNames() )
+            {
+                for ( final Project project : properties.getDefiningProjects( matchingKey ) )
+                {
+                    if ( !project.isInheritanceRoot() )
                     {
-                        final Iterator<String> keys = keyClone.iterator();
-                        while (keys.hasNext())
-                        {
-                            final String matchingKey = keys.next();
-                            logger.info( "Overwriting property (" + matchingKey + " in: " + ga( project ) + " with value " + overrides.get( matchingKey ) );
-                            model.getProperties().put( matchingKey, overrides.get( matchingKey ) );
-
-                            changed.add( project );
-                        }
+                        logger.info( "Overwriting property (" + matchingKey + " in: " + ga( project ) + " with value " + overrides.get( matchingKey ) );
+                        properties.setProperty( project, matchingKey, overrides.getProperty( matchingKey ) );
+
+                        changed.add( project );
                     }
                 }
             }
@@ -15,10 +15,9 @@
  */
 package org.commonjava.maven.ext.manip.impl;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -33,64 +32,55 @@ import org.slf4j.LoggerFactory;
 public class Version
 {
 
-    private final static Character[] DEFAULT_DELIMITERS = { '.', '-', '_' };
-
     private final static char OSGI_VERSION_DELIMITER = '.';
 
-    /**
-     * Regular expression used to match version string delimiters
-     */
-    private final static String DELIMITER_REGEX = "[\\.\\-_]?";
-
-    /**
-     * Regular expression used to match the major, minor, and micro versions
-     */
-    private final static String MMM_REGEX = "(\\d+)(" + DELIMITER_REGEX + "(\\d+)?(" + DELIMITER_REGEX + "(\\d+)?)?)?";
-
-    private final static Pattern mmmPattern = Pattern.compile( MMM_REGEX );
-
     private final static String SNAPSHOT_SUFFIX = "SNAPSHOT";
 
-    /**
-     * Regular expression used to match the parts of the qualifier
-     */
-    private final static String QUALIFIER_REGEX = "(.*?)(\\d+)?(" + DELIMITER_REGEX + ")?((?i:" + SNAPSHOT_SUFFIX +
-        "))?$";
-
-    private final static Pattern qualifierPattern = Pattern.compile( QUALIFIER_REGEX );
-
     // Used to match valid osgi version
     private final static String OSGI_VERSION_REGEX = "(\\d+)(\\.\\d+(\\.\\d+([\\.][\\p{Alnum}|\\-|_]+)?)?)?";
 
     private final static Pattern osgiPattern = Pattern.compile( OSGI_VERSION_REGEX );
 
-    private List<Character> versionStringDelimiters = Arrays.asList( DEFAULT_DELIMITERS );
+    /**
+     * Parsed forms of the version strings seen so far. The same versions are parsed repeatedly (for the reactor,
+     * repository metadata and REST results), so each distinct string is only tokenized once.
+     */
+    private final static ConcurrentMap<String, Components> parsed = new ConcurrentHashMap<String, Components>();
+
+    private final static int MAX_PARSED_SIZE = 16384;
+
+    private final static Logger logger = LoggerFactory.getLogger( Version.class );
 
     /**
      * The original version string before any modifications
      */
     private final String originalVersion;
 
+    /**
+     * The parsed form of the original version string, shared with other instances of the same version.
+     */
+    private final Components components;
+
     /**
      * The original unmodified major, minor, micro portion of the version string.
      */
-    private String originalMMM;
+    private final String originalMMM;
 
-    private String majorVersion;
+    private final String majorVersion;
 
-    private String minorVersion;
+    private final String minorVersion;
 
-    private String microVersion;
+    private final String microVersion;
 
     /**
      * The original unmodified version qualifier. Will be null if no qualifier is included.
      */
-    private String originalQualifier;
+    private final String originalQualifier;
 
     /**
      * The original delimiter between the MMM and the qualifier.
      */
-    private String originalMMMDelimiter = "";
+    private final String originalMMMDelimiter;
 
     /**
      * The current qualifier, after any modifications such as suffix or build number changes have been made.
@@ -106,53 +96,188 @@ public class Version
 
     private String snapshot;
 
-    private final Logger logger = LoggerFactory.getLogger( getClass() );
-
     /**
      * Represents whether the major, minor, micro versions are valid integers. This will be false if the version string
      * uses a property string like "${myVersion}-build-1" or if the version string starts with alpha chars like
      * "GA-1-Beta". In these cases we can't parse the major, minor, micro versions, so we just leave the string intact.
      */
-    private boolean numericVersion = true;
+    private final boolean numericVersion;
 
     public Version( String version )
     {
         originalVersion = version;
-        logger.debug( "Parsing version: " + originalVersion );
-        parseVersion( originalVersion );
-        logger.debug( "Major: " + getMajorVersion() + ", Minor: " + getMinorVersion() + ",  Micro: " +
-            getMicroVersion() );
-        logger.debug( "Qualifier: " + getQualifier() + ", Base: " + getQualifierBase() + ", BuildNum: " +
-            getBuildNumber() );
+        components = parse( version );
+
+        originalMMM = components.originalMMM;
+        originalMMMDelimiter = components.originalMMMDelimiter;
+        originalQualifier = components.originalQualifier;
+        majorVersion = components.majorVersion;
+        minorVersion = components.minorVersion;
+        microVersion = components.microVersion;
+        numericVersion = components.numericVersion;
+
+        qualifier = originalQualifier;
+        qualifierBase = components.qualifierBase;
+        buildNumber = components.buildNumber;
+        snapshot = components.snapshot;
+
+        if ( logger.isDebugEnabled() )
+        {
+            logger.debug( "Parsed version: {}", originalVersion );
+            logger.debug( "Major: {}, Minor: {}, Micro: {}", getMajorVersion(), getMinorVersion(), getMicroVersion() );
+            logger.debug( "Qualifier: {}, Base: {}, BuildNum: {}", getQualifier(), getQualifierBase(),
+                          getBuildNumber() );
+        }
     }
 
     /**
-     * Parse a version string into its component parts (major, minor, micro, qualifier). By default will split the
-     * String based on ".", "-", and "_".
+     * Get the parsed form of a version string, parsing it if it has not been seen before.
      *
-     * @param version
-     * @return
+     * @param version the version string
+     * @return the immutable components of the version
      */
-    private final void parseVersion( String version )
+    static Components parse( String version )
     {
-        int qualifierIndex = getQualifierIndex( version );
+        Components result = parsed.get( version );
+        if ( result == null )
+        {
+            if ( parsed.size() >= MAX_PARSED_SIZE )
+            {
+                parsed.clear();
+            }
+            result = new Components( version );
+            parsed.put( version, result );
+        }
+        return result;
+    }
 
-        // Check for a delimiter between the MMM and the qualifier
-        if ( qualifierIndex > 0 && versionStringDelimiters.contains( version.charAt( qualifierIndex - 1 ) ) )
+    /**
+     * The components of a version string: &lt;major&gt;.&lt;minor&gt;.&lt;micro&gt;
+     * .&lt;qualifierBase&gt;-&lt;buildnumber&gt;-&lt;snapshot&gt;. Instances are immutable and shared between all
+     * {@link Version}s of the same string.
+     */
+    static final class Components
+    {
+        private final String originalMMM;
+
+        private final String originalMMMDelimiter;
+
+        private final String originalQualifier;
+
+        private final String majorVersion;
+
+        private final String minorVersion;
+
+        private final String microVersion;
+
+        private final boolean numericVersion;
+
+        private final String qualifierBase;
+
+        private final String buildNumber;
+
+        private final String snapshot;
+
+        private Boolean validOSGi;
+
+        /**
+         * Parse a version string into its component parts (major, minor, micro, qualifier). Splits the String based
+         * on ".", "-", and "_".
+         */
+        private Components( String version )
         {
-            originalMMMDelimiter = Character.toString( version.charAt( qualifierIndex - 1 ) );
-            originalMMM = version.substring( 0, qualifierIndex - 1 );
+            int qualifierIndex = getQualifierIndex( version );
+
+            // Check for a delimiter between the MMM and the qualifier
+            if ( qualifierIndex > 0 && isDelimiter( version.charAt( qualifierIndex - 1 ) ) )
+            {
+                originalMMMDelimiter = Character.toString( version.charAt( qualifierIndex - 1 ) );
+                originalMMM = version.substring( 0, qualifierIndex - 1 );
+            }
+            else
+            {
+                originalMMMDelimiter = "";
+                originalMMM = version.substring( 0, qualifierIndex );
+            }
+
+            originalQualifier = version.substring( qualifierIndex );
+
+            // Parse the mmm (major, minor, micro) portions of the version string, defaulting to "0" for any missing
+            // versions. The MMM consists of digits and at most two delimiters.
+            int pos = skipDigits( originalMMM, 0 );
+            numericVersion = pos > 0;
+            majorVersion = numericVersion ? originalMMM.substring( 0, pos ) : "0";
+            if ( numericVersion && pos < originalMMM.length() && isDelimiter( originalMMM.charAt( pos ) ) )
+            {
+                pos++;
+            }
+            int start = pos;
+            pos = skipDigits( originalMMM, pos );
+            minorVersion = numericVersion && pos > start ? originalMMM.substring( start, pos ) : "0";
+            if ( numericVersion && pos < originalMMM.length() && isDelimiter( originalMMM.charAt( pos ) ) )
+            {
+                pos++;
+            }
+            start = pos;
+            pos = skipDigits( originalMMM, pos );
+            microVersion = numericVersion && pos > start ? originalMMM.substring( start, pos ) : "0";
+
+            if ( isEmpty( originalQualifier ) )
+            {
+                qualifierBase = null;
+                buildNumber = null;
+                snapshot = null;
+            }
+            else
+            {
+                final String[] parts = parseQualifier( originalQualifier );
+                qualifierBase = parts[0];
+                buildNumber = parts[1];
+                snapshot = parts[2];
+            }
         }
-        else
+
+        String getNormalizedMMM()
         {
-            originalMMM = version.substring( 0, qualifierIndex );
+            if ( !numericVersion )
+            {
+                return "";
+            }
+            else if ( !"0".equals( microVersion ) )
+            {
+                return majorVersion + OSGI_VERSION_DELIMITER + minorVersion + OSGI_VERSION_DELIMITER + microVersion;
+            }
+            else if ( !"0".equals( minorVersion ) )
+            {
+                return majorVersion + OSGI_VERSION_DELIMITER + minorVersion;
+            }
+            return majorVersion;
         }
 
-        originalQualifier = version.substring( qualifierIndex );
-        qualifier = originalQualifier;
+        String getNormalizedQualifierBase()
+        {
+            return normalizeQualifierBase( qualifierBase );
+        }
 
-        parseMMM( originalMMM );
-        parseQualifier( originalQualifier );
+        String getBuildNumber()
+        {
+            return buildNumber;
+        }
+
+        boolean isSnapshot()
+        {
+            return SNAPSHOT_SUFFIX.equalsIgnoreCase( snapshot );
+        }
+
+        private boolean isValidOSGi( String version )
+        {
+            // Benign race; the result is always the same.
+            if ( validOSGi == null )
+            {
+                validOSGi = osgiPattern.matcher( version ).matches();
+            }
+            return validOSGi;
+        }
     }
 
     /**
@@ -162,7 +287,7 @@ public class Version
      * @param version
      * @return index of the start of the qualifier (version.length() if no qualifier was found)
      */
-    private int getQualifierIndex( String version )
+    private static int getQualifierIndex( String version )
     {
         final int QUALIFIER_NOT_FOUND = version.length();
 
@@ -170,11 +295,11 @@ public class Version
         int delimiterCount = 0;
         while ( qualifierIndex < version.length() )
         {
-            if ( versionStringDelimiters.contains( version.charAt( qualifierIndex ) ) )
+            if ( isDelimiter( version.charAt( qualifierIndex ) ) )
             {
                 ++delimiterCount;
             }
-            else if ( !isNumeric( Character.toString( version.charAt( qualifierIndex ) ) ) )
+            else if ( !Character.isDigit( version.charAt( qualifierIndex ) ) )
             {
                 return qualifierIndex;
             }
@@ -190,58 +315,60 @@ public class Version
     }
 
     /**
-     * Parse the mmm (major, minor, micro) portions of the version string
+     * Parses the qualifier into the format &gt;qualifierBase&lt;-&gt;buildnumber&lt;-&gt;snapshot&lt;, working back
+     * from the end of the qualifier: an optional "SNAPSHOT" (in any case), an optional delimiter, then any digits.
      *
-     * @param mmm The numeric portion of the version string before the qualifier
+     * @param qualifier
+     * @return the qualifier base, build number (or null) and snapshot suffix (or null).
      */
-    private void parseMMM( String mmm )
+    private static String[] parseQualifier( String qualifier )
     {
-        // Default to "0" for any missing versions
-        majorVersion = "0";
-        minorVersion = "0";
-        microVersion = "0";
+        int end = qualifier.length();
 
-        if ( isEmpty( mmm ) )
+        String snapshot = null;
+        if ( qualifier.regionMatches( true, end - SNAPSHOT_SUFFIX.length(), SNAPSHOT_SUFFIX, 0,
+                                      SNAPSHOT_SUFFIX.length() ) )
         {
-            numericVersion = false;
-            return;
+            end -= SNAPSHOT_SUFFIX.length();
+            snapshot = qualifier.substring( end );
         }
 
-        Matcher mmmMatcher = mmmPattern.matcher( mmm );
-        mmmMatcher.matches();
-
-        majorVersion = mmmMatcher.group( 1 );
-        String minor = mmmMatcher.group( 3 );
-        if ( !isEmpty( minor ) )
+        if ( end > 0 && isDelimiter( qualifier.charAt( end - 1 ) ) )
         {
-            minorVersion = minor;
+            end--;
         }
-        String micro = mmmMatcher.group( 5 );
-        if ( !isEmpty( micro ) )
+
+        final int buildNumberEnd = end;
+        while ( end > 0 && isAsciiDigit( qualifier.charAt( end - 1 ) ) )
         {
-            microVersion = micro;
+            end--;
         }
+        final String buildNumber = end < buildNumberEnd ? qualifier.substring( end, buildNumberEnd ) : null;
+
+        return new String[] { qualifier.substring( 0, end ), buildNumber, snapshot };
     }
 
-    /**
-     * Parses the qualifier into the format &gt;qualifierBase&lt;-&gt;buildnumber&lt;-&gt;snapshot&lt;.
-     *
-     * @param qualifier
-     */
-    private void parseQualifier( String qualifier )
+    private static int skipDigits( String string, int pos )
     {
-        if ( isEmpty( qualifier ) )
+        while ( pos < string.length() && isAsciiDigit( string.charAt( pos ) ) )
         {
-            return;
+            pos++;
         }
+        return pos;
+    }
 
-        Matcher qualifierMatcher = qualifierPattern.matcher( qualifier );
-
-        qualifierMatcher.matches();
+    private static boolean isAsciiDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
 
-        qualifierBase = qualifierMatcher.group( 1 );
-        buildNumber = qualifierMatcher.group( 2 );
-        snapshot = qualifierMatcher.group( 4 );
+    /**
+     * @param c a character
+     * @return whether the character is one of the version string delimiters ".", "-" and "_".
+     */
+    private static boolean isDelimiter( char c )
+    {
+        return c == '.' || c == '-' || c == '_';
     }
 
     /**
@@ -250,17 +377,17 @@ public class Version
      * @param partialVersionString
      * @return
      */
-    private String removeLastDelimiters( String partialVersionString )
+    private static String removeLastDelimiters( String partialVersionString )
     {
         while ( !isEmpty( partialVersionString ) &&
-            versionStringDelimiters.contains( partialVersionString.charAt( partialVersionString.length() - 1 ) ) )
+            isDelimiter( partialVersionString.charAt( partialVersionString.length() - 1 ) ) )
         {
             partialVersionString = partialVersionString.substring( 0, partialVersionString.length() - 1 );
         }
         return partialVersionString;
     }
 
-    private boolean isEmpty( String string )
+    private static boolean isEmpty( String string )
     {
         if ( string == null )
         {
@@ -281,9 +408,9 @@ public class Version
      */
     public static boolean isNumeric( String str )
     {
-        for ( char c : str.toCharArray() )
+        for ( int i = 0; i < str.length(); i++ )
         {
-            if ( !Character.isDigit( c ) )
+            if ( !Character.isDigit( str.charAt( i ) ) )
                 return false;
         }
         return true;
@@ -296,8 +423,7 @@ public class Version
      */
     public boolean isValidOSGi()
     {
-        Matcher osgiMatcher = osgiPattern.matcher( originalVersion );
-        return osgiMatcher.matches();
+        return components.isValidOSGi( originalVersion );
     }
 
     public String getMajorVersion()
@@ -337,7 +463,7 @@ public class Version
         {
             updatedQualifier.append( getQualifierBase() );
             if ( ( !isEmpty( getBuildNumber() ) || isSnapshot() ) &&
-                !versionStringDelimiters.contains( getQualifierBase().charAt( getQualifierBase().length() - 1 ) ) )
+                !isDelimiter( getQualifierBase().charAt( getQualifierBase().length() - 1 ) ) )
             {
                 updatedQualifier.append( '-' );
             }
@@ -406,7 +532,7 @@ public class Version
             return getQualifier();
         }
 
-        StringBuffer versionString = new StringBuffer();
+        StringBuilder versionString = new StringBuilder();
         versionString.append( originalMMM );
         if ( isEmpty( originalMMMDelimiter ) )
         {
@@ -451,7 +577,7 @@ public class Version
      */
     private String getThreePartMMM()
     {
-        StringBuffer mmm = new StringBuffer();
+        StringBuilder mmm = new StringBuilder();
         mmm.append( getMajorVersion() );
         if ( !isEmpty( getMinorVersion() ) )
         {
@@ -514,19 +640,12 @@ public class Version
             return;
         }
 
-        logger.debug( "Applying suffix: " + suffix + " to version " + getVersionString() );
-        Matcher suffixMatcher = qualifierPattern.matcher( suffix );
-        if ( !suffixMatcher.matches() )
-        {
-            return;
-        }
-
-        String suffixBase = suffixMatcher.group( 1 );
-        String buildNumber = suffixMatcher.group( 2 );
-        String snapshot = suffixMatcher.group( 4 );
+        logger.debug( "Applying suffix: {} to version {}", suffix, getVersionString() );
 
-        String suffixBaseNoDelim = this.removeLastDelimiters( suffixBase );
-        String suffixMatchRegex = "(.*?)(" + Pattern.quote( suffixBaseNoDelim ) + ")(" + DELIMITER_REGEX + ")";
+        final String[] suffixParts = parseQualifier( suffix );
+        String suffixBase = suffixParts[0];
+        String buildNumber = suffixParts[1];
+        String snapshot = suffixParts[2];
 
         String oldQualifierBase = getQualifierBase();
         if ( isEmpty( getQualifier() ) )
@@ -534,7 +653,7 @@ public class Version
             qualifierBase = suffixBase;
         }
         // Check if the new suffix matches the existing qualifier
-        else if ( !Pattern.matches( suffixMatchRegex, oldQualifierBase ) )
+        else if ( !endsWithSuffix( oldQualifierBase, removeLastDelimiters( suffixBase ) ) )
         {
             String newQualifierBase = oldQualifierBase;
             // If the suffix doesn't match, and there is an existing build number
@@ -546,7 +665,7 @@ public class Version
                 this.buildNumber = null;
             }
             if ( !isEmpty( newQualifierBase ) &&
-                !versionStringDelimiters.contains( newQualifierBase.charAt( newQualifierBase.length() - 1 ) ) )
+                !isDelimiter( newQualifierBase.charAt( newQualifierBase.length() - 1 ) ) )
             {
                 newQualifierBase += "-";
             }
@@ -565,7 +684,24 @@ public class Version
         }
 
         updateQualifier();
-        logger.debug( "New version string: " + getVersionString() );
+        logger.debug( "New version string: {}", getVersionString() );
+    }
+
+    /**
+     * @param qualifierBase an existing qualifier base
+     * @param suffix a suffix without trailing delimiters
+     * @return whether the qualifier base ends with the suffix, optionally followed by a single delimiter.
+     */
+    private static boolean endsWithSuffix( String qualifierBase, String suffix )
+    {
+        if ( qualifierBase == null )
+        {
+            return suffix.length() == 0;
+        }
+        final int end = qualifierBase.length();
+        return qualifierBase.endsWith( suffix ) ||
+            ( end > 0 && isDelimiter( qualifierBase.charAt( end - 1 ) ) &&
+                qualifierBase.regionMatches( end - 1 - suffix.length(), suffix, 0, suffix.length() ) );
     }
 
     /**
@@ -608,43 +744,39 @@ public class Version
      * @param version the Version object to use.
      * @param versionSet a collection of versions to compare to.
      * @return the highest build number, or 0 if no matching build numbers are found.
+     * @see VersionIndex
      */
     public int findHighestMatchingBuildNumber( Version version, Set<String> versionSet )
     {
-        int highestBuildNum = 0;
+        return new VersionIndex( versionSet ).findHighestMatchingBuildNumber( version );
+    }
 
-        // Build version pattern regex, matches something like "<mmm>.<qualifier>.<buildnum>".
-        StringBuffer versionPatternBuf = new StringBuffer();
-        versionPatternBuf.append( "(" );
-        versionPatternBuf.append( Pattern.quote( getOriginalMMM() ) );
-        versionPatternBuf.append( "(" + DELIMITER_REGEX + "0)*" ); // Match zeros appended to a major only version
-        versionPatternBuf.append( ")?" );
-        versionPatternBuf.append( DELIMITER_REGEX );
-        if ( version.getQualifierBase() != null )
-        {
-            versionPatternBuf.append( Pattern.quote( version.getQualifierBase() ) );
-            versionPatternBuf.append( DELIMITER_REGEX );
-        }
-        versionPatternBuf.append( "(\\d+)" );
-        String candidatePatternStr = versionPatternBuf.toString();
+    /**
+     * Get the major, minor, micro version string without any trailing zero versions, so that zero padded versions
+     * (e.g. "7" and "7.0.0") are equal.
+     *
+     * @return the normalized major/minor/micro version, or an empty string if the version is not numeric.
+     */
+    String getNormalizedMMM()
+    {
+        return components.getNormalizedMMM();
+    }
 
-        logger.debug( "Using pattern: '{}' to find compatible versions from metadata.", candidatePatternStr );
-        final Pattern candidateSuffixPattern = Pattern.compile( candidatePatternStr );
+    /**
+     * Get the qualifier base without the delimiter separating it from the build number, so that e.g. the base of
+     * "Final-foo-1" equals that of "Final-foo".
+     *
+     * @return the normalized qualifier base, or an empty string if there is none.
+     */
+    String getNormalizedQualifierBase()
+    {
+        return normalizeQualifierBase( getQualifierBase() );
+    }
 
-        for ( final String compareVersion : versionSet )
-        {
-            final Matcher candidateSuffixMatcher = candidateSuffixPattern.matcher( compareVersion );
-            if ( candidateSuffixMatcher.matches() )
-            {
-                String buildNumberStr = candidateSuffixMatcher.group( 3 );
-                int compareBuildNum = Integer.parseInt( buildNumberStr );
-                if ( compareBuildNum > highestBuildNum )
-                {
-                    highestBuildNum = compareBuildNum;
-                }
-            }
-        }
-        return highestBuildNum;
+    private static String normalizeQualifierBase( String qualifierBase )
+    {
+        final String base = removeLastDelimiters( qualifierBase );
+        return base == null ? "" : base;
     }
 
     /**
@@ -654,7 +786,7 @@ public class Version
      */
     public int getIntegerBuildNumber()
     {
-        if ( this.isEmpty( buildNumber ) )
+        if ( isEmpty( buildNumber ) )
         {
             return 0;
         }
@@ -664,7 +796,7 @@ public class Version
     @Override
     public String toString()
     {
-        StringBuffer buffer = new StringBuffer();
+        StringBuilder buffer = new StringBuilder();
         buffer.append( "Version: " );
         buffer.append( getVersionString() );
         buffer.append( ", OSGi Version: " );
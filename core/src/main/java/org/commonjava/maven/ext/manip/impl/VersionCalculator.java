@@ -16,11 +16,11 @@
 package org.commonjava.maven.ext.manip.impl;
 
 import static org.commonjava.maven.ext.manip.util.IdUtils.gav;
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getIntegerProperty;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -30,11 +30,11 @@ import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.ManipulationSession;
+import org.commonjava.maven.ext.manip.io.ModelIO;
 import org.commonjava.maven.ext.manip.model.Project;
 import org.commonjava.maven.ext.manip.resolver.GalleyAPIWrapper;
 import org.commonjava.maven.ext.manip.state.VersioningState;
 import org.commonjava.maven.galley.maven.GalleyMavenException;
-import org.commonjava.maven.galley.maven.model.view.meta.MavenMetadataView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,7 +82,9 @@ public class VersionCalculator
         final VersioningState state = session.getState( VersioningState.class );
         final Map<ProjectVersionRef, String> versionsByGAV = new HashMap<ProjectVersionRef, String>();
         final Map<ProjectVersionRef, Version> versionObjsByGAV = new HashMap<ProjectVersionRef, Version>();
-        final Set<String> versionSet = new HashSet<String>();
+        final VersionIndex versionIndex = new VersionIndex();
+
+        prefetchMetadataVersions( projects, session );
 
         for ( final Project project : projects )
         {
@@ -104,7 +106,7 @@ public class VersionCalculator
 
             if ( modifiedVersion.hasBuildNumber() )
             {
-                versionSet.add( modifiedVersionString );
+                versionIndex.add( modifiedVersionString );
             }
         }
 
@@ -117,7 +119,7 @@ public class VersionCalculator
 
             final Version modifiedVersion = versionObjsByGAV.get( project.getKey() );
 
-            int buildNumber = modifiedVersion.findHighestMatchingBuildNumber( modifiedVersion, versionSet );
+            int buildNumber = versionIndex.findHighestMatchingBuildNumber( modifiedVersion );
 
             // If the buildNumber is greater than zero, it means we found a match and have to
             // set the build number to avoid version conflicts.
@@ -135,7 +137,7 @@ public class VersionCalculator
                 modifiedVersionString = modifiedVersion.getVersionString();
             }
 
-            versionSet.add( modifiedVersionString );
+            versionIndex.add( modifiedVersionString );
             logger.debug( gav( project ) + " has updated version: {}. Marking for rewrite.", modifiedVersionString );
 
             if ( !originalVersion.equals( modifiedVersionString ) )
@@ -195,25 +197,17 @@ public class VersionCalculator
         {
             // Find matching version strings in the remote repo and increment to the next
             // available version
-            final Set<String> versionCandidates = new HashSet<String>();
-
-            Map<ProjectRef, Set<String>> rm = state.getRESTMetadata();
-            if ( rm != null)
-            {
-                // If the REST Client has prepopulated incremental data use that instead of the examining the repository.
-                if (rm.size() > 0)
-                {
-                    // Use preloaded metadata from remote repository, loaded via a REST Call.
-                    versionCandidates.addAll( rm.get( new ProjectRef( groupId, artifactId ) ) );
-                }
-            }
-            else
+            final ProjectRef ga = new ProjectRef( groupId, artifactId );
+            // Uses the metadata loaded via REST or prefetched from the repository if there is any.
+            VersionIndex versionCandidates = state.getVersionIndex( ga );
+            if ( versionCandidates == null )
             {
                 // Load metadata from local repository
-                versionCandidates.addAll( getMetadataVersions( groupId, artifactId ) );
+                versionCandidates = new VersionIndex( getMetadataVersions( groupId, artifactId ) );
+                state.setVersionIndex( ga, versionCandidates );
             }
             versionObj.appendQualifierSuffix( incrementalSuffix );
-            int highestRemoteBuildNum = versionObj.findHighestMatchingBuildNumber( versionObj, versionCandidates );
+            int highestRemoteBuildNum = versionCandidates.findHighestMatchingBuildNumber( versionObj );
             ++highestRemoteBuildNum;
             if ( highestRemoteBuildNum > versionObj.getIntegerBuildNumber() )
             {
@@ -228,6 +222,50 @@ public class VersionCalculator
         return versionObj;
     }
 
+    /**
+     * When incremental versions are calculated from repository metadata, fetch the metadata of all the projects in a
+     * single concurrent batch, rather than one project and repository at a time as each version is calculated. The
+     * versions are recorded in the {@link VersioningState}; projects whose metadata could not be prefetched are read
+     * individually by {@link #getMetadataVersions(String, String)}.
+     *
+     * @param projects the projects whose versions will be calculated.
+     * @param session the container session.
+     * @throws ManipulationException if an error occurs.
+     */
+    private void prefetchMetadataVersions( final Collection<Project> projects, final ManipulationSession session )
+        throws ManipulationException
+    {
+        final VersioningState state = session.getState( VersioningState.class );
+        if ( state.getSuffix() != null || state.getIncrementalSerialSuffix() == null
+            || state.getRESTMetadata() != null )
+        {
+            return;
+        }
+
+        final int threads = getIntegerProperty( session.getUserProperties(), ModelIO.PREFETCH_THREADS_PROPERTY,
+                                                ModelIO.DEFAULT_PREFETCH_THREADS, 1 );
+        if ( threads <= 1 )
+        {
+            return;
+        }
+
+        final Set<ProjectRef> refs = new LinkedHashSet<ProjectRef>();
+        for ( final Project project : projects )
+        {
+            refs.add( new ProjectRef( project.getGroupId(), project.getArtifactId() ) );
+        }
+
+        logger.debug( "Prefetching repository metadata for {}", refs );
+        try
+        {
+            state.setRepositoryMetadata( readerWrapper.readMetadataVersions( refs, threads ) );
+        }
+        catch ( final GalleyMavenException e )
+        {
+            logger.debug( "Prefetch of repository metadata failed: {}", e.getMessage() );
+        }
+    }
+
     /**
      * Accumulate all available versions for a given GAV from all available repositories.
      * @param groupId the groupId to search for
@@ -242,13 +280,7 @@ public class VersionCalculator
 
         try
         {
-            final MavenMetadataView metadataView =
-                readerWrapper.readMetadataView( new ProjectRef( groupId, artifactId ) );
-
-            final List<String> versions =
-                metadataView.resolveXPathToAggregatedStringList( "/metadata/versioning/versions/version", true, -1 );
-
-            return new HashSet<String>( versions );
+            return readerWrapper.readMetadataVersions( new ProjectRef( groupId, artifactId ) );
         }
         catch ( final GalleyMavenException e )
         {
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the highest build number for each combination of major/minor/micro version and qualifier base in a set of
+ * versions, e.g. "1.2.0.Final-foo-1" and "1.2.Final-foo-3" both count towards "1.2" / "Final-foo". Zero padded
+ * versions ("7" and "7.0.0") share an entry. Versions without a build number, and snapshots, are ignored.
+ * <p>
+ * Adding a version updates the index incrementally, so that a set of versions which grows while versions are being
+ * calculated (as in {@link VersionCalculator#calculateVersioningChanges}) can be searched without rescanning it.
+ * </p>
+ */
+public class VersionIndex
+{
+    private final Map<String, Map<String, Integer>> buildNumbers = new HashMap<String, Map<String, Integer>>();
+
+    public VersionIndex()
+    {
+    }
+
+    public VersionIndex( final Collection<String> versions )
+    {
+        for ( final String version : versions )
+        {
+            add( version );
+        }
+    }
+
+    /**
+     * @param version the version string to add.
+     */
+    public void add( final String version )
+    {
+        final Version.Components parsed = Version.parse( version );
+        if ( parsed.getBuildNumber() == null || parsed.isSnapshot() )
+        {
+            return;
+        }
+
+        final int buildNumber;
+        try
+        {
+            buildNumber = Integer.parseInt( parsed.getBuildNumber() );
+        }
+        catch ( final NumberFormatException e )
+        {
+            // Too large to be a build number (e.g. a timestamp).
+            return;
+        }
+
+        final String mmm = parsed.getNormalizedMMM();
+        Map<String, Integer> byQualifier = buildNumbers.get( mmm );
+        if ( byQualifier == null )
+        {
+            byQualifier = new HashMap<String, Integer>();
+            buildNumbers.put( mmm, byQualifier );
+        }
+
+        final String qualifierBase = parsed.getNormalizedQualifierBase();
+        final Integer highest = byQualifier.get( qualifierBase );
+        if ( highest == null || buildNumber > highest )
+        {
+            byQualifier.put( qualifierBase, buildNumber );
+        }
+    }
+
+    /**
+     * Versions without a major/minor/micro version (e.g. "Final-foo-3") match any version with the same qualifier base.
+     *
+     * @param version the version to match.
+     * @return the highest build number of the versions matching the given version (ignoring its build number), or 0
+     *         if there are none.
+     */
+    public int findHighestMatchingBuildNumber( final Version version )
+    {
+        final String qualifierBase = version.getNormalizedQualifierBase();
+
+        return Math.max( get( version.getNormalizedMMM(), qualifierBase ), get( "", qualifierBase ) );
+    }
+
+    private int get( final String mmm, final String qualifierBase )
+    {
+        final Map<String, Integer> byQualifier = buildNumbers.get( mmm );
+        final Integer highest = byQualifier == null ? null : byQualifier.get( qualifierBase );
+        return highest == null ? 0 : highest;
+    }
+}
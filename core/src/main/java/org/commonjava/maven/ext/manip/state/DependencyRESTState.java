@@ -16,12 +16,17 @@
 package org.commonjava.maven.ext.manip.state;
 
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.impl.DependencyManipulator;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getIntegerProperty;
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getLongProperty;
+
 /**
  * Captures configuration relating to dependency alignment from the POMs. Used by {@link DependencyManipulator}.
  */
@@ -33,16 +38,123 @@ public class DependencyRESTState extends CommonDependencyState
      */
     public static final String REST_URL = "restEndpoint";
 
+    /**
+     * The maximum number of GAVs to send in a single REST request. Larger lists are split into chunks which are sent
+     * concurrently. Defaults to 0, sending every GAV in one request.
+     * <pre>
+     * <code>-DrestChunkSize=500</code>
+     * </pre>
+     */
+    public static final String REST_CHUNK_SIZE = "restChunkSize";
+
+    /**
+     * The maximum number of chunked REST requests in flight at once. Defaults to 4.
+     */
+    public static final String REST_THREADS = "restThreads";
+
+    /**
+     * The number of times a REST request failing with a server or connection error is retried, backing off
+     * exponentially between attempts. Defaults to 0.
+     */
+    public static final String REST_RETRIES = "restRetries";
+
+    /**
+     * The time in milliseconds allowed for the whole REST translation, including retries. Defaults to 0, no limit.
+     */
+    public static final String REST_DEADLINE = "restDeadline";
+
+    /**
+     * The time in milliseconds allowed to connect to the REST service. Defaults to 10 seconds.
+     */
+    public static final String REST_CONNECT_TIMEOUT = "restConnectTimeout";
+
+    /**
+     * The time in milliseconds the REST service may leave the connection idle while responding. Defaults to 60
+     * seconds.
+     */
+    public static final String REST_READ_TIMEOUT = "restReadTimeout";
+
+    /**
+     * Whether to gzip REST request bodies. Only enable this if the server accepts gzip encoded requests; responses are
+     * always accepted gzipped. Defaults to false.
+     */
+    public static final String REST_COMPRESS = "restCompress";
+
+    /**
+     * Whether to exchange Smile (binary JSON) rather than JSON with the REST service. Only enable this if the server
+     * supports it. Defaults to false.
+     */
+    public static final String REST_SMILE = "restSmile";
+
+    /**
+     * The directory to cache REST translations in. Only GAVs without a current cache entry are sent to the server.
+     * The cache is disabled unless this is set.
+     * <pre>
+     * <code>-DrestCacheDir=/path/to/cache</code>
+     * </pre>
+     */
+    public static final String REST_CACHE_DIR = "restCacheDir";
+
+    /**
+     * The time in seconds a cached REST translation is used for. Defaults to one day.
+     */
+    public static final String REST_CACHE_TTL = "restCacheTTL";
+
+    /**
+     * The time in seconds the absence of a REST translation for a GAV is cached for. Defaults to one hour.
+     */
+    public static final String REST_CACHE_NEGATIVE_TTL = "restCacheNegativeTTL";
+
     private final String restURL;
 
+    private final int restChunkSize;
+
+    private final int restThreads;
+
+    private final int restRetries;
+
+    private final long restDeadline;
+
+    private final int restConnectTimeout;
+
+    private final int restReadTimeout;
+
+    private final boolean restCompress;
+
+    private final boolean restSmile;
+
+    private final File restCacheDir;
+
+    private final long restCacheTTL;
+
+    private final long restCacheNegativeTTL;
+
     private final Map<ProjectVersionRef, String> projectVersionsByGAV = new HashMap<ProjectVersionRef, String>();
 
 
+    /**
+     * @param userProps the user properties to read the configuration from.
+     * @throws ManipulationException if a numeric property is not a number or is out of range.
+     */
     public DependencyRESTState( final Properties userProps )
+        throws ManipulationException
     {
         super (userProps);
 
         restURL = userProps.getProperty( "restURL" );
+        restChunkSize = getIntegerProperty( userProps, REST_CHUNK_SIZE, 0, 0 );
+        restThreads = getIntegerProperty( userProps, REST_THREADS, 4, 1 );
+        restRetries = getIntegerProperty( userProps, REST_RETRIES, 0, 0 );
+        restDeadline = getLongProperty( userProps, REST_DEADLINE, 0, 0 );
+        restConnectTimeout = getIntegerProperty( userProps, REST_CONNECT_TIMEOUT, 10000, 0 );
+        restReadTimeout = getIntegerProperty( userProps, REST_READ_TIMEOUT, 60000, 0 );
+        restCompress = Boolean.parseBoolean( userProps.getProperty( REST_COMPRESS, "false" ) );
+        restSmile = Boolean.parseBoolean( userProps.getProperty( REST_SMILE, "false" ) );
+
+        final String cacheDir = userProps.getProperty( REST_CACHE_DIR );
+        restCacheDir = cacheDir == null || cacheDir.length() == 0 ? null : new File( cacheDir );
+        restCacheTTL = getLongProperty( userProps, REST_CACHE_TTL, 86400, 0 ) * 1000;
+        restCacheNegativeTTL = getLongProperty( userProps, REST_CACHE_NEGATIVE_TTL, 3600, 0 ) * 1000;
     }
 
     /**
@@ -63,4 +175,92 @@ public class DependencyRESTState extends CommonDependencyState
     {
         return restURL;
     }
+
+    /**
+     * @return the maximum number of GAVs per REST request, or 0 for no limit.
+     */
+    public int getRESTChunkSize()
+    {
+        return restChunkSize;
+    }
+
+    /**
+     * @return the maximum number of REST requests in flight at once.
+     */
+    public int getRESTThreads()
+    {
+        return restThreads;
+    }
+
+    /**
+     * @return the number of times a failed REST request is retried.
+     */
+    public int getRESTRetries()
+    {
+        return restRetries;
+    }
+
+    /**
+     * @return the time in milliseconds allowed for the REST translation, or 0 for no limit.
+     */
+    public long getRESTDeadline()
+    {
+        return restDeadline;
+    }
+
+    /**
+     * @return the time in milliseconds allowed to connect to the REST service.
+     */
+    public int getRESTConnectTimeout()
+    {
+        return restConnectTimeout;
+    }
+
+    /**
+     * @return the time in milliseconds the REST service may leave the connection idle while responding.
+     */
+    public int getRESTReadTimeout()
+    {
+        return restReadTimeout;
+    }
+
+    /**
+     * @return whether to gzip REST request bodies.
+     */
+    public boolean isRESTCompress()
+    {
+        return restCompress;
+    }
+
+    /**
+     * @return whether to exchange Smile rather than JSON with the REST service.
+     */
+    public boolean isRESTSmile()
+    {
+        return restSmile;
+    }
+
+    /**
+     * @return the directory to cache REST translations in, or null if caching is disabled.
+     */
+    public File getRESTCacheDir()
+    {
+        return restCacheDir;
+    }
+
+    /**
+     * @return the time in milliseconds a cached REST translation is used for.
+     */
+    public long getRESTCacheTTL()
+    {
+        return restCacheTTL;
+    }
+
+    /**
+     * @return the time in milliseconds the absence of a REST translation is cached for.
+     */
+    public long getRESTCacheNegativeTTL()
+    {
+        return restCacheNegativeTTL;
+    }
 }
@@ -17,12 +17,17 @@ package org.commonjava.maven.ext.manip.state;
 
 import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.impl.ProjectVersioningManipulator;
+import org.commonjava.maven.ext.manip.impl.VersionIndex;
+import org.commonjava.maven.ext.manip.util.FutureUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Captures configuration and changes relating to the projects' versions. Used by {@link ProjectVersioningManipulator}.
@@ -56,7 +61,18 @@ public class VersioningState
     /**
      * Store preprocessed metadata from the REST call in order to use for incremental lookup.
      */
-    private Map<ProjectRef, Set<String>> restMetaData;
+    private Future<Map<ProjectRef, Set<String>>> restMetaData;
+
+    /**
+     * Versions read from the repository metadata of the reactor projects in a single batch, so that they do not each
+     * have to be fetched while the versions are calculated.
+     */
+    private Map<ProjectRef, Set<String>> repositoryMetadata = Collections.emptyMap();
+
+    /**
+     * The build numbers of the available versions of each project, indexed once from the metadata above.
+     */
+    private final Map<ProjectRef, VersionIndex> versionIndexes = new HashMap<ProjectRef, VersionIndex>();
 
     public VersioningState( final Properties userProps )
     {
@@ -122,12 +138,83 @@ public class VersioningState
     }
 
     public void setRESTMetadata( Map<ProjectRef, Set<String>> versionStates )
+    {
+        setRESTMetadata( FutureUtils.completed( versionStates ) );
+    }
+
+    /**
+     * Sets metadata which is still being loaded via REST, so that it is only waited for if it is actually used.
+     *
+     * @param versionStates the metadata being loaded.
+     */
+    public void setRESTMetadata( Future<Map<ProjectRef, Set<String>>> versionStates )
     {
         restMetaData = versionStates;
+        versionIndexes.clear();
     }
 
+    /**
+     * @return the metadata loaded via REST, waiting for it if it is still being loaded; null if there is none.
+     * @throws ManipulationException if loading the metadata failed.
+     */
     public Map<ProjectRef, Set<String>> getRESTMetadata( )
+        throws ManipulationException
+    {
+        return FutureUtils.await( restMetaData );
+    }
+
+    public void setRepositoryMetadata( final Map<ProjectRef, Set<String>> versions )
+    {
+        repositoryMetadata = versions;
+        versionIndexes.clear();
+    }
+
+    /**
+     * @return the prefetched repository metadata versions, keyed by project; projects which were not prefetched are
+     *         absent.
+     */
+    public Map<ProjectRef, Set<String>> getRepositoryMetadata()
+    {
+        return repositoryMetadata;
+    }
+
+    /**
+     * Index the versions of the given project from the REST metadata if there is any, otherwise from the prefetched
+     * repository metadata. Each project's versions are only indexed once.
+     *
+     * @param ga the project to look up.
+     * @return the index of the project's available versions, or null if there is no REST metadata and the project's
+     *         repository metadata was not prefetched.
+     * @throws ManipulationException if loading the REST metadata failed.
+     */
+    public VersionIndex getVersionIndex( final ProjectRef ga )
+        throws ManipulationException
+    {
+        VersionIndex result = versionIndexes.get( ga );
+        if ( result == null )
+        {
+            final Map<ProjectRef, Set<String>> restMetadata = getRESTMetadata();
+            final Set<String> versions = restMetadata != null ? restMetadata.get( ga ) : repositoryMetadata.get( ga );
+            if ( versions == null && restMetadata == null )
+            {
+                return null;
+            }
+
+            result = versions == null ? new VersionIndex() : new VersionIndex( versions );
+            versionIndexes.put( ga, result );
+        }
+        return result;
+    }
+
+    /**
+     * Record the index of versions read individually for a project, for which {@link #getVersionIndex(ProjectRef)}
+     * returned null.
+     *
+     * @param ga the project.
+     * @param index the index of its available versions.
+     */
+    public void setVersionIndex( final ProjectRef ga, final VersionIndex index )
     {
-        return restMetaData;
+        versionIndexes.put( ga, index );
     }
 }
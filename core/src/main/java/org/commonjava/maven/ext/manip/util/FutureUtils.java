@@ -0,0 +1,112 @@
+/**
+ *  Copyright (C) 2015 Red Hat, Inc (jcasey@redhat.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.commonjava.maven.ext.manip.ManipulationException;
+
+/**
+ * Convenience utilities for running work in the background and waiting for its result.
+ */
+public final class FutureUtils
+{
+    private FutureUtils()
+    {
+    }
+
+    /**
+     * Starts the given task on a new daemon thread.
+     *
+     * @param name the name of the thread.
+     * @param task the work to run.
+     * @return a future for the result of the task.
+     */
+    public static <T> Future<T> submit( final String name, final Callable<T> task )
+    {
+        final FutureTask<T> future = new FutureTask<T>( task );
+        final Thread thread = new Thread( future, name );
+        thread.setDaemon( true );
+        thread.start();
+        return future;
+    }
+
+    /**
+     * @param value the value.
+     * @return a future which is already completed with the given value.
+     */
+    public static <T> Future<T> completed( final T value )
+    {
+        final FutureTask<T> future = new FutureTask<T>( new Callable<T>()
+        {
+            @Override
+            public T call()
+            {
+                return value;
+            }
+        } );
+        future.run();
+        return future;
+    }
+
+    /**
+     * Waits for the result of the given future. Unchecked exceptions and {@link ManipulationException}s thrown by the
+     * task are rethrown as they are, so that callers see the same failure as if they had run the task themselves.
+     *
+     * @param future the future to wait for; may be null.
+     * @return the result, or null if the future is null.
+     * @throws ManipulationException if the task failed with a checked exception, or the wait was interrupted.
+     */
+    public static <T> T await( final Future<T> future )
+        throws ManipulationException
+    {
+        if ( future == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread()
+                  .interrupt();
+            throw new ManipulationException( "Interrupted while waiting for a background task", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof ManipulationException )
+            {
+                throw (ManipulationException) cause;
+            }
+            else if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            else if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new ManipulationException( "Background task failed: %s", cause, cause.getMessage() );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+
+/**
+ * Immutable index over a set of ArtifactRef:version overrides, keyed by groupId:artifactId.
+ * <p>
+ * Each override is assigned a position matching the iteration order of the source map, so callers can
+ * record matched / excluded overrides in a {@link java.util.BitSet} rather than copying maps. Multiple
+ * overrides sharing a GA (e.g. differing type or classifier) are returned in source order, preserving
+ * last-wins semantics when they are applied in turn.
+ * </p>
+ */
+public class OverrideIndex
+{
+    private static final int[] NONE = new int[0];
+
+    private final ArtifactRef[] artifacts;
+
+    private final ProjectRef[] projectRefs;
+
+    private final String[] versions;
+
+    private final Map<ProjectRef, int[]> byGA;
+
+    public OverrideIndex( final Map<ArtifactRef, String> overrides )
+    {
+        final int size = overrides.size();
+
+        artifacts = new ArtifactRef[size];
+        projectRefs = new ProjectRef[size];
+        versions = new String[size];
+        byGA = new HashMap<ProjectRef, int[]>( size * 2 );
+
+        int i = 0;
+        for ( final Map.Entry<ArtifactRef, String> entry : overrides.entrySet() )
+        {
+            final ArtifactRef ar = entry.getKey();
+            final ProjectRef ga = ar.asProjectRef();
+
+            artifacts[i] = ar;
+            projectRefs[i] = ga;
+            versions[i] = entry.getValue();
+
+            final int[] existing = byGA.get( ga );
+            if ( existing == null )
+            {
+                byGA.put( ga, new int[] { i } );
+            }
+            else
+            {
+                final int[] extended = new int[existing.length + 1];
+                System.arraycopy( existing, 0, extended, 0, existing.length );
+                extended[existing.length] = i;
+                byGA.put( ga, extended );
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @return the number of overrides held in this index.
+     */
+    public int size()
+    {
+        return artifacts.length;
+    }
+
+    /**
+     * @param ga the groupId:artifactId to look up.
+     * @return the positions of all overrides with the given GA, in source order. Never null.
+     */
+    public int[] lookup( final ProjectRef ga )
+    {
+        final int[] result = byGA.get( ga );
+        return result == null ? NONE : result;
+    }
+
+    /**
+     * @param groupId the groupId to look up.
+     * @param artifactId the artifactId to look up.
+     * @return the positions of all overrides with the given GA, in source order. Never null.
+     */
+    public int[] lookup( final String groupId, final String artifactId )
+    {
+        return lookup( new ProjectRef( groupId, artifactId ) );
+    }
+
+    public ArtifactRef getArtifact( final int index )
+    {
+        return artifacts[index];
+    }
+
+    public ProjectRef getProjectRef( final int index )
+    {
+        return projectRefs[index];
+    }
+
+    public String getVersion( final int index )
+    {
+        return versions[index];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OverrideIndex{" +
+                "size=" + artifacts.length +
+                ", groupArtifacts=" + byGA.size() +
+                '}';
+    }
+}
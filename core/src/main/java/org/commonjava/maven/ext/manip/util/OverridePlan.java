@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled form of the dependency overrides and the <code>dependencyExclusion.*</code> rules, built once per run.
+ * <p>
+ * The rules are of two kinds:
+ * <ul>
+ *   <li>Module-specific: <code>groupId:artifactId@moduleGroupId:moduleArtifactId=[version]</code></li>
+ *   <li>Wildcard: <code>groupId:artifactId@*=[version]</code> (artifactId may itself be '*')</li>
+ * </ul>
+ * An empty value removes the override, a non-empty value force-aligns the dependency (explicit override). Module
+ * specific rules take precedence over wildcard rules. As only the modules named by a module-specific rule differ from
+ * the default, their {@link View}s are computed up front and every other project shares the default view.
+ * </p>
+ */
+public class OverridePlan
+{
+    private static final String WILDCARD = "*";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final OverrideIndex index;
+
+    /**
+     * The overrides active for every module before any exclusion rules are applied.
+     */
+    private final BitSet global;
+
+    private final List<Rule> wildcardRules = new ArrayList<Rule>();
+
+    private final Map<String, List<Rule>> moduleRules = new HashMap<String, List<Rule>>();
+
+    private final Map<String, View> moduleViews = new HashMap<String, View>();
+
+    private final View defaultView;
+
+    /**
+     * @param index the index over all dependency overrides.
+     * @param reactorRefs artifacts built by the current reactor; overrides for these are never applied.
+     * @param exclusions the <code>dependencyExclusion.</code> properties with the prefix removed.
+     * @throws ManipulationException if an exclusion key is malformed.
+     */
+    public OverridePlan( final OverrideIndex index, final Set<ArtifactRef> reactorRefs,
+                         final Map<String, String> exclusions )
+                    throws ManipulationException
+    {
+        this.index = index;
+
+        global = new BitSet( index.size() );
+        for ( int i = 0; i < index.size(); i++ )
+        {
+            if ( !reactorRefs.contains( index.getArtifact( i ) ) )
+            {
+                global.set( i );
+            }
+        }
+
+        for ( final Map.Entry<String, String> entry : exclusions.entrySet() )
+        {
+            final String currentKey = entry.getKey();
+            final String currentValue = entry.getValue();
+
+            logger.debug( "Processing key {} for override with value {}", currentKey, currentValue );
+
+            if ( !currentKey.contains( "@" ) )
+            {
+                logger.debug( "Not an override. Skip." );
+                continue;
+            }
+
+            if ( currentKey.endsWith( "@*" ) )
+            {
+                final String artifactGA = currentKey.substring( 0, currentKey.length() - 2 );
+                wildcardRules.add( new Rule( artifactGA, currentValue ) );
+            }
+            else
+            {
+                final String[] artifactAndModule = currentKey.split( "@" );
+                if ( artifactAndModule.length != 2 )
+                {
+                    throw new ManipulationException( "Invalid format for exclusion key " + currentKey );
+                }
+
+                List<Rule> rules = moduleRules.get( artifactAndModule[1] );
+                if ( rules == null )
+                {
+                    rules = new ArrayList<Rule>();
+                    moduleRules.put( artifactAndModule[1], rules );
+                }
+                rules.add( new Rule( artifactAndModule[0], currentValue ) );
+            }
+        }
+
+        defaultView = compile( null, null );
+        for ( final Map.Entry<String, List<Rule>> entry : moduleRules.entrySet() )
+        {
+            moduleViews.put( entry.getKey(), compile( entry.getKey(), entry.getValue() ) );
+        }
+    }
+
+    public OverrideIndex getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * @param projectGA the groupId:artifactId of the module.
+     * @return the overrides which apply to the given module.
+     */
+    public View getView( final String projectGA )
+    {
+        final View view = moduleViews.get( projectGA );
+        return view == null ? defaultView : view;
+    }
+
+    private View compile( final String moduleGA, final List<Rule> rules )
+    {
+        final WildcardMap explicitOverrides = new WildcardMap();
+        final BitSet active = (BitSet) global.clone();
+
+        // Module-specific rules are processed first so they take precedence over the wildcards.
+        if ( rules != null )
+        {
+            for ( final Rule rule : rules )
+            {
+                if ( rule.isExplicit() )
+                {
+                    explicitOverrides.put( rule.artifact, rule.value );
+                    logger.debug( "Overriding module dependency for {} with {} : {}", moduleGA, rule.artifact,
+                                  rule.value );
+                }
+                else
+                {
+                    clearGA( active, rule.artifact );
+                    logger.debug( "Ignoring module dependency override for {} in {}", rule.artifact, moduleGA );
+                }
+            }
+        }
+
+        for ( final Rule rule : wildcardRules )
+        {
+            if ( explicitOverrides.containsKey( rule.artifact ) )
+            {
+                logger.debug( "For artifact override: {}, current overrides already contain a module-specific version. Skip.",
+                              rule.artifact );
+                continue;
+            }
+
+            // I think this is only used for e.g. dependencyExclusion.groupId:artifactId@*=<explicitVersion>
+            if ( rule.isExplicit() )
+            {
+                explicitOverrides.put( rule.artifact, rule.value );
+            }
+            // If we have a wildcard artifact we want to replace any prior explicit overrides
+            // with this one i.e. this takes precedence.
+            else if ( WILDCARD.equals( rule.artifact.getArtifactId() ) )
+            {
+                final String groupId = rule.artifact.getGroupId();
+                for ( int i = active.nextSetBit( 0 ); i >= 0; i = active.nextSetBit( i + 1 ) )
+                {
+                    if ( groupId.equals( index.getProjectRef( i ).getGroupId() ) )
+                    {
+                        active.clear( i );
+                    }
+                }
+            }
+            else
+            {
+                clearGA( active, rule.artifact );
+            }
+        }
+
+        return new View( active, explicitOverrides );
+    }
+
+    private void clearGA( final BitSet active, final ProjectRef ref )
+    {
+        for ( final int i : index.lookup( ref ) )
+        {
+            active.clear( i );
+        }
+    }
+
+    private static final class Rule
+    {
+        private final ProjectRef artifact;
+
+        private final String value;
+
+        private Rule( final String artifactGA, final String value )
+        {
+            this.artifact = ProjectRef.parse( artifactGA );
+            this.value = value;
+        }
+
+        private boolean isExplicit()
+        {
+            return value != null && value.length() > 0;
+        }
+    }
+
+    /**
+     * The effective overrides for a module: the positions within the {@link OverrideIndex} that apply, plus any
+     * explicit (force-aligned) overrides. Views are shared between modules and must not be modified.
+     */
+    public static final class View
+    {
+        private final BitSet active;
+
+        private final WildcardMap explicitOverrides;
+
+        private View( final BitSet active, final WildcardMap explicitOverrides )
+        {
+            this.active = active;
+            this.explicitOverrides = explicitOverrides;
+        }
+
+        public boolean isActive( final int index )
+        {
+            return active.get( index );
+        }
+
+        public WildcardMap getExplicitOverrides()
+        {
+            return explicitOverrides;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "View{" +
+                    "active=" + active.cardinality() +
+                    ", explicitOverrides=" + explicitOverrides +
+                    '}';
+        }
+    }
+}
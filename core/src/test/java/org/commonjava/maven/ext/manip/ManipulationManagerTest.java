@@ -15,25 +15,57 @@
  */
 package org.commonjava.maven.ext.manip;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.DefaultPlexusContainer;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.commonjava.maven.ext.manip.fixture.PlexusTestRunner;
 import org.commonjava.maven.ext.manip.impl.Manipulator;
+import org.commonjava.maven.ext.manip.io.ModelIO;
+import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.resolver.ExtensionInfrastructure;
+import org.commonjava.maven.ext.manip.resolver.GalleyInfrastructure;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 @RunWith( PlexusTestRunner.class )
 @Component( role = ManipulationManagerTest.class )
 public class ManipulationManagerTest
 {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Requirement
     private Map<String, Manipulator> manipulators;
 
+    @Requirement
+    private ManipulationManager manager;
+
+    @Requirement( role = ExtensionInfrastructure.class, hint = "galley" )
+    private GalleyInfrastructure galley;
+
     @Test
     public void testListManipulators()
     {
@@ -44,4 +76,84 @@ public class ManipulationManagerTest
             assertTrue (entry.getValue().getExecutionIndex() > 0 && entry.getValue().getExecutionIndex() < 100);
         }
     }
+
+    @Test
+    public void testUnmodifiedProjectsAreNotReported()
+        throws Exception
+    {
+        final Project modified = project( "modified" );
+        final Project unmodified = project( "unmodified" );
+        final List<Project> projects = Arrays.asList( modified, unmodified );
+
+        final Manipulator manipulator = new Manipulator()
+        {
+            @Override
+            public void init( final ManipulationSession session )
+            {
+            }
+
+            @Override
+            public void scan( final List<Project> projects, final ManipulationSession session )
+            {
+            }
+
+            @Override
+            public Set<Project> applyChanges( final List<Project> projects, final ManipulationSession session )
+            {
+                modified.getModel()
+                        .setVersion( "1.redhat-1" );
+                // Setting a value to what it already was must not count as a change.
+                unmodified.getModel()
+                          .setVersion( "1" );
+                return new HashSet<Project>( projects );
+            }
+
+            @Override
+            public int getExecutionIndex()
+            {
+                return 1;
+            }
+        };
+
+        final Set<Project> changed = new ManipulationManager().applyManipulations(
+                        Collections.singletonList( manipulator ), projects, new ManipulationSession() );
+
+        assertEquals( Collections.singleton( modified ), changed );
+    }
+
+    @Test
+    public void testInactiveSessionSkipsInfrastructureAndPrefetch()
+        throws Exception
+    {
+        // Each of these would fail the build if the infrastructure were initialised, the remote models prefetched or
+        // the projects parsed.
+        final Properties properties = new Properties();
+        properties.setProperty( GalleyInfrastructure.TRANSFER_CORE_THREADS_PROPERTY, "0" );
+        properties.setProperty( ModelIO.PREFETCH_THREADS_PROPERTY, "0" );
+
+        final MavenExecutionRequest req =
+            new DefaultMavenExecutionRequest().setUserProperties( properties )
+                                              .setPom( new File( folder.getRoot(), "missing/pom.xml" ) );
+        final MavenSession mavenSession =
+            new MavenSession( new DefaultPlexusContainer(), null, req, new DefaultMavenExecutionResult() );
+
+        final ManipulationSession session = new ManipulationSession();
+        session.setMavenSession( mavenSession );
+
+        manager.init( session );
+        manager.scanAndApply( session );
+
+        assertNull( galley.getLocationExpander() );
+        assertNull( session.getProjects() );
+    }
+
+    private Project project( final String artifactId )
+        throws Exception
+    {
+        final String content = "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId><artifactId>"
+                        + artifactId + "</artifactId><version>1</version></project>";
+        final File pom = new File( folder.newFolder( artifactId ), "pom.xml" );
+        FileUtils.writeStringToFile( pom, content );
+        return new Project( pom, new MavenXpp3Reader().read( new StringReader( content ) ) );
+    }
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.impl;
+
+import static org.commonjava.maven.ext.manip.fixture.TestModels.dependency;
+import static org.commonjava.maven.ext.manip.fixture.TestModels.model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.model.Model;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.ext.manip.ManipulationSession;
+import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.state.DependencyState;
+import org.commonjava.maven.ext.manip.state.State;
+import org.junit.Test;
+
+public class CommonDependencyManipulationTest
+{
+    @Test
+    public void testCyclicPropertyChain()
+        throws Exception
+    {
+        final Model model = model( "bar", null );
+        model.getProperties()
+             .setProperty( "version.a", "${version.b}" );
+        model.getProperties()
+             .setProperty( "version.b", "${version.a}" );
+        model.addDependency( dependency( "org.dep", "dep", "${version.a}" ) );
+
+        final Project project = project( model );
+        final Set<Project> changed = apply( project, "1.0.redhat-1" );
+
+        // The cycle cannot be followed, so the property the dependency refers to is replaced instead.
+        assertTrue( changed.contains( project ) );
+        assertEquals( "1.0.redhat-1", model.getProperties()
+                                           .getProperty( "version.a" ) );
+        assertEquals( "${version.a}", model.getProperties()
+                                           .getProperty( "version.b" ) );
+        assertEquals( "${version.a}", model.getDependencies()
+                                           .get( 0 )
+                                           .getVersion() );
+    }
+
+    @Test
+    public void testPropertyChain()
+        throws Exception
+    {
+        final Model model = model( "bar", null );
+        model.getProperties()
+             .setProperty( "version.a", "${version.b}" );
+        model.getProperties()
+             .setProperty( "version.b", "1.0" );
+        model.addDependency( dependency( "org.dep", "dep", "${version.a}" ) );
+
+        apply( project( model ), "1.0.redhat-1" );
+
+        assertEquals( "${version.b}", model.getProperties()
+                                           .getProperty( "version.a" ) );
+        assertEquals( "1.0.redhat-1", model.getProperties()
+                                           .getProperty( "version.b" ) );
+    }
+
+    @Test
+    public void testOverridesOfDuplicateReactorGAsAreIgnored()
+        throws Exception
+    {
+        // Two reactor projects share a GA; neither version may be overridden.
+        final Model consumer = model( "consumer", null );
+        consumer.addDependency( dependency( "org.foo", "dup", "1" ) );
+        final List<Project> projects = Arrays.asList( project( model( "dup", "1", null ) ),
+                                                      project( model( "dup", "2", null ) ), project( consumer ) );
+
+        apply( projects, ArtifactRef.parse( "org.foo:dup:1:jar" ), "1.redhat-1" );
+
+        assertEquals( "1", consumer.getDependencies()
+                                   .get( 0 )
+                                   .getVersion() );
+    }
+
+    private static Set<Project> apply( final Project project, final String version )
+        throws Exception
+    {
+        return apply( Collections.singletonList( project ), ArtifactRef.parse( "org.dep:dep:1.0:jar" ), version );
+    }
+
+    private static Set<Project> apply( final List<Project> projects, final ArtifactRef artifact, final String version )
+        throws Exception
+    {
+        final ManipulationSession session = new ManipulationSession();
+        session.setState( new DependencyState( new Properties() ) );
+        session.setProjects( projects );
+
+        final CommonDependencyManipulation manipulation = new CommonDependencyManipulation()
+        {
+            @Override
+            public Map<? extends ProjectRef, String> load( final State state, final ManipulationSession session )
+            {
+                return Collections.emptyMap();
+            }
+        };
+        return manipulation.internalApplyChanges( projects, session, Collections.singletonMap( artifact, version ) );
+    }
+
+    private static Project project( final Model model )
+        throws Exception
+    {
+        final Project project = new Project( model );
+        project.setInheritanceRoot( true );
+        return project;
+    }
+}
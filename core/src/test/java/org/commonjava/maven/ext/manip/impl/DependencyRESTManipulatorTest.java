@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.impl;
+
+import static org.commonjava.maven.ext.manip.fixture.TestModels.dependency;
+import static org.commonjava.maven.ext.manip.fixture.TestModels.model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.atlas.ident.ref.TypeAndClassifier;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.commonjava.maven.ext.manip.ManipulationSession;
+import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.rest.rule.MockServer;
+import org.commonjava.maven.ext.manip.state.DependencyRESTState;
+import org.commonjava.maven.ext.manip.state.DependencyState;
+import org.commonjava.maven.ext.manip.state.VersioningState;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DependencyRESTManipulatorTest
+{
+    private static final ProjectVersionRef DEP = new ProjectVersionRef( "org.dep", "dep", "1.0" );
+
+    @Rule
+    public MockServer mockServer = new MockServer();
+
+    private Project parent;
+
+    private Project child;
+
+    private List<Project> projects;
+
+    @Before
+    public void before()
+        throws Exception
+    {
+        final Model parentModel = model( "parent", null );
+        parentModel.getProperties()
+                   .setProperty( "version.dep", "1.0" );
+        parentModel.addDependency( dependency( "org.dep", "dep", "${version.dep}" ) );
+        parentModel.addDependency( dependency( "org.dep", "dep", "1.0", "test-jar", null ) );
+        parentModel.setDependencyManagement( new DependencyManagement() );
+        parentModel.getDependencyManagement()
+                   .addDependency( dependency( "org.dep", "dep", "1.0", null, "sources" ) );
+        parentModel.getDependencyManagement()
+                   .addDependency( dependency( "org.abc", "abc", "3.0" ) );
+        parent = new Project( parentModel );
+        parent.setInheritanceRoot( true );
+
+        final Model childModel = model( "child", "parent" );
+        childModel.addDependency( dependency( "org.dep", "dep", "1.0" ) );
+        childModel.addDependency( dependency( "org.dep", "other", null ) );
+        child = new Project( childModel );
+
+        projects = Arrays.asList( child, parent );
+    }
+
+    @Test
+    public void testRequestIsDeduplicatedAndSorted()
+        throws Exception
+    {
+        final ManipulationSession session = session( mockServer.getUrl() );
+        final DependencyRESTManipulator manipulator = new DependencyRESTManipulator();
+
+        manipulator.scan( projects, session );
+        manipulator.applyChanges( projects, session );
+
+        // The GAV shared by the dependencies of both projects is sent once, and versionless dependencies not at all.
+        assertEquals( Arrays.asList( new ProjectVersionRef( "org.abc", "abc", "3.0" ), DEP,
+                                     new ProjectVersionRef( "org.foo", "child", "1" ),
+                                     new ProjectVersionRef( "org.foo", "parent", "1" ) ),
+                      manipulator.getRESTRequest() );
+    }
+
+    @Test
+    public void testEveryArtifactOfAGAVIsOverridden()
+        throws Exception
+    {
+        final ManipulationSession session = session( mockServer.getUrl() );
+        final DependencyRESTManipulator manipulator = new DependencyRESTManipulator();
+
+        manipulator.scan( projects, session );
+        final Set<Project> changed = manipulator.applyChanges( projects, session );
+
+        final Map<ArtifactRef, String> overrides =
+                        manipulator.getOverrides( Collections.singletonMap( DEP, "1.0-redhat-1" ) );
+        assertEquals( new HashSet<ArtifactRef>( Arrays.asList( artifact( "jar", null ), artifact( "test-jar", null ),
+                                                               artifact( "jar", "sources" ) ) ),
+                      overrides.keySet() );
+        assertEquals( Collections.singleton( "1.0-redhat-1" ), new HashSet<String>( overrides.values() ) );
+
+        assertTrue( changed.contains( parent ) );
+        assertEquals( "1.0-redhat-1", parent.getModel()
+                                            .getProperties()
+                                            .getProperty( "version.dep" ) );
+        assertEquals( "1.0-redhat-1", parent.getModel()
+                                            .getDependencies()
+                                            .get( 1 )
+                                            .getVersion() );
+        assertEquals( "1.0-redhat-1", child.getModel()
+                                           .getDependencies()
+                                           .get( 0 )
+                                           .getVersion() );
+    }
+
+    @Test
+    public void testRESTFailureIsManipulationException()
+        throws Exception
+    {
+        // The mock server only handles its root endpoint, so this request fails with a client error.
+        final ManipulationSession session = session( mockServer.getUrl() + "/missing" );
+        final DependencyRESTManipulator manipulator = new DependencyRESTManipulator();
+
+        manipulator.scan( projects, session );
+
+        try
+        {
+            session.getState( VersioningState.class )
+                   .getRESTMetadata();
+            fail( "Failed to throw ManipulationException when waiting for the REST metadata." );
+        }
+        catch ( final ManipulationException e )
+        {
+            // Pass
+        }
+
+        try
+        {
+            manipulator.applyChanges( projects, session );
+            fail( "Failed to throw ManipulationException when applying the REST translation." );
+        }
+        catch ( final ManipulationException e )
+        {
+            // Pass
+        }
+    }
+
+    private ManipulationSession session( final String url )
+        throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty( "restURL", url );
+
+        final ManipulationSession session = new ManipulationSession();
+        session.setState( new DependencyRESTState( props ) );
+        session.setState( new DependencyState( props ) );
+        session.setState( new VersioningState( props ) );
+        session.setProjects( projects );
+        return session;
+    }
+
+    private static ArtifactRef artifact( final String type, final String classifier )
+    {
+        return new ArtifactRef( DEP, new TypeAndClassifier( type, classifier ), false );
+    }
+}
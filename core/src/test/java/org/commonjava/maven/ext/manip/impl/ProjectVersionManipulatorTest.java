@@ -604,6 +604,58 @@ public class ProjectVersionManipulatorTest
         }
     }
 
+    @Test
+    public void updateInterpolatedDependencyVersions()
+        throws Exception
+    {
+        final Model orig = new Model();
+        orig.setGroupId( "org.foo" );
+        orig.setArtifactId( "bar" );
+        orig.setVersion( "1.0" );
+        orig.getProperties()
+            .setProperty( "dep.version", "1.0" );
+
+        final Dependency dep = new Dependency();
+        dep.setGroupId( "${project.groupId}" );
+        dep.setArtifactId( "bar-dep" );
+        dep.setVersion( "${dep.version}" );
+        orig.addDependency( dep );
+
+        final Dependency managed = new Dependency();
+        managed.setGroupId( "${pom.groupId}" );
+        managed.setArtifactId( "bar-managed-dep" );
+        managed.setVersion( "${dep.version}" );
+
+        final DependencyManagement mgmt = new DependencyManagement();
+        mgmt.addDependency( managed );
+        orig.setDependencyManagement( mgmt );
+
+        final Dependency external = new Dependency();
+        external.setGroupId( "org.other" );
+        external.setArtifactId( "other" );
+        external.setVersion( "${dep.version}" );
+        orig.addDependency( external );
+
+        final String mv = orig.getVersion() + ".redhat-1";
+
+        final Map<ProjectVersionRef, String> versionsByGA = new HashMap<ProjectVersionRef, String>();
+        versionsByGA.put( new ProjectVersionRef( "org.foo", "bar", "1.0" ), mv );
+        versionsByGA.put( new ProjectVersionRef( "org.foo", "bar-dep", "1.0" ), mv );
+        versionsByGA.put( new ProjectVersionRef( "org.foo", "bar-managed-dep", "1.0" ), mv );
+
+        final MavenProject project = new MavenProject( orig.clone() );
+        project.setOriginalModel( orig );
+
+        final Set<MavenProject> changes =
+            newVersioningModifier().applyVersioningChanges( Collections.singleton( project ), versionsByGA );
+
+        assertThat( changes.size(), equalTo( 1 ) );
+        assertThat( orig.getVersion(), equalTo( mv ) );
+        assertThat( dep.getVersion(), equalTo( mv ) );
+        assertThat( managed.getVersion(), equalTo( mv ) );
+        assertThat( external.getVersion(), equalTo( "${dep.version}" ) );
+    }
+
     private TestVersioningModifier newVersioningModifier()
         throws ManipulationException
     {
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class VersionIndexTest
+{
+
+    @Test
+    public void testIncrementalAdd()
+    {
+        final VersionIndex index = new VersionIndex();
+        final Version version = new Version( "7.1.0" );
+        version.appendQualifierSuffix( "redhat" );
+
+        assertThat( index.findHighestMatchingBuildNumber( version ), equalTo( 0 ) );
+
+        index.add( "7.1.redhat-3" );
+        assertThat( index.findHighestMatchingBuildNumber( version ), equalTo( 3 ) );
+
+        index.add( "7.1.0.redhat-2" );
+        index.add( "7.1.0.redhat-5-SNAPSHOT" );
+        assertThat( index.findHighestMatchingBuildNumber( version ), equalTo( 3 ) );
+
+        index.add( "7.1.0.redhat-4" );
+        assertThat( index.findHighestMatchingBuildNumber( version ), equalTo( 4 ) );
+    }
+
+    @Test
+    public void testNonMatchingVersions()
+    {
+        final VersionIndex index =
+            new VersionIndex( Arrays.asList( "7.2.0.redhat-9", "7.1.0.other-9", "7.1.0", "7.1.0.redhat" ) );
+        final Version version = new Version( "7.1" );
+        version.appendQualifierSuffix( "redhat-1" );
+
+        assertThat( index.findHighestMatchingBuildNumber( version ), equalTo( 0 ) );
+    }
+}
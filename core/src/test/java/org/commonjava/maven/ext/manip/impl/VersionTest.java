@@ -250,6 +250,21 @@ public class VersionTest
         assertThat( version.getOSGiVersionString(), equalTo( "1.2.0.GA-foo-2" ) );
     }
 
+    @Test
+    public void testSameVersionParsedIndependently()
+    {
+        final Version version = new Version( "1.2.0.Final-foo-1-SNAPSHOT" );
+        version.appendQualifierSuffix( "redhat-2" );
+        version.setSnapshot( false );
+
+        final Version other = new Version( "1.2.0.Final-foo-1-SNAPSHOT" );
+        assertThat( version.getVersionString(), equalTo( "1.2.0.Final-foo-1-redhat-2" ) );
+        assertThat( other.getVersionString(), equalTo( "1.2.0.Final-foo-1-SNAPSHOT" ) );
+        assertThat( other.getQualifierBase(), equalTo( "Final-foo-" ) );
+        assertThat( other.getBuildNumber(), equalTo( "1" ) );
+        assertThat( other.isSnapshot(), equalTo( true ) );
+    }
+
     @Test
     public void testFindHighestMatchingBuildNumber()
     {
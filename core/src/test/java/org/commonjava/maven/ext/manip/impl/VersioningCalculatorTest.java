@@ -47,6 +47,7 @@ import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.ManipulationSession;
 import org.commonjava.maven.ext.manip.fixture.StubTransport;
+import org.commonjava.maven.ext.manip.io.ModelIO;
 import org.commonjava.maven.ext.manip.model.Project;
 import org.commonjava.maven.ext.manip.resolver.GalleyAPIWrapper;
 import org.commonjava.maven.ext.manip.resolver.GalleyInfrastructure;
@@ -674,6 +675,24 @@ public class VersioningCalculatorTest
         assertThat( result, equalTo( v + ".0." + ns ) );
     }
 
+    @Test( expected = ManipulationException.class )
+    public void invalidPrefetchThreadsAreRejected()
+        throws Exception
+    {
+        final Model m = new Model();
+        m.setGroupId( GROUP_ID );
+        m.setArtifactId( ARTIFACT_ID );
+        m.setVersion( "1.2.0.GA-foo-1" );
+
+        final Properties props = new Properties();
+
+        props.setProperty( VersioningState.INCREMENT_SERIAL_SUFFIX_SYSPROP, "foo-0" );
+        props.setProperty( ModelIO.PREFETCH_THREADS_PROPERTY, "0" );
+        setupSession( props, "1.2.0.GA-foo-3" );
+
+        modder.calculateVersioningChanges( Collections.singletonList( new Project( m ) ), session );
+    }
+
     @Test
     public void incrementExistingSerialSuffix_TwoProjects_UsingRepositoryMetadata_AvailableOnlyForOne()
         throws Exception
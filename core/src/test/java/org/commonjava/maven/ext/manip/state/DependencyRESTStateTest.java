@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.state;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.junit.Test;
+
+public class DependencyRESTStateTest
+{
+
+    @Test
+    public void defaults()
+        throws Exception
+    {
+        final DependencyRESTState state = new DependencyRESTState( new Properties() );
+
+        assertThat( state.isEnabled(), equalTo( false ) );
+        assertThat( state.getRESTThreads(), equalTo( 4 ) );
+        assertThat( state.getRESTChunkSize(), equalTo( 0 ) );
+        assertThat( state.getRESTCacheTTL(), equalTo( 86400000L ) );
+    }
+
+    @Test
+    public void validValues()
+        throws Exception
+    {
+        final Properties p = new Properties();
+        p.setProperty( DependencyRESTState.REST_THREADS, " 2 " );
+        p.setProperty( DependencyRESTState.REST_DEADLINE, "30000" );
+        p.setProperty( DependencyRESTState.REST_CACHE_NEGATIVE_TTL, "0" );
+
+        final DependencyRESTState state = new DependencyRESTState( p );
+
+        assertThat( state.getRESTThreads(), equalTo( 2 ) );
+        assertThat( state.getRESTDeadline(), equalTo( 30000L ) );
+        assertThat( state.getRESTCacheNegativeTTL(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void nonNumericValueIsRejected()
+    {
+        assertInvalid( DependencyRESTState.REST_CHUNK_SIZE, "lots" );
+        assertInvalid( DependencyRESTState.REST_CACHE_TTL, "1d" );
+    }
+
+    @Test
+    public void outOfRangeValueIsRejected()
+    {
+        assertInvalid( DependencyRESTState.REST_THREADS, "0" );
+        assertInvalid( DependencyRESTState.REST_RETRIES, "-1" );
+        assertInvalid( DependencyRESTState.REST_READ_TIMEOUT, "-1" );
+        assertInvalid( DependencyRESTState.REST_CONNECT_TIMEOUT, "4294967296" );
+    }
+
+    private void assertInvalid( final String property, final String value )
+    {
+        final Properties p = new Properties();
+        p.setProperty( property, value );
+        try
+        {
+            new DependencyRESTState( p );
+            fail( "Expected " + property + "=" + value + " to be rejected" );
+        }
+        catch ( final ManipulationException e )
+        {
+            assertThat( e.getMessage(), equalTo( "Invalid value for " + property + ": " + value ) );
+        }
+    }
+}
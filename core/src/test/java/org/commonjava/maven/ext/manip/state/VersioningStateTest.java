@@ -16,10 +16,20 @@
 package org.commonjava.maven.ext.manip.state;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.ext.manip.impl.Version;
+import org.commonjava.maven.ext.manip.impl.VersionIndex;
 import org.junit.Test;
 
 public class VersioningStateTest
@@ -55,4 +65,59 @@ public class VersioningStateTest
         assertThat( state.isEnabled(), equalTo( true ) );
     }
 
+    @Test
+    public void versionIndexIsBuiltOncePerProject()
+        throws Exception
+    {
+        final VersioningState state = new VersioningState( new Properties() );
+        state.setRepositoryMetadata( metadata( FOO, "1.2.0.GA-foo-3", "1.2.0.GA-foo-9" ) );
+
+        final VersionIndex index = state.getVersionIndex( FOO );
+        assertThat( index.findHighestMatchingBuildNumber( new Version( "1.2.0.GA-foo-1" ) ), equalTo( 9 ) );
+        assertThat( state.getVersionIndex( FOO ), sameInstance( index ) );
+
+        // Not prefetched, so the caller has to read the versions.
+        assertThat( state.getVersionIndex( BAR ), nullValue() );
+        final VersionIndex read = new VersionIndex();
+        state.setVersionIndex( BAR, read );
+        assertThat( state.getVersionIndex( BAR ), sameInstance( read ) );
+    }
+
+    @Test
+    public void versionIndexPrefersRESTMetadata()
+        throws Exception
+    {
+        final VersioningState state = new VersioningState( new Properties() );
+        state.setRepositoryMetadata( metadata( FOO, "1.2.0.GA-foo-9" ) );
+        state.setRESTMetadata( metadata( FOO, "1.2.0.GA-foo-3" ) );
+
+        assertThat( state.getVersionIndex( FOO )
+                         .findHighestMatchingBuildNumber( new Version( "1.2.0.GA-foo-1" ) ), equalTo( 3 ) );
+        // Projects missing from the REST metadata have no versions rather than being read from the repository.
+        assertThat( state.getVersionIndex( BAR )
+                         .findHighestMatchingBuildNumber( new Version( "1.2.0.GA-foo-1" ) ), equalTo( 0 ) );
+    }
+
+    @Test
+    public void versionIndexIsRebuiltWhenMetadataChanges()
+        throws Exception
+    {
+        final VersioningState state = new VersioningState( new Properties() );
+        state.setRepositoryMetadata( metadata( FOO, "1.2.0.GA-foo-3" ) );
+        state.getVersionIndex( FOO );
+
+        state.setRepositoryMetadata( metadata( FOO, "1.2.0.GA-foo-9" ) );
+
+        assertThat( state.getVersionIndex( FOO )
+                         .findHighestMatchingBuildNumber( new Version( "1.2.0.GA-foo-1" ) ), equalTo( 9 ) );
+    }
+
+    private static final ProjectRef FOO = new ProjectRef( "org.foo", "foo" );
+
+    private static final ProjectRef BAR = new ProjectRef( "org.foo", "bar" );
+
+    private static Map<ProjectRef, Set<String>> metadata( final ProjectRef ga, final String... versions )
+    {
+        return Collections.<ProjectRef, Set<String>>singletonMap( ga, new HashSet<String>( Arrays.asList( versions ) ) );
+    }
 }
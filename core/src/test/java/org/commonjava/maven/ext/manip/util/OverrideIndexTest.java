@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.junit.Test;
+
+public class OverrideIndexTest
+{
+    @Test
+    public void testLookupPreservesSourceOrder()
+    {
+        final Map<ArtifactRef, String> overrides = new LinkedHashMap<ArtifactRef, String>();
+        overrides.put( ArtifactRef.parse( "org.foo:bar:1.0:jar" ), "1.0.redhat-1" );
+        overrides.put( ArtifactRef.parse( "org.foo:baz:2.0:jar" ), "2.0.redhat-1" );
+        overrides.put( ArtifactRef.parse( "org.foo:bar:1.0:jar:tests" ), "1.0.redhat-2" );
+
+        final OverrideIndex index = new OverrideIndex( overrides );
+
+        assertEquals( 3, index.size() );
+
+        final int[] bar = index.lookup( "org.foo", "bar" );
+        assertEquals( 2, bar.length );
+        assertEquals( 0, bar[0] );
+        assertEquals( 2, bar[1] );
+        assertEquals( "1.0.redhat-2", index.getVersion( bar[1] ) );
+        assertEquals( ProjectRef.parse( "org.foo:bar" ), index.getProjectRef( bar[1] ) );
+    }
+
+    @Test
+    public void testLookupMissing()
+    {
+        final Map<ArtifactRef, String> overrides = new LinkedHashMap<ArtifactRef, String>();
+        overrides.put( ArtifactRef.parse( "org.foo:bar:1.0:jar" ), "1.0.redhat-1" );
+
+        final OverrideIndex index = new OverrideIndex( overrides );
+
+        assertEquals( 0, index.lookup( "org.foo", "missing" ).length );
+        assertEquals( 0, index.lookup( ProjectRef.parse( "org.other:bar" ) ).length );
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
+import org.commonjava.maven.atlas.ident.ref.ProjectRef;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OverridePlanTest
+{
+    private OverrideIndex index;
+
+    @Before
+    public void setUp()
+    {
+        final Map<ArtifactRef, String> overrides = new LinkedHashMap<ArtifactRef, String>();
+        overrides.put( ArtifactRef.parse( "org.foo:bar:1.0:jar" ), "1.0.redhat-1" );
+        overrides.put( ArtifactRef.parse( "org.foo:baz:2.0:jar" ), "2.0.redhat-1" );
+        overrides.put( ArtifactRef.parse( "org.other:qux:3.0:jar" ), "3.0.redhat-1" );
+        overrides.put( ArtifactRef.parse( "org.reactor:module:1.0:jar" ), "1.0.redhat-1" );
+
+        index = new OverrideIndex( overrides );
+    }
+
+    @Test
+    public void testReactorRefsExcluded() throws Exception
+    {
+        final OverridePlan plan = new OverridePlan( index, Collections.singleton(
+                        ArtifactRef.parse( "org.reactor:module:1.0" ) ), new HashMap<String, String>() );
+
+        final OverridePlan.View view = plan.getView( "org.reactor:parent" );
+
+        assertTrue( view.isActive( 0 ) );
+        assertTrue( view.isActive( 2 ) );
+        assertFalse( view.isActive( 3 ) );
+    }
+
+    @Test
+    public void testModuleSpecificRules() throws Exception
+    {
+        final Map<String, String> exclusions = new HashMap<String, String>();
+        exclusions.put( "org.foo:bar@org.reactor:module", "" );
+        exclusions.put( "org.other:qux@org.reactor:module", "3.1" );
+
+        final OverridePlan plan = new OverridePlan( index, Collections.<ArtifactRef>emptySet(), exclusions );
+
+        final OverridePlan.View module = plan.getView( "org.reactor:module" );
+        assertFalse( module.isActive( 0 ) );
+        assertTrue( module.isActive( 1 ) );
+        assertEquals( "3.1", module.getExplicitOverrides().get( ProjectRef.parse( "org.other:qux" ) ) );
+
+        final OverridePlan.View other = plan.getView( "org.reactor:other" );
+        assertTrue( other.isActive( 0 ) );
+        assertNull( other.getExplicitOverrides().get( ProjectRef.parse( "org.other:qux" ) ) );
+    }
+
+    @Test
+    public void testWildcardRules() throws Exception
+    {
+        final Map<String, String> exclusions = new HashMap<String, String>();
+        exclusions.put( "org.foo:*@*", "" );
+        exclusions.put( "org.other:qux@*", "3.2" );
+        exclusions.put( "org.other:qux@org.reactor:module", "3.1" );
+
+        final OverridePlan plan = new OverridePlan( index, Collections.<ArtifactRef>emptySet(), exclusions );
+
+        final OverridePlan.View other = plan.getView( "org.reactor:other" );
+        assertFalse( other.isActive( 0 ) );
+        assertFalse( other.isActive( 1 ) );
+        assertTrue( other.isActive( 2 ) );
+        assertEquals( "3.2", other.getExplicitOverrides().get( ProjectRef.parse( "org.other:qux" ) ) );
+
+        // Module-specific values take precedence over the wildcard.
+        final OverridePlan.View module = plan.getView( "org.reactor:module" );
+        assertEquals( "3.1", module.getExplicitOverrides().get( ProjectRef.parse( "org.other:qux" ) ) );
+    }
+
+    @Test( expected = ManipulationException.class )
+    public void testInvalidKey() throws Exception
+    {
+        final Map<String, String> exclusions = new HashMap<String, String>();
+        exclusions.put( "org.foo:bar@org.reactor:module@org.reactor:other", "" );
+
+        new OverridePlan( index, Collections.<ArtifactRef>emptySet(), exclusions );
+    }
+}
@@ -0,0 +1,433 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getLongProperty;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.model.Model;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional on-disk cache of parsed raw {@link Model}s, allowing repeated runs over the same checkout to skip parsing
+ * POMs that have not changed.
+ * <p>
+ * Each entry is keyed by the canonical path of the POM and records the size, modification time and SHA-1 of the
+ * content it was built from. An entry is only used if the size and modification time still match and the content
+ * hash matches the current POM; modification times are too coarse, and too easily reset, to be relied on alone.
+ * </p>
+ * <p>
+ * Entries are only deserialized into the Maven model classes and the handful of JDK and plexus-utils types they use;
+ * an entry naming any other class is discarded, so a tampered cache directory cannot instantiate arbitrary classes.
+ * </p>
+ * <p>
+ * The cache is bounded in size; {@link #trim()} evicts the least recently used entries once the bound is exceeded.
+ * Entries are written to a temporary file and renamed into place, and any entry which cannot be read is discarded, so
+ * concurrent or interrupted runs never observe a partial entry.
+ * </p>
+ */
+public class ModelCache
+{
+    /**
+     * The directory to store cached models in. The cache is disabled unless this is set.
+     * <pre>
+     * <code>-Dmanipulation.modelCache.dir=/path/to/cache</code>
+     * </pre>
+     */
+    public static final String CACHE_DIR_PROPERTY = "manipulation.modelCache.dir";
+
+    /**
+     * The maximum size of the cache in megabytes. Defaults to {@link #DEFAULT_MAX_SIZE_MB}.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "manipulation.modelCache.maxSize";
+
+    public static final long DEFAULT_MAX_SIZE_MB = 64;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String ENTRY_SUFFIX = ".model";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final File directory;
+
+    private final long maxSize;
+
+    public ModelCache( final File directory, final long maxSize )
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Create a cache from the user properties.
+     *
+     * @param userProperties the properties to read the configuration from.
+     * @return the cache or null if caching is disabled.
+     * @throws ManipulationException if the configuration is invalid.
+     */
+    public static ModelCache create( final Properties userProperties )
+        throws ManipulationException
+    {
+        final String dir = userProperties.getProperty( CACHE_DIR_PROPERTY );
+        if ( dir == null || dir.trim().length() == 0 )
+        {
+            return null;
+        }
+
+        final long maxSize = getLongProperty( userProperties, CACHE_SIZE_PROPERTY, DEFAULT_MAX_SIZE_MB, 1 );
+        if ( maxSize > Long.MAX_VALUE / ( 1024 * 1024 ) )
+        {
+            throw new ManipulationException( "Invalid value for " + CACHE_SIZE_PROPERTY + ": "
+                + userProperties.getProperty( CACHE_SIZE_PROPERTY ) );
+        }
+
+        final File directory = new File( dir.trim() );
+        directory.mkdirs();
+        if ( !directory.isDirectory() )
+        {
+            throw new ManipulationException( "Unable to create model cache directory " + directory );
+        }
+
+        return new ModelCache( directory, maxSize * 1024 * 1024 );
+    }
+
+    /**
+     * @param pom the POM file.
+     * @param lastModified the modification time of the POM when the content was read.
+     * @param content the current content of the POM.
+     * @return the cached model for the POM, or null if there is no valid entry.
+     */
+    public Model get( final File pom, final long lastModified, final byte[] content )
+    {
+        final File entryFile = entryFile( pom );
+        if ( !entryFile.exists() )
+        {
+            return null;
+        }
+
+        ObjectInputStream in = null;
+        try
+        {
+            in = new ModelInputStream( new GZIPInputStream( new BufferedInputStream( new FileInputStream( entryFile ) ) ) );
+
+            if ( in.readInt() != FORMAT_VERSION || !pom.getPath()
+                                                       .equals( in.readUTF() ) )
+            {
+                return null;
+            }
+
+            final long size = in.readLong();
+            final long entryLastModified = in.readLong();
+            final String hash = in.readUTF();
+
+            if ( size != content.length || entryLastModified != lastModified )
+            {
+                logger.debug( "Cached model for {} is stale", pom );
+                return null;
+            }
+            if ( !hash.equals( hash( content ) ) )
+            {
+                logger.debug( "Cached model for {} does not match the current content", pom );
+                return null;
+            }
+
+            final Model model = (Model) in.readObject();
+
+            // Record the use so that eviction is least recently used rather than least recently written.
+            entryFile.setLastModified( System.currentTimeMillis() );
+
+            logger.debug( "Using cached model for {}", pom );
+            return model;
+        }
+        catch ( final IOException e )
+        {
+            logger.debug( "Discarding unreadable cache entry " + entryFile, e );
+        }
+        catch ( final ClassNotFoundException e )
+        {
+            logger.debug( "Discarding unreadable cache entry " + entryFile, e );
+        }
+        catch ( final ClassCastException e )
+        {
+            logger.debug( "Discarding unreadable cache entry " + entryFile, e );
+        }
+        finally
+        {
+            closeQuietly( in );
+        }
+
+        entryFile.delete();
+        return null;
+    }
+
+    /**
+     * Store the model parsed from the given content. Failures are logged and otherwise ignored; the cache is only an
+     * optimisation.
+     *
+     * @param pom the POM file.
+     * @param lastModified the modification time of the POM when the content was read.
+     * @param content the content the model was parsed from.
+     * @param model the parsed model.
+     */
+    public void put( final File pom, final long lastModified, final byte[] content, final Model model )
+    {
+        File tmp = null;
+        ObjectOutputStream out = null;
+        try
+        {
+            tmp = File.createTempFile( "entry", TEMP_SUFFIX, directory );
+
+            out = new ObjectOutputStream( new GZIPOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) ) );
+            out.writeInt( FORMAT_VERSION );
+            out.writeUTF( pom.getPath() );
+            out.writeLong( content.length );
+            out.writeLong( lastModified );
+            out.writeUTF( hash( content ) );
+            out.writeObject( model );
+            out.close();
+            out = null;
+
+            final File entryFile = entryFile( pom );
+            // renameTo will not replace an existing file on every platform.
+            if ( !tmp.renameTo( entryFile ) && !( entryFile.delete() && tmp.renameTo( entryFile ) ) )
+            {
+                logger.debug( "Unable to store cached model for {}", pom );
+            }
+        }
+        catch ( final IOException e )
+        {
+            logger.debug( "Unable to store cached model for " + pom, e );
+        }
+        finally
+        {
+            closeQuietly( out );
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until the cache is within its size bound. Temporary files, which may belong
+     * to entries being written by a concurrent run, are neither counted nor deleted.
+     */
+    public void trim()
+    {
+        final File[] entries = directory.listFiles( new FileFilter()
+        {
+            @Override
+            public boolean accept( final File file )
+            {
+                return !file.getName()
+                            .endsWith( TEMP_SUFFIX );
+            }
+        } );
+        if ( entries == null )
+        {
+            return;
+        }
+
+        long total = 0;
+        for ( final File entry : entries )
+        {
+            total += entry.length();
+        }
+        if ( total <= maxSize )
+        {
+            return;
+        }
+
+        final long[] lastUsed = new long[entries.length];
+        final Integer[] order = new Integer[entries.length];
+        for ( int i = 0; i < entries.length; i++ )
+        {
+            lastUsed[i] = entries[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort( order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare( final Integer a, final Integer b )
+            {
+                return lastUsed[a] < lastUsed[b] ? -1 : ( lastUsed[a] == lastUsed[b] ? 0 : 1 );
+            }
+        } );
+
+        for ( int i = 0; i < order.length && total > maxSize; i++ )
+        {
+            final File entry = entries[order[i]];
+            final long length = entry.length();
+            if ( entry.delete() )
+            {
+                logger.debug( "Evicted cached model {}", entry );
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * Read the full content of a POM. Reading the bytes up front allows the same content to be both parsed and
+     * hashed.
+     *
+     * @param pom the POM file.
+     * @return the content.
+     * @throws IOException if the file cannot be read.
+     */
+    public static byte[] readContent( final File pom )
+        throws IOException
+    {
+        final InputStream in = new FileInputStream( pom );
+        try
+        {
+            return IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            closeQuietly( in );
+        }
+    }
+
+    private File entryFile( final File pom )
+    {
+        try
+        {
+            return new File( directory, hash( pom.getPath()
+                                                 .getBytes( "UTF-8" ) ) + ENTRY_SUFFIX );
+        }
+        catch ( final UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( "UTF-8 is not supported", e );
+        }
+    }
+
+    private static String hash( final byte[] content )
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is not supported", e );
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for ( final byte b : digest.digest( content ) )
+        {
+            sb.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) )
+              .append( Character.forDigit( b & 0xf, 16 ) );
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ModelCache{" +
+                "directory=" + directory +
+                ", maxSize=" + maxSize +
+                '}';
+    }
+
+    /**
+     * Restricts deserialization to the Maven model and the types its fields hold, and resolves classes against the
+     * loader which holds the Maven model rather than the default, which may not see it when running as an extension.
+     */
+    private static final class ModelInputStream
+        extends ObjectInputStream
+    {
+        private static final String MODEL_PACKAGE = "org.apache.maven.model.";
+
+        private static final Set<String> ALLOWED_CLASSES;
+
+        static
+        {
+            final Set<String> allowed = new HashSet<String>();
+            allowed.add( "java.lang.String" );
+            allowed.add( "java.util.ArrayList" );
+            allowed.add( "java.util.LinkedList" );
+            allowed.add( "java.util.HashMap" );
+            allowed.add( "java.util.LinkedHashMap" );
+            allowed.add( "java.util.TreeMap" );
+            allowed.add( "java.util.HashSet" );
+            allowed.add( "java.util.LinkedHashSet" );
+            allowed.add( "java.util.Hashtable" );
+            allowed.add( "java.util.Properties" );
+            // Plugin and report configuration.
+            allowed.add( "org.codehaus.plexus.util.xml.Xpp3Dom" );
+            ALLOWED_CLASSES = Collections.unmodifiableSet( allowed );
+        }
+
+        private ModelInputStream( final InputStream in )
+            throws IOException
+        {
+            super( in );
+        }
+
+        @Override
+        protected Class<?> resolveClass( final ObjectStreamClass desc )
+            throws IOException, ClassNotFoundException
+        {
+            final String name = desc.getName();
+            if ( !ALLOWED_CLASSES.contains( name )
+                && !( name.startsWith( MODEL_PACKAGE ) && name.indexOf( '.', MODEL_PACKAGE.length() ) < 0 ) )
+            {
+                throw new InvalidClassException( name, "Not permitted in a cached model" );
+            }
+
+            try
+            {
+                return Class.forName( name, false, Model.class.getClassLoader() );
+            }
+            catch ( final ClassNotFoundException e )
+            {
+                return super.resolveClass( desc );
+            }
+        }
+    }
+}
@@ -28,6 +28,9 @@ import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.atlas.ident.ref.VersionlessArtifactRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
+import org.commonjava.maven.ext.manip.model.Project;
+import org.commonjava.maven.ext.manip.model.PropertyIndex;
+import org.commonjava.maven.ext.manip.model.VersionExpression;
 import org.commonjava.maven.ext.manip.resolver.GalleyAPIWrapper;
 import org.commonjava.maven.galley.TransferException;
 import org.commonjava.maven.galley.maven.GalleyMavenException;
@@ -39,12 +42,22 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
@@ -55,6 +68,14 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
 public class ModelIO
 {
 
+    /**
+     * The maximum number of remote POMs fetched concurrently by {@link #prefetch(Collection, Collection, int)}, and of
+     * repository metadata files fetched concurrently for incremental versioning. A value of one disables prefetching.
+     */
+    public static final String PREFETCH_THREADS_PROPERTY = "manipulation.prefetchThreads";
+
+    public static final int DEFAULT_PREFETCH_THREADS = 4;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
     @Requirement
@@ -63,6 +84,16 @@ public class ModelIO
     @Requirement
     private GalleyAPIWrapper galleyWrapper;
 
+    /**
+     * Raw remote models, resolved and parsed at most once per session. The cached models are shared and must not be
+     * modified; {@link #resolveRawModel(ProjectVersionRef)} hands out copies.
+     */
+    private final ConcurrentMap<ProjectVersionRef, Future<Model>> rawModels =
+                    new ConcurrentHashMap<ProjectVersionRef, Future<Model>>();
+
+    private final ConcurrentMap<ProjectVersionRef, Future<Map<ArtifactRef, String>>> dependencyOverrides =
+                    new ConcurrentHashMap<ProjectVersionRef, Future<Map<ArtifactRef, String>>>();
+
     /**
      * Protected constructor for component instantiation/injection
      */
@@ -72,7 +103,91 @@ public class ModelIO
     }
 
     /**
-     * Read the raw model (equivalent to the pom file on disk) from a given GAV.
+     * Discard any remote models resolved during a previous session.
+     */
+    public void clearCache()
+    {
+        rawModels.clear();
+        dependencyOverrides.clear();
+    }
+
+    /**
+     * Resolve and parse the given remote POMs concurrently, so that later calls for them are served from the session
+     * cache. Each GAV is only fetched once, even if also requested elsewhere while the prefetch is running. Failures
+     * are logged and otherwise ignored; they are not cached, so are reported when the GAV is actually required.
+     *
+     * @param models the GAVs of POMs to read as raw models.
+     * @param managedDependencies the GAVs of POMs to read dependency management from.
+     * @param threads the maximum number of concurrent fetches.
+     */
+    public void prefetch( final Collection<ProjectVersionRef> models,
+                          final Collection<ProjectVersionRef> managedDependencies, final int threads )
+    {
+        final int count = models.size() + managedDependencies.size();
+        if ( threads <= 1 || count <= 1 )
+        {
+            return;
+        }
+
+        logger.debug( "Prefetching remote POMs {} and dependency management {}", models, managedDependencies );
+
+        final ExecutorService executor = PomIO.newExecutor( Math.min( threads, count ), "model-prefetch" );
+        try
+        {
+            final List<ProjectVersionRef> refs = new ArrayList<ProjectVersionRef>();
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for ( final ProjectVersionRef ref : models )
+            {
+                refs.add( ref );
+                futures.add( executor.submit( new Callable<Model>()
+                {
+                    @Override
+                    public Model call()
+                        throws ManipulationException
+                    {
+                        return getRawModel( ref );
+                    }
+                } ) );
+            }
+            for ( final ProjectVersionRef ref : managedDependencies )
+            {
+                refs.add( ref );
+                futures.add( executor.submit( new Callable<Map<ArtifactRef, String>>()
+                {
+                    @Override
+                    public Map<ArtifactRef, String> call()
+                        throws ManipulationException
+                    {
+                        return getRemoteDependencyVersionOverrides( ref );
+                    }
+                } ) );
+            }
+
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                try
+                {
+                    futures.get( i ).get();
+                }
+                catch ( final ExecutionException e )
+                {
+                    logger.debug( "Prefetch of {} failed: {}", refs.get( i ), e.getCause() );
+                }
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the raw model (equivalent to the pom file on disk) from a given GAV. The POM is only resolved and parsed
+     * once per session; each call returns a copy which the caller is free to modify.
      *
      * @param ref the ProjectVersion to read.
      * @return the Maven Model for the GAV
@@ -80,6 +195,34 @@ public class ModelIO
      */
     public Model resolveRawModel( final ProjectVersionRef ref )
         throws ManipulationException
+    {
+        return getRawModel( ref ).clone();
+    }
+
+    /**
+     * @param ref the ProjectVersion to read.
+     * @return the shared, cached model for the GAV. This must not be modified.
+     * @throws ManipulationException if an error occurs.
+     */
+    private Model getRawModel( final ProjectVersionRef ref )
+        throws ManipulationException
+    {
+        return memoize( rawModels, ref, new Callable<Model>()
+        {
+            @Override
+            public Model call()
+                throws ManipulationException
+            {
+                return readRawModel( ref );
+            }
+        } );
+    }
+
+    /**
+     * Resolve and parse the POM for the given GAV. Only called through the session cache; overridden by test code.
+     */
+    protected Model readRawModel( final ProjectVersionRef ref )
+        throws ManipulationException
     {
         Transfer transfer;
         try
@@ -115,8 +258,30 @@ public class ModelIO
         }
     }
 
+    /**
+     * Read the managed dependencies of a remote POM. Unlike the other overrides these are read through Galley so that
+     * inherited and imported dependency management is included; the result is cached for the session.
+     *
+     * @param ref the ProjectVersion to read.
+     * @return an unmodifiable map of the managed dependencies to their versions.
+     * @throws ManipulationException if an error occurs.
+     */
     public Map<ArtifactRef, String> getRemoteDependencyVersionOverrides( final ProjectVersionRef ref )
         throws ManipulationException
+    {
+        return memoize( dependencyOverrides, ref, new Callable<Map<ArtifactRef, String>>()
+        {
+            @Override
+            public Map<ArtifactRef, String> call()
+                throws ManipulationException
+            {
+                return Collections.unmodifiableMap( readRemoteDependencyVersionOverrides( ref ) );
+            }
+        } );
+    }
+
+    private Map<ArtifactRef, String> readRemoteDependencyVersionOverrides( final ProjectVersionRef ref )
+        throws ManipulationException
     {
         logger.debug( "Resolving dependency management GAV: " + ref );
 
@@ -154,11 +319,13 @@ public class ModelIO
     {
         logger.debug( "Resolving remote property mapping POM: " + ref );
 
-        final Model m = resolveRawModel( ref );
+        final Model m = getRawModel( ref );
 
         logger.debug( "Returning override of " + m.getProperties() );
 
-        return m.getProperties();
+        final Properties result = new Properties();
+        result.putAll( m.getProperties() );
+        return result;
     }
 
     public Map<ProjectRef, Plugin> getRemotePluginVersionOverrides( final ProjectVersionRef ref )
@@ -166,8 +333,10 @@ public class ModelIO
     {
         logger.debug( "Resolving remote plugin management POM: " + ref );
 
-        final Model m = resolveRawModel ( ref );
+        final Model m = getRawModel( ref );
         final Map<ProjectRef, Plugin> versionOverrides = new HashMap<ProjectRef, Plugin>();
+        final PropertyIndex properties =
+            new PropertyIndex( Collections.singleton( new Project( ref, m.getPomFile(), m ) ) );
 
         // TODO: active profiles!
         if ( m.getBuild() != null && m.getBuild().getPluginManagement() != null)
@@ -178,13 +347,14 @@ public class ModelIO
 
             while (plit.hasNext())
             {
-                Plugin p = plit.next();
+                // The cached model is shared, so copy before inlining any properties.
+                Plugin p = plit.next().clone();
                 ProjectRef pr = new ProjectRef (p.getGroupId(), p.getArtifactId());
 
-                if ( p.getVersion().startsWith( "${" ))
+                if ( !VersionExpression.compile( p.getVersion() ).isLiteral() )
                 {
                     // Property reference to something in the remote pom. Resolve and inline it now.
-                    String newVersion = resolveProperty (m.getProperties(), p.getVersion() );
+                    String newVersion = properties.interpolate( p.getVersion() );
                     logger.debug( "Replacing plugin override version " + p.getVersion() +
                                   " with " + newVersion);
                     p.setVersion( newVersion );
@@ -195,7 +365,7 @@ public class ModelIO
                 // resolve any properties.
                 if (p.getConfiguration() != null)
                 {
-                    processChildren (m, (Xpp3Dom)p.getConfiguration());
+                    processChildren (properties, (Xpp3Dom)p.getConfiguration());
                 }
 
                 logger.debug( "Added plugin override for: " + pr.toString() + ":" + p.getVersion() +
@@ -212,12 +382,54 @@ public class ModelIO
     }
 
 
+    /**
+     * Return the value cached for the given GAV, computing it if necessary. Concurrent callers for the same GAV wait
+     * for a single computation rather than each performing their own. Failures are not cached.
+     */
+    private <T> T memoize( final ConcurrentMap<ProjectVersionRef, Future<T>> cache, final ProjectVersionRef ref,
+                           final Callable<T> loader )
+        throws ManipulationException
+    {
+        Future<T> future = cache.get( ref );
+        if ( future == null )
+        {
+            final FutureTask<T> task = new FutureTask<T>( loader );
+            future = cache.putIfAbsent( ref, task );
+            if ( future == null )
+            {
+                future = task;
+                task.run();
+            }
+        }
+
+        try
+        {
+            return future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ManipulationException( "Interrupted while resolving: %s", e, ref );
+        }
+        catch ( final ExecutionException e )
+        {
+            cache.remove( ref, future );
+
+            final Throwable cause = e.getCause();
+            if ( cause instanceof ManipulationException )
+            {
+                throw (ManipulationException) cause;
+            }
+            throw new ManipulationException( "Unable to resolve: %s", cause, ref );
+        }
+    }
+
     /**
      * Recursively process the DOM elements to inline any property values from the model.
-     * @param model
+     * @param properties the properties of the model.
      * @param parent
      */
-    private void processChildren (Model model, Xpp3Dom parent)
+    private void processChildren (PropertyIndex properties, Xpp3Dom parent)
     {
         for ( int i = 0 ; i < parent.getChildCount() ; i++)
         {
@@ -225,11 +437,11 @@ public class ModelIO
 
             if ( child.getChildCount() > 0)
             {
-                processChildren (model, child);
+                processChildren (properties, child);
             }
             if ( child.getValue() != null && child.getValue().startsWith( "${" ))
             {
-                String replacement = resolveProperty (model.getProperties(), child.getValue() );
+                String replacement = properties.interpolate( child.getValue() );
 
                 logger.debug( "Replacing child value " + child.getValue() + " with " + replacement );
                 child.setValue( replacement );
@@ -237,28 +449,4 @@ public class ModelIO
 
         }
     }
-
-
-    /**
-     * Recursively resolve a property value.
-     * @param p
-     * @param key
-     * @return the value of the key
-     */
-    private String resolveProperty (Properties p, String key)
-    {
-        String result = "";
-        String child = key.substring( 2, key.length() - 1 );
-
-        if ( p.containsKey( child ) )
-        {
-            result = p.getProperty( child );
-
-            if ( result.startsWith( "${" ) )
-            {
-                result = resolveProperty (p, result);
-            }
-        }
-        return result;
-    }
 }
@@ -15,35 +15,52 @@
  */
 package org.commonjava.maven.ext.manip.io;
 
-import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.codehaus.plexus.util.StringUtils.isEmpty;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Manifest;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.io.util.DocumentModifier;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
 import org.apache.maven.model.io.ModelWriter;
 import org.apache.maven.model.io.jdom.MavenJDOMWriter;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.ManipulationException;
 import org.commonjava.maven.ext.manip.model.Project;
-import org.commonjava.maven.galley.maven.parse.PomPeek;
+import org.commonjava.maven.ext.manip.model.ReactorIndex;
+import org.commonjava.maven.ext.manip.util.DaemonThreadFactory;
 import org.jdom2.Comment;
 import org.jdom2.Content;
 import org.jdom2.Document;
@@ -63,6 +80,34 @@ public class PomIO
 
     private static final String MODIFIED_BY = "[Comment: <!-- Modified by POM Manipulation Extension for Maven";
 
+    /**
+     * The number of threads used to discover and parse the POM hierarchy. A value greater than one enables concurrent
+     * discovery; the default of one reads each POM in turn.
+     * <pre>
+     * <code>-Dmanipulation.parseThreads=4</code>
+     * </pre>
+     */
+    public static final String PARSE_THREADS_PROPERTY = "manipulation.parseThreads";
+
+    /**
+     * The number of threads used to rewrite changed POMs. A value greater than one enables concurrent rewriting.
+     */
+    public static final String REWRITE_THREADS_PROPERTY = "manipulation.rewriteThreads";
+
+    /**
+     * The writer used to rewrite changed POMs: {@link #JDOM_WRITER} (the default) or {@link #STREAMING_WRITER}, which
+     * patches the original document in place and falls back to the JDOM writer for any change it cannot apply.
+     */
+    public static final String POM_WRITER_PROPERTY = "manipulation.pomWriter";
+
+    public static final String JDOM_WRITER = "jdom";
+
+    public static final String STREAMING_WRITER = "streaming";
+
+    private static final String DEFAULT_RELATIVE_PATH = "../pom.xml";
+
+    private static volatile String manifestInformation;
+
     protected final Logger logger = LoggerFactory.getLogger( getClass() );
 
     protected PomIO()
@@ -71,7 +116,39 @@ public class PomIO
 
     public List<Project> parseProject (final File pom) throws ManipulationException
     {
-        final List<PomPeek> peeked = peekAtPomHierarchy(pom);
+        return parseProject( pom, 1, null );
+    }
+
+    /**
+     * Discover and read the POM hierarchy rooted at the given POM.
+     *
+     * @param pom the top level pom file.
+     * @param threads the number of threads to use. If greater than one module POMs are peeked at and parsed
+     * concurrently. The order of the returned projects is the same regardless of the thread count.
+     * @param cache an optional cache of previously parsed models; may be null.
+     * @return a collection of Projects
+     * @throws ManipulationException if an error occurs.
+     */
+    public List<Project> parseProject( final File pom, final int threads, final ModelCache cache )
+        throws ManipulationException
+    {
+        final Map<File, PomNode> nodes;
+        if ( threads > 1 )
+        {
+            nodes = discoverPomHierarchy( pom, threads, cache );
+        }
+        else
+        {
+            nodes = new HashMap<File, PomNode>();
+        }
+
+        final List<PomNode> peeked = peekAtPomHierarchy( pom, nodes, cache );
+
+        if ( cache != null )
+        {
+            cache.trim();
+        }
+
         return readModelsForManipulation( pom, peeked );
     }
 
@@ -84,59 +161,144 @@ public class PomIO
      * @return a collection of Projects
      * @throws ManipulationException if an error occurs.
      */
-    private List<Project> readModelsForManipulation( File executionRoot, final List<PomPeek> peeked )
+    private List<Project> readModelsForManipulation( File executionRoot, final List<PomNode> peeked )
         throws ManipulationException
     {
         final List<Project> projects = new ArrayList<Project>();
 
-        for ( final PomPeek peek : peeked )
+        for ( final PomNode node : peeked )
         {
-            final File pom = peek.getPom();
+            final File pom = node.pom;
 
-            logger.debug( "Reading raw model for: " + pom );
+            final Project project = new Project( node.key, pom, node.model );
+            project.setInheritanceRoot( node.inheritanceRoot );
 
-            // Sucks, but we have to brute-force reading in the raw model.
-            // The effective-model building, below, has a tantalizing getRawModel()
-            // method on the result, BUT this seems to return models that have
-            // the plugin versions set inside profiles...so they're not entirely
-            // raw.
-            Model raw = null;
-            InputStream in = null;
-            try
-            {
-                in = new FileInputStream( pom );
-                raw = new MavenXpp3Reader().read( in );
-            }
-            catch ( final IOException e )
+            if ( executionRoot.equals( pom ))
             {
-                throw new ManipulationException( "Failed to build model for POM: %s.\n--> %s", e, pom, e.getMessage() );
+                project.setExecutionRoot (true);
             }
-            catch ( final XmlPullParserException e )
+
+            projects.add( project );
+        }
+
+        // Any project whose parent is not part of this build inherits from nothing within it and is therefore
+        // an inheritance root in its own right.
+        final ReactorIndex reactor = new ReactorIndex( projects );
+        for ( final Project project : projects )
+        {
+            if ( reactor.getParent( project ) == null )
             {
-                throw new ManipulationException( "Failed to build model for POM: %s.\n--> %s", e, pom, e.getMessage() );
+                logger.debug( "Found a standalone pom " + project.getPom() + " :: " + project.getKey() );
+                project.setInheritanceRoot( true );
             }
-            finally
+        }
+
+        return projects;
+    }
+
+    /**
+     * @param pom the POM file.
+     * @param lastModified the modification time of the POM when the content was read.
+     * @param content the content of the POM.
+     * @param cache an optional cache of previously parsed models; may be null.
+     * @return the raw model.
+     * @throws IOException if the model cannot be read.
+     * @throws XmlPullParserException if the content is not a valid POM.
+     */
+    private Model readModel( final File pom, final long lastModified, final byte[] content, final ModelCache cache )
+        throws IOException, XmlPullParserException
+    {
+        if ( cache != null )
+        {
+            final Model cached = cache.get( pom, lastModified, content );
+            if ( cached != null )
             {
-                closeQuietly( in );
+                return cached;
             }
+        }
+
+        logger.debug( "Reading raw model for: " + pom );
+
+        // Sucks, but we have to brute-force reading in the raw model.
+        // The effective-model building, below, has a tantalizing getRawModel()
+        // method on the result, BUT this seems to return models that have
+        // the plugin versions set inside profiles...so they're not entirely
+        // raw.
+        final Model model = new MavenXpp3Reader().read( new ByteArrayInputStream( content ) );
+
+        if ( cache != null )
+        {
+            cache.put( pom, lastModified, content, model );
+        }
+        return model;
+    }
+
+    /**
+     * @param content the document.
+     * @return whether the document is well-formed XML with a <code>project</code> root element.
+     * @throws IOException if an error occurs reading the document.
+     */
+    private static boolean isProjectDocument( final byte[] content )
+        throws IOException
+    {
+        final XmlPullParser parser = new MXParser();
+        try
+        {
+            parser.setInput( new ByteArrayInputStream( content ), null );
 
-            if ( raw == null )
+            boolean project = false;
+            int event;
+            while ( ( event = parser.nextToken() ) != XmlPullParser.END_DOCUMENT )
             {
-                continue;
+                if ( event == XmlPullParser.START_TAG && parser.getDepth() == 1 )
+                {
+                    project = "project".equals( parser.getName() );
+                }
             }
+            return project;
+        }
+        catch ( final XmlPullParserException e )
+        {
+            return false;
+        }
+    }
 
-            final Project project = new Project( pom, raw );
-            project.setInheritanceRoot( peek.isInheritanceRoot() );
+    /**
+     * The model defaults the parent relativePath to <code>../pom.xml</code>, so whether the POM declares it can only
+     * be told from the document itself.
+     *
+     * @param content the content of the POM.
+     * @return true if the POM has a <code>/project/parent/relativePath</code> element.
+     */
+    private static boolean declaresParentRelativePath( final byte[] content )
+        throws IOException, XmlPullParserException
+    {
+        final XmlPullParser parser = new MXParser();
+        parser.setInput( new ByteArrayInputStream( content ), null );
 
-            if ( executionRoot.equals( pom ))
+        boolean inParent = false;
+        int event;
+        // Tokenizing leaves entity references (which the model reader defines, e.g. &nbsp;) unresolved.
+        while ( ( event = parser.nextToken() ) != XmlPullParser.END_DOCUMENT )
+        {
+            if ( event == XmlPullParser.START_TAG )
             {
-                project.setExecutionRoot (true);
+                if ( parser.getDepth() == 2 && "parent".equals( parser.getName() ) )
+                {
+                    inParent = true;
+                }
+                else if ( inParent && parser.getDepth() == 3 && "relativePath".equals( parser.getName() ) )
+                {
+                    return true;
+                }
+            }
+            else if ( event == XmlPullParser.END_TAG && inParent && parser.getDepth() == 2 )
+            {
+                // The rest of the document is of no interest.
+                return false;
             }
-
-            projects.add( project );
         }
-
-        return projects;
+        return false;
     }
 
     /**
@@ -149,45 +311,161 @@ public class PomIO
     public void rewritePOMs(final Set<Project> changed)
         throws ManipulationException
     {
-        for ( final Project project : changed )
+        rewritePOMs( changed, 1, false );
+    }
+
+    /**
+     * For any project listed as changed (tracked by GA in the session), write the modified model out to disk.
+     * Uses JDOM {@link ModelWriter} and {@link MavenJDOMWriter} to preserve as much formatting as possible. A POM
+     * whose rewritten content is identical to the existing file is left untouched, preserving its modification time.
+     *
+     * @param changed the modified Projects to write out.
+     * @param threads the number of threads to use. If greater than one the POMs are written concurrently.
+     * @param streaming whether to patch the original POMs using the {@link StreamingPomWriter}, falling back to
+     * {@link MavenJDOMWriter} for any change it cannot apply.
+     * @throws ManipulationException if an error occurs.
+     */
+    public void rewritePOMs( final Set<Project> changed, final int threads, final boolean streaming )
+        throws ManipulationException
+    {
+        if ( threads <= 1 || changed.size() <= 1 )
+        {
+            for ( final Project project : changed )
+            {
+                rewritePOM( project, streaming );
+            }
+            return;
+        }
+
+        final ExecutorService executor = newExecutor( Math.min( threads, changed.size() ), "pom-writer" );
+        try
         {
-            logger.info( String.format( "%s modified! Rewriting.", project ) );
-            File pom = project.getPom();
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for ( final Project project : changed )
+            {
+                futures.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws ManipulationException
+                    {
+                        rewritePOM( project, streaming );
+                        return null;
+                    }
+                } ) );
+            }
+
+            for ( final Future<Void> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ManipulationException( "Interrupted while rewriting POMs.", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof ManipulationException )
+            {
+                throw (ManipulationException) cause;
+            }
+            throw new ManipulationException( "Problem rewriting POMs.", cause );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void rewritePOM( final Project project, final boolean streaming )
+        throws ManipulationException
+    {
+        logger.info( String.format( "%s modified! Rewriting.", project ) );
+        File pom = project.getPom();
 
-            final Model model = project.getModel();
-            logger.info( "Rewriting: " + model.toString() + " in place of: " + project.getId()
-                         + "\n       to POM: " + pom );
+        final Model model = project.getModel();
+        logger.info( "Rewriting: " + model.toString() + " in place of: " + project.getId()
+                     + "\n       to POM: " + pom );
 
-            write( project, pom, model );
+        write( project, pom, model, streaming );
 
-            // this happens with integration tests!
-            // This is a total hack, but the alternative seems to be adding complexity through a custom model processor.
-            if ( pom.getName()
-                            .equals( "interpolated-pom.xml" ) )
+        // this happens with integration tests!
+        // This is a total hack, but the alternative seems to be adding complexity through a custom model processor.
+        if ( pom.getName()
+                        .equals( "interpolated-pom.xml" ) )
+        {
+            final File dir = pom.getParentFile();
+            pom = dir == null ? new File( "pom.xml" ) : new File( dir, "pom.xml" );
+
+            write( project, pom, model, streaming );
+        }
+    }
+
+    private void write( final Project project, final File pom, final Model model, final boolean streaming )
+        throws ManipulationException
+    {
+        // The result only replaces the original if it differs, which avoids touching files (and their modification
+        // times) that have not really changed.
+        try
+        {
+            final byte[] original = FileUtils.readFileToByteArray( pom );
+
+            // Only add the modified by to the top level pom.
+            final String comment = project.isInheritanceRoot() ?
+                            "\nModified by POM Manipulation Extension for Maven " + getManifestInformation() + "\n" :
+                            null;
+
+            byte[] rewritten = null;
+            if ( streaming )
+            {
+                rewritten = new StreamingPomWriter().rewrite( original, model, comment );
+                if ( rewritten == null )
+                {
+                    logger.debug( "Unable to patch " + pom + "; falling back to the JDOM writer." );
+                }
+            }
+            if ( rewritten == null )
             {
-                final File dir = pom.getParentFile();
-                pom = dir == null ? new File( "pom.xml" ) : new File( dir, "pom.xml" );
+                rewritten = writeWithJDOM( original, model, comment );
+            }
 
-                write( project, pom, model );
+            if ( Arrays.equals( original, rewritten ) )
+            {
+                logger.info( "Rewritten POM " + pom + " is unchanged; not writing." );
             }
+            else
+            {
+                FileUtils.writeByteArrayToFile( pom, rewritten );
+            }
+        }
+        catch ( final IOException e )
+        {
+            throw new ManipulationException( "Failed to read POM for rewrite: %s. Reason: %s", e, pom, e.getMessage() );
+        }
+        catch ( final JDOMException e )
+        {
+            throw new ManipulationException( "Failed to parse POM for rewrite: %s. Reason: %s", e, pom, e.getMessage() );
         }
     }
 
-    private void write( final Project project, final File pom, final Model model )
-        throws ManipulationException
+    private byte[] writeWithJDOM( final byte[] original, final Model model, final String comment )
+        throws IOException, JDOMException
     {
+        // The writer merges the model into the existing document, so it is run against a copy of the POM.
+        final File tmp = File.createTempFile( "pom-manip", ".xml" );
         try
         {
-            final MavenJDOMWriter writer = new MavenJDOMWriter( model );
+            FileUtils.writeByteArrayToFile( tmp, original );
 
-            final String manifestInformation = project.isInheritanceRoot() ? getManifestInformation() : null;
-            new MavenJDOMWriter().write( model, pom, new DocumentModifier()
+            new MavenJDOMWriter().write( model, tmp, new DocumentModifier()
             {
                 @Override
                 public void postProcess( final Document doc )
                 {
-                    // Only add the modified by to the top level pom.
-                    if ( project.isInheritanceRoot() )
+                    if ( comment != null )
                     {
                         final Iterator<Content> it = doc.getContent( new ContentFilter( ContentFilter.COMMENT ) )
                                                         .iterator();
@@ -205,20 +483,16 @@ public class PomIO
                             }
                         }
 
-                        doc.addContent( Arrays.<Content> asList( new Comment(
-                                                                              "\nModified by POM Manipulation Extension for Maven "
-                                                                                  + manifestInformation + "\n" ) ) );
+                        doc.addContent( Arrays.<Content> asList( new Comment( comment ) ) );
                     }
                 }
             } );
+
+            return FileUtils.readFileToByteArray( tmp );
         }
-        catch ( final IOException e )
-        {
-            throw new ManipulationException( "Failed to read POM for rewrite: %s. Reason: %s", e, pom, e.getMessage() );
-        }
-        catch ( final JDOMException e )
+        finally
         {
-            throw new ManipulationException( "Failed to parse POM for rewrite: %s. Reason: %s", e, pom, e.getMessage() );
+            tmp.delete();
         }
     }
 
@@ -230,6 +504,26 @@ public class PomIO
      */
     private String getManifestInformation()
         throws ManipulationException
+    {
+        // The classpath does not change within a JVM so the manifests only need to be scanned once.
+        String result = manifestInformation;
+        if ( result == null )
+        {
+            synchronized ( PomIO.class )
+            {
+                result = manifestInformation;
+                if ( result == null )
+                {
+                    result = readManifestInformation();
+                    manifestInformation = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private String readManifestInformation()
+        throws ManipulationException
     {
         String result = "";
         try
@@ -262,151 +556,370 @@ public class PomIO
         return result;
     }
 
-    private List<PomPeek> peekAtPomHierarchy(final File topPom)
+    /**
+     * Walk the POM hierarchy breadth-first from the top level POM, following parent relativePaths and modules.
+     *
+     * @param topPom the top level pom file.
+     * @param nodes any poms already peeked at, keyed by file. Others are peeked at as they are reached.
+     * @param cache an optional cache of previously parsed models; may be null.
+     * @return the poms in the order they were reached.
+     * @throws ManipulationException if an error occurs.
+     */
+    private List<PomNode> peekAtPomHierarchy( final File topPom, final Map<File, PomNode> nodes,
+                                              final ModelCache cache )
         throws ManipulationException
     {
-        final List<PomPeek> peeked = new ArrayList<PomPeek>();
+        final List<PomNode> peeked = new ArrayList<PomNode>();
 
         try
         {
+            final File top = topPom.getCanonicalFile();
             final LinkedList<File> pendingPoms = new LinkedList<File>();
-            pendingPoms.add( topPom.getCanonicalFile() );
+            pendingPoms.add( top );
 
             final String topDir = topPom.getParentFile()
                                         .getCanonicalPath();
 
-            final Set<File> seen = new HashSet<File>();
+            // Every pom that has been queued, whether or not it has been processed yet.
+            final Set<File> queued = new HashSet<File>( pendingPoms );
 
             File topLevelParent = topPom;
 
             while ( !pendingPoms.isEmpty() )
             {
                 final File pom = pendingPoms.removeFirst();
-                seen.add( pom );
-
-                logger.debug( "PEEK: " + pom );
 
-                final PomPeek peek = new PomPeek( pom );
-                final ProjectVersionRef key = peek.getKey();
-                if ( key != null )
+                PomNode node = nodes.get( pom );
+                if ( node == null )
                 {
-                    peeked.add( peek );
-
-                    final File dir = pom.getParentFile();
+                    node = peek( pom, topDir, cache );
+                    nodes.put( pom, node );
+                }
 
-                    final String relPath = peek.getParentRelativePath();
-                    if ( relPath != null )
+                if ( node.key == null )
+                {
+                    // A well-formed POM which is an invalid model is an error, as it would silently be left out of
+                    // the build; anything else (e.g. a template) is skipped, as PomPeek did.
+                    if ( node.failure != null && ( pom.equals( top ) || node.projectDocument ) )
                     {
-                        logger.debug( "Found parent relativePath: " + relPath + " in pom: " + pom );
-                        File parent = new File( dir, relPath );
-                        if ( parent.isDirectory() )
-                        {
-                            parent = new File( parent, "pom.xml" );
-                        }
+                        throw new ManipulationException( "Failed to build model for POM: %s.\n--> %s", node.failure,
+                                                         pom, node.failure.getMessage() );
+                    }
+                    logger.debug( "Skipping " + pom + " as its a template file." );
+                    continue;
+                }
 
-                        logger.debug( "Looking for parent POM: " + parent );
+                peeked.add( node );
 
-                        parent = parent.getCanonicalFile();
-                        if ( parent.getParentFile()
-                                   .getCanonicalPath()
-                                   .startsWith( topDir ) && parent.exists() && !seen.contains( parent )
-                            && !pendingPoms.contains( parent ) )
-                        {
-                            topLevelParent = parent;
-                            logger.debug( "Possible top level parent " + parent );
-                            pendingPoms.add( parent );
-                        }
-                        else
-                        {
-                            logger.debug( "Skipping reference to non-existent parent relativePath: '" + relPath
-                                + "' in: " + pom );
-                        }
+                if ( node.parent != null )
+                {
+                    if ( queued.add( node.parent ) )
+                    {
+                        topLevelParent = node.parent;
+                        logger.debug( "Possible top level parent " + node.parent );
+                        pendingPoms.add( node.parent );
                     }
-
-                    final Set<String> modules = peek.getModules();
-                    if ( modules != null && !modules.isEmpty() )
+                    else
                     {
-                        for ( final String module : modules )
-                        {
-                            logger.debug( "Found module: " + module + " in pom: " + pom );
-
-                            File modPom = new File( dir, module );
-                            if ( modPom.isDirectory() )
-                            {
-                                modPom = new File( modPom, "pom.xml" );
-                            }
-
-                            logger.debug( "Looking for module POM: " + modPom );
+                        logger.debug( "Skipping reference to already seen parent " + node.parent + " in: " + pom );
+                    }
+                }
 
-                            if ( modPom.exists() && !seen.contains( modPom )
-                                && !pendingPoms.contains( modPom ) )
-                            {
-                                pendingPoms.addLast( modPom );
-                            }
-                            else
-                            {
-                                logger.debug( "Skipping reference to non-existent module: '" + module + "' in: " + pom );
-                            }
-                        }
+                for ( final File modPom : node.modules )
+                {
+                    if ( queued.add( modPom ) )
+                    {
+                        pendingPoms.addLast( modPom );
+                    }
+                    else
+                    {
+                        logger.debug( "Skipping reference to already seen module " + modPom + " in: " + pom );
                     }
                 }
-                else
+            }
+
+            for ( final PomNode p : peeked )
+            {
+                if ( p.pom.equals( topLevelParent ) )
                 {
-                    logger.debug( "Skipping " + pom + " as its a template file." );
+                    logger.debug( "Setting top level parent to " + p.pom + " :: " + p.key );
+                    p.inheritanceRoot = true;
                 }
             }
+        }
+        catch ( final IOException e )
+        {
+            throw new ManipulationException( "Problem peeking at POMs.", e );
+        }
+
+        return peeked;
+    }
+
+    /**
+     * Read a single POM, resolving the parent relativePath and module references it holds to existing POM files. The
+     * coordinates, parent and modules are taken from the parsed model so each file is only read and parsed once. A
+     * file which is not a valid POM yields a node without coordinates, which records why it could not be parsed and
+     * whether it is at least a well-formed <code>project</code> document.
+     *
+     * @param pom the pom file to read.
+     * @param topDir the canonical path of the top level directory; parents outside of this are ignored.
+     * @param cache an optional cache of previously parsed models; may be null.
+     * @return the parsed pom along with any parent and module POMs that should also be read.
+     * @throws IOException if an error occurs reading the pom or resolving the parent path.
+     */
+    private PomNode peek( final File pom, final String topDir, final ModelCache cache )
+        throws IOException
+    {
+        logger.debug( "PEEK: " + pom );
+
+        final long lastModified = pom.lastModified();
+        final byte[] content = ModelCache.readContent( pom );
+
+        final Model model;
+        final boolean declaresRelativePath;
+        try
+        {
+            model = readModel( pom, lastModified, content, cache );
+            declaresRelativePath = model.getParent() != null
+                && ( !DEFAULT_RELATIVE_PATH.equals( model.getParent()
+                                                         .getRelativePath() )
+                || declaresParentRelativePath( content ) );
+        }
+        catch ( final XmlPullParserException e )
+        {
+            final PomNode node = new PomNode( pom, null, null );
+            node.failure = e;
+            node.projectDocument = isProjectDocument( content );
+            return node;
+        }
 
-            final HashSet<ProjectVersionRef> projectrefs = new HashSet<ProjectVersionRef>();
+        final PomNode node = new PomNode( pom, model, modelKey( model ) );
 
-            for ( final PomPeek p : peeked )
+        if ( node.key == null )
+        {
+            return node;
+        }
+
+        final File dir = pom.getParentFile();
+
+        // Only a declared relativePath is followed; the default would pull in whatever POM is in the directory above.
+        final String relPath = declaresRelativePath ? model.getParent()
+                                                           .getRelativePath() : null;
+        if ( relPath != null && relPath.trim().length() > 0 )
+        {
+            logger.debug( "Found parent relativePath: " + relPath + " in pom: " + pom );
+            File parent = new File( dir, relPath );
+            if ( parent.isDirectory() )
             {
-                projectrefs.add( p.getKey() );
+                parent = new File( parent, "pom.xml" );
+            }
 
-                if ( p.getPom()
-                      .equals( topLevelParent ) )
-                {
-                    logger.debug( "Setting top level parent to " + p.getPom() + " :: " + p.getKey() );
-                    p.setInheritanceRoot( true );
-                }
+            logger.debug( "Looking for parent POM: " + parent );
+
+            parent = parent.getCanonicalFile();
+            if ( parent.getParentFile()
+                       .getCanonicalPath()
+                       .startsWith( topDir ) && parent.exists() )
+            {
+                node.parent = parent;
             }
+            else
+            {
+                logger.debug( "Skipping reference to non-existent parent relativePath: '" + relPath + "' in: " + pom );
+            }
+        }
 
-            logger.debug( "Searching pom list " + projectrefs.toString() + " for standalone poms..." );
+        // Profile modules are deliberately not followed, matching the previous peek behaviour.
+        for ( final String module : new LinkedHashSet<String>( model.getModules() ) )
+        {
+            logger.debug( "Found module: " + module + " in pom: " + pom );
 
-            for ( final PomPeek p : peeked )
+            File modPom = new File( dir, module );
+            if ( modPom.isDirectory() )
             {
-                if ( p.getParentKey() == null ||
-                     ! seenThisParent(projectrefs, p.getParentKey()))
-                {
-                    logger.debug( "Found a standalone pom " + p.getPom() + " :: " + p.getKey() );
-                    p.setInheritanceRoot( true );
-                }
+                modPom = new File( modPom, "pom.xml" );
+            }
+
+            logger.debug( "Looking for module POM: " + modPom );
+
+            if ( modPom.exists() )
+            {
+                node.modules.add( modPom );
+            }
+            else
+            {
+                logger.debug( "Skipping reference to non-existent module: '" + module + "' in: " + pom );
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Derive the coordinates of a raw model, inheriting the groupId and version from the parent where necessary.
+     *
+     * @param model the raw model.
+     * @return the coordinates or null if they are incomplete, as is the case for template files.
+     */
+    private static ProjectVersionRef modelKey( final Model model )
+    {
+        final Parent parent = model.getParent();
+
+        String g = model.getGroupId();
+        String v = model.getVersion();
+        final String a = model.getArtifactId();
+
+        if ( isEmpty( g ) && parent != null )
+        {
+            g = parent.getGroupId();
+        }
+        if ( isEmpty( v ) && parent != null )
+        {
+            v = parent.getVersion();
+        }
+
+        if ( isEmpty( g ) || isEmpty( a ) || isEmpty( v ) )
+        {
+            return null;
+        }
+
+        return new ProjectVersionRef( g, a, v );
+    }
+
+    /**
+     * Concurrently peek at and parse every POM reachable from the top level POM. Each POM is handled by its own task,
+     * which forks further tasks for the parent and modules it references. The ordering of the hierarchy is
+     * established afterwards by {@link #peekAtPomHierarchy(File, Map, ModelCache)}, so is unaffected by thread scheduling.
+     *
+     * @param topPom the top level pom file.
+     * @param threads the number of threads to use.
+     * @param cache an optional cache of previously parsed models; may be null.
+     * @return every reachable pom keyed by file.
+     * @throws ManipulationException if an error occurs.
+     */
+    private Map<File, PomNode> discoverPomHierarchy( final File topPom, final int threads,
+                                                     final ModelCache cache )
+        throws ManipulationException
+    {
+        final ConcurrentMap<File, PomNode> nodes = new ConcurrentHashMap<File, PomNode>();
+        final Set<File> seen = Collections.newSetFromMap( new ConcurrentHashMap<File, Boolean>() );
+        final Queue<Future<Void>> pending = new ConcurrentLinkedQueue<Future<Void>>();
+
+        final ExecutorService executor = newExecutor( threads, "pom-reader" );
+
+        try
+        {
+            final String topDir = topPom.getParentFile()
+                                        .getCanonicalPath();
+
+            submitPeek( topPom.getCanonicalFile(), topDir, cache, executor, seen, nodes, pending );
+
+            // Tasks enqueue any child tasks before they complete, so once the queue is drained every reachable
+            // pom has been handled.
+            Future<Void> future;
+            while ( ( future = pending.poll() ) != null )
+            {
+                future.get();
             }
         }
         catch ( final IOException e )
         {
             throw new ManipulationException( "Problem peeking at POMs.", e );
         }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ManipulationException( "Interrupted while peeking at POMs.", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof ManipulationException )
+            {
+                throw (ManipulationException) cause;
+            }
+            throw new ManipulationException( "Problem peeking at POMs.", cause );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
 
-        return peeked;
+        return nodes;
+    }
+
+    private void submitPeek( final File pom, final String topDir, final ModelCache cache,
+                             final ExecutorService executor,
+                             final Set<File> seen, final ConcurrentMap<File, PomNode> nodes,
+                             final Queue<Future<Void>> pending )
+    {
+        if ( !seen.add( pom ) )
+        {
+            return;
+        }
+
+        pending.add( executor.submit( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+                throws Exception
+            {
+                final PomNode node = peek( pom, topDir, cache );
+                nodes.put( pom, node );
+
+                if ( node.parent != null )
+                {
+                    submitPeek( node.parent, topDir, cache, executor, seen, nodes, pending );
+                }
+                for ( final File module : node.modules )
+                {
+                    submitPeek( module, topDir, cache, executor, seen, nodes, pending );
+                }
+                return null;
+            }
+        } ) );
     }
 
     /**
-     * Search the list of project references to establish if this parent reference exists in them. This
-     * determines whether the module is inheriting something inside the project or an external reference.
+     * @return a fixed size pool of daemon threads named after the given prefix.
+     */
+    public static ExecutorService newExecutor( final int threads, final String name )
+    {
+        return Executors.newFixedThreadPool( threads, new DaemonThreadFactory( name ) );
+    }
 
-     * @param projectrefs
-     * @param parentKey
-     * @return
+    /**
+     * The result of reading a single POM: its raw model and coordinates, and the parent and module POMs it references.
      */
-    private boolean seenThisParent(final HashSet<ProjectVersionRef> projectrefs, final ProjectVersionRef parentKey)
+    private static final class PomNode
     {
-        for (final ProjectVersionRef p : projectrefs)
+        private final File pom;
+
+        private final Model model;
+
+        private final ProjectVersionRef key;
+
+        private final List<File> modules = new ArrayList<File>();
+
+        private File parent;
+
+        private boolean inheritanceRoot;
+
+        /**
+         * Why the POM could not be parsed, if it could not.
+         */
+        private Exception failure;
+
+        /**
+         * Whether a POM which could not be parsed is nonetheless well-formed XML with a <code>project</code> root.
+         */
+        private boolean projectDocument;
+
+        private PomNode( final File pom, final Model model, final ProjectVersionRef key )
         {
-            if ( p.versionlessEquals( parentKey ))
-            {
-                return true;
-            }
+            this.pom = pom;
+            this.model = model;
+            this.key = key;
         }
-        return false;
     }
 }
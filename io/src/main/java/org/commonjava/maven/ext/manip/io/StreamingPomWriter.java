@@ -0,0 +1,1149 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rewrites a POM by patching the original document rather than rebuilding it.
+ * <p>
+ * The original and the modified {@link Model} are serialized and compared one top level element at a time; only the
+ * elements which differ (typically the version, properties and dependency management) are parsed and diffed to derive
+ * a set of edits: text replacements (e.g. versions and property values), element removals and element insertions.
+ * The original document is then streamed to the output through a minimal scanner that copies everything verbatim
+ * apart from the elements being edited, so formatting, comments and element ordering are untouched. Inserted elements
+ * are placed ahead of the element which follows them in the modified model, or appended to their parent if nothing
+ * follows them, and are indented to match their siblings.
+ * </p>
+ * <p>
+ * Unlike {@link org.apache.maven.model.io.jdom.MavenJDOMWriter}, no tree of the whole document is built, and neither
+ * the result nor the unchanged parts of the models are parsed again. Any change that cannot be expressed as such an
+ * edit (or a document the scanner does not handle, such as one with an internal DTD subset) results in
+ * {@link #rewrite(byte[], Model, String)} returning null so that the caller can fall back to the JDOM writer.
+ * </p>
+ */
+class StreamingPomWriter
+{
+    private static final String MODIFIED_BY = "Modified by POM Manipulation Extension for Maven";
+
+    private static final Pattern ENCODING = Pattern.compile( "^<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']" );
+
+    private static final String ROOT = "/project[0]";
+
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    /**
+     * Child elements which identify an entry within a list, e.g. a dependency or a plugin execution.
+     */
+    private static final String[] IDENTITY = { "groupId", "artifactId", "type", "classifier", "id" };
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    /**
+     * @param original the content of the POM on disk.
+     * @param model the modified model to write.
+     * @param comment the content of the "Modified by" comment to add after the root element, or null for none.
+     * @return the patched content, or null if the changes cannot be applied by patching.
+     * @throws IOException if an error occurs serializing the model.
+     */
+    byte[] rewrite( final byte[] original, final Model model, final String comment )
+        throws IOException
+    {
+        final int offset = startsWith( original, UTF8_BOM ) ? UTF8_BOM.length : 0;
+        final Charset charset = detectCharset( original, offset );
+        if ( charset == null )
+        {
+            return null;
+        }
+
+        final String text = new String( original, offset, original.length - offset, charset );
+        if ( !Arrays.equals( text.getBytes( charset ), Arrays.copyOfRange( original, offset, original.length ) ) )
+        {
+            logger.debug( "POM content does not round trip through {}; unable to patch.", charset );
+            return null;
+        }
+
+        try
+        {
+            // Both models are compared in their serialized form, one top level section at a time; only the sections
+            // which differ are parsed and diffed.
+            final Map<String, String> target = sections( serialize( model ) );
+            final Map<String, String> source =
+                sections( serialize( new MavenXpp3Reader().read( new StringReader( text ), false ) ) );
+
+            final Edits edits = new Edits();
+            diff( source, target, edits );
+
+            if ( edits.isEmpty() && comment == null )
+            {
+                return original;
+            }
+
+            final ByteArrayOutputStream result = new ByteArrayOutputStream( original.length + 256 );
+            result.write( original, 0, offset );
+            final Output out = new Output( new OutputStreamWriter( result, charset ) );
+            patch( text, edits, comment, out );
+            out.close();
+
+            return result.toByteArray();
+        }
+        catch ( final XmlPullParserException e )
+        {
+            logger.debug( "Unable to parse POM for patching: " + e.getMessage() );
+            return null;
+        }
+        catch ( final UnsupportedEditException e )
+        {
+            logger.debug( "Unable to patch POM: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private static boolean startsWith( final byte[] content, final byte[] prefix )
+    {
+        if ( content.length < prefix.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            if ( content[i] != prefix[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Charset detectCharset( final byte[] content, final int offset )
+    {
+        final String head = new String( content, offset, Math.min( 200, content.length - offset ),
+                                        Charset.forName( "ISO-8859-1" ) );
+        final Matcher matcher = ENCODING.matcher( head );
+        if ( !matcher.find() )
+        {
+            return Charset.forName( "UTF-8" );
+        }
+
+        try
+        {
+            return Charset.forName( matcher.group( 1 ) );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    private static String serialize( final Model model )
+        throws IOException
+    {
+        final StringWriter writer = new StringWriter();
+        new MavenXpp3Writer().write( writer, model );
+        return writer.toString();
+    }
+
+    private static Xpp3Dom toDom( final String serialized )
+        throws IOException, XmlPullParserException
+    {
+        return Xpp3DomBuilder.build( new StringReader( serialized ) );
+    }
+
+    /**
+     * Split a serialized model into its top level elements, keyed by name. The writer puts each of these on a line of
+     * its own, indented by two spaces; text content is escaped, so cannot be mistaken for one.
+     */
+    private static Map<String, String> sections( final String serialized )
+        throws UnsupportedEditException
+    {
+        final Map<String, String> result = new LinkedHashMap<String, String>();
+
+        final int root = serialized.indexOf( "\n<project" );
+        final int rootEnd = serialized.lastIndexOf( "\n</project>" );
+        if ( root < 0 || rootEnd < root )
+        {
+            throw new UnsupportedEditException( "unexpected serialized model" );
+        }
+
+        int start = -1;
+        String name = null;
+        int i = serialized.indexOf( '\n', root + 1 );
+        while ( i < rootEnd )
+        {
+            if ( serialized.startsWith( "\n  <", i ) && serialized.charAt( i + 4 ) != '/' )
+            {
+                if ( name != null )
+                {
+                    put( result, name, serialized.substring( start, i ) );
+                }
+                start = i + 1;
+                name = tagName( serialized, i + 3 );
+            }
+            i = serialized.indexOf( '\n', i + 1 );
+        }
+        if ( name != null )
+        {
+            put( result, name, serialized.substring( start, rootEnd ) );
+        }
+        return result;
+    }
+
+    private static void put( final Map<String, String> sections, final String name, final String section )
+        throws UnsupportedEditException
+    {
+        if ( sections.put( name, section ) != null )
+        {
+            throw new UnsupportedEditException( "repeated top level element " + name );
+        }
+    }
+
+    /**
+     * Compare the top level sections of two serialized models, recording the edits required to turn the first into
+     * the second. Sections which are textually identical are skipped without being parsed.
+     */
+    private void diff( final Map<String, String> source, final Map<String, String> target, final Edits edits )
+        throws IOException, XmlPullParserException, UnsupportedEditException
+    {
+        final List<Xpp3Dom> appended = new ArrayList<Xpp3Dom>();
+        for ( final Map.Entry<String, String> entry : target.entrySet() )
+        {
+            final String original = source.get( entry.getKey() );
+            if ( original == null )
+            {
+                appended.add( toDom( entry.getValue() ) );
+            }
+            else if ( !original.equals( entry.getValue() ) )
+            {
+                diff( toDom( original ), toDom( entry.getValue() ), ROOT + '/' + entry.getKey() + "[0]", edits );
+            }
+        }
+        for ( final String name : source.keySet() )
+        {
+            if ( !target.containsKey( name ) )
+            {
+                edits.removals.add( ROOT + '/' + name + "[0]" );
+            }
+        }
+        if ( !appended.isEmpty() )
+        {
+            edits.insertions.put( ROOT, appended );
+        }
+    }
+
+    /**
+     * Compare two serialized elements, recording the edits required to turn the first into the second. Paths are of the
+     * form <code>/project[0]/dependencies[0]/dependency[3]</code>, where the index counts preceding siblings of the
+     * same name within the original document.
+     */
+    private void diff( final Xpp3Dom original, final Xpp3Dom modified, final String path, final Edits edits )
+        throws UnsupportedEditException
+    {
+        if ( !attributesEqual( original, modified ) )
+        {
+            throw new UnsupportedEditException( "attributes of " + path + " changed" );
+        }
+
+        final Xpp3Dom[] originalChildren = original.getChildren();
+        final Xpp3Dom[] modifiedChildren = modified.getChildren();
+
+        if ( originalChildren.length == 0 && modifiedChildren.length == 0 )
+        {
+            if ( !valuesEqual( original.getValue(), modified.getValue() ) )
+            {
+                edits.replacements.put( path, modified.getValue() );
+            }
+            return;
+        }
+        if ( ( originalChildren.length == 0 && !isEmpty( original.getValue() ) )
+            || ( modifiedChildren.length == 0 && !isEmpty( modified.getValue() ) ) )
+        {
+            throw new UnsupportedEditException( path + " changed between text and element content" );
+        }
+
+        final Map<String, List<Xpp3Dom>> originalByName = groupByName( originalChildren );
+        final Map<String, List<Xpp3Dom>> modifiedByName = groupByName( modifiedChildren );
+
+        final Set<String> names = new HashSet<String>( originalByName.keySet() );
+        names.addAll( modifiedByName.keySet() );
+
+        // The original path of each modified child which corresponds to an existing element.
+        final Map<Xpp3Dom, String> existing = new IdentityHashMap<Xpp3Dom, String>();
+
+        for ( final String name : names )
+        {
+            final List<Xpp3Dom> originalList = get( originalByName, name );
+            final List<Xpp3Dom> modifiedList = get( modifiedByName, name );
+
+            final int[] matches = align( originalList, modifiedList );
+            final boolean[] matched = new boolean[originalList.size()];
+
+            for ( int j = 0; j < modifiedList.size(); j++ )
+            {
+                if ( matches[j] >= 0 )
+                {
+                    final String childPath = path + '/' + name + '[' + matches[j] + ']';
+                    matched[matches[j]] = true;
+                    existing.put( modifiedList.get( j ), childPath );
+                    diff( originalList.get( matches[j] ), modifiedList.get( j ), childPath, edits );
+                }
+            }
+            for ( int i = 0; i < matched.length; i++ )
+            {
+                if ( !matched[i] )
+                {
+                    edits.removals.add( path + '/' + name + '[' + i + ']' );
+                }
+            }
+        }
+
+        // A new child goes ahead of the next existing element of the same name, so that e.g. a dependency added at the
+        // start of a list is written there; any others are appended in the order of the modified model.
+        final Map<String, List<Xpp3Dom>> pending = new HashMap<String, List<Xpp3Dom>>();
+        final Set<Xpp3Dom> placed = Collections.newSetFromMap( new IdentityHashMap<Xpp3Dom, Boolean>() );
+        for ( final Xpp3Dom child : modifiedChildren )
+        {
+            final String anchor = existing.get( child );
+            final List<Xpp3Dom> preceding = pending.remove( child.getName() );
+            if ( anchor == null )
+            {
+                final List<Xpp3Dom> list = preceding == null ? new ArrayList<Xpp3Dom>() : preceding;
+                list.add( child );
+                pending.put( child.getName(), list );
+            }
+            else if ( preceding != null )
+            {
+                edits.insertionsBefore.put( anchor, preceding );
+                placed.addAll( preceding );
+            }
+        }
+
+        final List<Xpp3Dom> appended = new ArrayList<Xpp3Dom>();
+        for ( final Xpp3Dom child : modifiedChildren )
+        {
+            if ( !existing.containsKey( child ) && !placed.contains( child ) )
+            {
+                appended.add( child );
+            }
+        }
+        if ( !appended.isEmpty() )
+        {
+            edits.insertions.put( path, appended );
+        }
+    }
+
+    /**
+     * Match up the original and modified entries of a list of same-named elements.
+     *
+     * @return for each modified entry, the index of the original entry it corresponds to or -1 if it is new.
+     */
+    private static int[] align( final List<Xpp3Dom> original, final List<Xpp3Dom> modified )
+    {
+        final int[] result = new int[modified.size()];
+
+        boolean byIndex = original.size() == modified.size();
+        boolean keyed = false;
+        for ( int i = 0; byIndex && i < original.size(); i++ )
+        {
+            final Xpp3Dom o = original.get( i );
+            final Xpp3Dom m = modified.get( i );
+            byIndex = ( o.getChildCount() == 0 && m.getChildCount() == 0 ) || valuesEqual( identity( o ), identity( m ) );
+        }
+        for ( final Xpp3Dom dom : original )
+        {
+            keyed |= dom.getChildCount() == 0 || identity( dom ) != null;
+        }
+
+        if ( byIndex || !keyed )
+        {
+            for ( int j = 0; j < result.length; j++ )
+            {
+                result[j] = j < original.size() ? j : -1;
+            }
+            return result;
+        }
+
+        // Greedy in-order matching on the identifying content of each entry.
+        final Map<String, LinkedList<Integer>> byKey = new HashMap<String, LinkedList<Integer>>();
+        for ( int i = 0; i < original.size(); i++ )
+        {
+            final String key = key( original.get( i ) );
+            LinkedList<Integer> indices = byKey.get( key );
+            if ( indices == null )
+            {
+                indices = new LinkedList<Integer>();
+                byKey.put( key, indices );
+            }
+            indices.add( i );
+        }
+
+        int last = -1;
+        for ( int j = 0; j < result.length; j++ )
+        {
+            result[j] = -1;
+
+            final LinkedList<Integer> indices = byKey.get( key( modified.get( j ) ) );
+            while ( indices != null && !indices.isEmpty() )
+            {
+                final int i = indices.removeFirst();
+                if ( i > last )
+                {
+                    result[j] = i;
+                    last = i;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String key( final Xpp3Dom dom )
+    {
+        if ( dom.getChildCount() == 0 )
+        {
+            return "=" + dom.getValue();
+        }
+        final String identity = identity( dom );
+        return identity == null ? "" : identity;
+    }
+
+    private static String identity( final Xpp3Dom dom )
+    {
+        StringBuilder sb = null;
+        for ( final String name : IDENTITY )
+        {
+            final Xpp3Dom child = dom.getChild( name );
+            if ( child != null )
+            {
+                if ( sb == null )
+                {
+                    sb = new StringBuilder();
+                }
+                sb.append( name )
+                  .append( '=' )
+                  .append( child.getValue() )
+                  .append( ';' );
+            }
+        }
+        return sb == null ? null : sb.toString();
+    }
+
+    private static Map<String, List<Xpp3Dom>> groupByName( final Xpp3Dom[] children )
+    {
+        final Map<String, List<Xpp3Dom>> result = new LinkedHashMap<String, List<Xpp3Dom>>();
+        for ( final Xpp3Dom child : children )
+        {
+            List<Xpp3Dom> list = result.get( child.getName() );
+            if ( list == null )
+            {
+                list = new ArrayList<Xpp3Dom>();
+                result.put( child.getName(), list );
+            }
+            list.add( child );
+        }
+        return result;
+    }
+
+    private static List<Xpp3Dom> get( final Map<String, List<Xpp3Dom>> map, final String name )
+    {
+        final List<Xpp3Dom> list = map.get( name );
+        return list == null ? new ArrayList<Xpp3Dom>() : list;
+    }
+
+    private static boolean attributesEqual( final Xpp3Dom original, final Xpp3Dom modified )
+    {
+        final String[] names = original.getAttributeNames();
+        if ( names.length != modified.getAttributeNames().length )
+        {
+            return false;
+        }
+        for ( final String name : names )
+        {
+            if ( !valuesEqual( original.getAttribute( name ), modified.getAttribute( name ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valuesEqual( final String a, final String b )
+    {
+        return isEmpty( a ) ? isEmpty( b ) : a.equals( b );
+    }
+
+    private static boolean isEmpty( final String value )
+    {
+        return value == null || value.length() == 0;
+    }
+
+    /**
+     * Stream the original document to the output, applying the edits.
+     */
+    private void patch( final String text, final Edits edits, final String comment, final Output out )
+        throws IOException, UnsupportedEditException
+    {
+        final String newline = text.contains( "\r\n" ) ? "\r\n" : "\n";
+
+        final LinkedList<Frame> stack = new LinkedList<Frame>();
+        stack.push( new Frame( "", "" ) );
+        Frame root = null;
+
+        int i = 0;
+        while ( i < text.length() )
+        {
+            if ( text.charAt( i ) != '<' )
+            {
+                int next = text.indexOf( '<', i );
+                if ( next < 0 )
+                {
+                    next = text.length();
+                }
+                out.append( text, i, next );
+                i = next;
+                continue;
+            }
+
+            final int special = skipSpecial( text, i );
+            if ( special > i )
+            {
+                // Drop any previous "Modified by" comment following the root element; a new one is appended below.
+                if ( comment != null && stack.size() == 1 && root != null && text.startsWith( "<!--", i )
+                    && text.substring( i + 4, special - 3 )
+                           .trim()
+                           .startsWith( MODIFIED_BY ) )
+                {
+                    out.trimLine();
+                }
+                else
+                {
+                    out.append( text, i, special );
+                }
+                i = special;
+                continue;
+            }
+
+            final int end = tagEnd( text, i );
+            if ( text.startsWith( "</", i ) )
+            {
+                final Frame frame = stack.pop();
+                final List<Xpp3Dom> inserted = edits.insertions.get( frame.path );
+                if ( inserted != null )
+                {
+                    insert( out, frame, inserted, root, newline, false );
+                }
+                out.append( text, i, end );
+                i = end;
+                continue;
+            }
+
+            final boolean selfClosing = text.charAt( end - 2 ) == '/';
+            final String name = tagName( text, i );
+
+            final Frame parent = stack.peek();
+            final String path = parent.path + '/' + name + '[' + parent.next( name ) + ']';
+            if ( parent.childIndent == null )
+            {
+                parent.childIndent = out.lineIndent();
+            }
+
+            final List<Xpp3Dom> before = edits.insertionsBefore.get( path );
+            if ( before != null )
+            {
+                insertBefore( out, parent, before, root, newline );
+            }
+
+            if ( edits.removals.contains( path ) )
+            {
+                out.trimLine();
+                i = skipElement( text, end, selfClosing );
+                continue;
+            }
+
+            final Frame frame = new Frame( path, out.lineIndent() );
+            if ( root == null )
+            {
+                root = frame;
+            }
+
+            final String startTag = selfClosing ? text.substring( i, end - 2 )
+                                                      .trim() + '>' : text.substring( i, end );
+
+            if ( edits.replacements.containsKey( path ) )
+            {
+                out.append( startTag )
+                   .append( escape( edits.replacements.get( path ) ) );
+                if ( selfClosing )
+                {
+                    out.append( "</" )
+                       .append( name )
+                       .append( '>' );
+                    i = end;
+                }
+                else
+                {
+                    i = leafEnd( text, end, path );
+                    stack.push( frame );
+                }
+                continue;
+            }
+
+            if ( selfClosing )
+            {
+                final List<Xpp3Dom> inserted = edits.insertions.get( path );
+                if ( inserted != null )
+                {
+                    out.append( startTag );
+                    insert( out, frame, inserted, root, newline, true );
+                    out.append( "</" )
+                       .append( name )
+                       .append( '>' );
+                }
+                else
+                {
+                    out.append( text, i, end );
+                }
+                i = end;
+                continue;
+            }
+
+            out.append( text, i, end );
+            stack.push( frame );
+            i = end;
+        }
+
+        if ( stack.size() != 1 )
+        {
+            throw new UnsupportedEditException( "unbalanced document" );
+        }
+
+        if ( comment != null )
+        {
+            if ( !out.isEmpty() && out.lastChar() != '\n' )
+            {
+                out.append( newline );
+            }
+            out.append( "<!--" )
+               .append( comment )
+               .append( "-->" )
+               .append( newline );
+        }
+    }
+
+    private static void insert( final Output out, final Frame frame, final List<Xpp3Dom> inserted,
+                                final Frame root, final String newline, final boolean empty )
+        throws IOException
+    {
+        final String unit = indentUnit( root );
+        final String indent = isEmpty( frame.childIndent ) ? frame.indent + unit : frame.childIndent;
+
+        // Insert ahead of the whitespace preceding the closing tag so it stays aligned.
+        final String trailing = empty ? "" : out.takeTrailingWhitespace();
+
+        for ( final Xpp3Dom dom : inserted )
+        {
+            out.append( newline )
+               .append( indent );
+            serialize( out, dom, indent, unit, newline );
+        }
+
+        if ( trailing.indexOf( '\n' ) >= 0 )
+        {
+            out.append( trailing );
+        }
+        else
+        {
+            out.append( newline )
+               .append( frame.indent );
+        }
+    }
+
+    /**
+     * Write new elements ahead of the existing element whose start tag is about to be copied, on lines of their own
+     * if it is on a line of its own.
+     */
+    private static void insertBefore( final Output out, final Frame parent, final List<Xpp3Dom> inserted,
+                                      final Frame root, final String newline )
+        throws IOException
+    {
+        final String unit = indentUnit( root );
+        final String indent = out.lineIndent();
+
+        for ( final Xpp3Dom dom : inserted )
+        {
+            serialize( out, dom, indent == null ? parent.indent + unit : indent, unit, newline );
+            if ( indent != null )
+            {
+                out.append( newline )
+                   .append( indent );
+            }
+        }
+    }
+
+    /**
+     * @return the indentation added per level of nesting, as used by the children of the root element.
+     */
+    private static String indentUnit( final Frame root )
+    {
+        if ( root != null && root.childIndent != null && root.childIndent.length() > root.indent.length()
+            && root.childIndent.startsWith( root.indent ) )
+        {
+            return root.childIndent.substring( root.indent.length() );
+        }
+        return "  ";
+    }
+
+    private static void serialize( final Output out, final Xpp3Dom dom, final String indent,
+                                   final String unit, final String newline )
+        throws IOException
+    {
+        out.append( '<' )
+           .append( dom.getName() );
+        for ( final String attribute : dom.getAttributeNames() )
+        {
+            out.append( ' ' )
+               .append( attribute )
+               .append( "=\"" )
+               .append( escape( dom.getAttribute( attribute ) ).replace( "\"", "&quot;" ) )
+               .append( '"' );
+        }
+
+        final Xpp3Dom[] children = dom.getChildren();
+        if ( children.length == 0 )
+        {
+            if ( dom.getValue() == null )
+            {
+                out.append( "/>" );
+            }
+            else
+            {
+                out.append( '>' )
+                   .append( escape( dom.getValue() ) )
+                   .append( "</" )
+                   .append( dom.getName() )
+                   .append( '>' );
+            }
+            return;
+        }
+
+        out.append( '>' );
+        for ( final Xpp3Dom child : children )
+        {
+            out.append( newline )
+               .append( indent )
+               .append( unit );
+            serialize( out, child, indent + unit, unit, newline );
+        }
+        out.append( newline )
+           .append( indent )
+           .append( "</" )
+           .append( dom.getName() )
+           .append( '>' );
+    }
+
+    private static String escape( final String value )
+    {
+        if ( value == null )
+        {
+            return "";
+        }
+        return value.replace( "&", "&amp;" )
+                    .replace( "<", "&lt;" )
+                    .replace( ">", "&gt;" );
+    }
+
+    /**
+     * @return the index following a comment, CDATA section, processing instruction or declaration starting at the
+     * given index, or the index itself if there is none.
+     */
+    private static int skipSpecial( final String text, final int i )
+        throws UnsupportedEditException
+    {
+        if ( text.startsWith( "<!--", i ) )
+        {
+            return indexAfter( text, "-->", i + 4 );
+        }
+        if ( text.startsWith( "<![CDATA[", i ) )
+        {
+            return indexAfter( text, "]]>", i + 9 );
+        }
+        if ( text.startsWith( "<?", i ) )
+        {
+            return indexAfter( text, "?>", i + 2 );
+        }
+        if ( text.startsWith( "<!", i ) )
+        {
+            final int end = indexAfter( text, ">", i + 2 );
+            if ( text.substring( i, end )
+                     .indexOf( '[' ) >= 0 )
+            {
+                throw new UnsupportedEditException( "internal DTD subset" );
+            }
+            return end;
+        }
+        return i;
+    }
+
+    private static int indexAfter( final String text, final String token, final int from )
+        throws UnsupportedEditException
+    {
+        final int index = text.indexOf( token, from );
+        if ( index < 0 )
+        {
+            throw new UnsupportedEditException( "unterminated " + token );
+        }
+        return index + token.length();
+    }
+
+    /**
+     * @return the index following the end of the tag starting at the given index, allowing for quoted attributes.
+     */
+    private static int tagEnd( final String text, final int i )
+        throws UnsupportedEditException
+    {
+        char quote = 0;
+        for ( int j = i + 1; j < text.length(); j++ )
+        {
+            final char c = text.charAt( j );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '>' )
+            {
+                return j + 1;
+            }
+        }
+        throw new UnsupportedEditException( "unterminated tag" );
+    }
+
+    private static String tagName( final String text, final int i )
+    {
+        int j = i + 1;
+        while ( j < text.length() && !Character.isWhitespace( text.charAt( j ) ) && text.charAt( j ) != '/'
+            && text.charAt( j ) != '>' )
+        {
+            j++;
+        }
+        return text.substring( i + 1, j );
+    }
+
+    /**
+     * @return the index following the end tag of the element whose start tag ends at the given index.
+     */
+    private static int skipElement( final String text, final int from, final boolean selfClosing )
+        throws UnsupportedEditException
+    {
+        if ( selfClosing )
+        {
+            return from;
+        }
+
+        int depth = 1;
+        int i = from;
+        while ( depth > 0 )
+        {
+            i = text.indexOf( '<', i );
+            if ( i < 0 )
+            {
+                throw new UnsupportedEditException( "unbalanced document" );
+            }
+
+            final int special = skipSpecial( text, i );
+            if ( special > i )
+            {
+                i = special;
+                continue;
+            }
+
+            final int end = tagEnd( text, i );
+            if ( text.startsWith( "</", i ) )
+            {
+                depth--;
+            }
+            else if ( text.charAt( end - 2 ) != '/' )
+            {
+                depth++;
+            }
+            i = end;
+        }
+        return i;
+    }
+
+    /**
+     * @return the index of the end tag of a text-only element whose start tag ends at the given index.
+     */
+    private static int leafEnd( final String text, final int from, final String path )
+        throws UnsupportedEditException
+    {
+        int i = from;
+        while ( true )
+        {
+            i = text.indexOf( '<', i );
+            if ( i < 0 )
+            {
+                throw new UnsupportedEditException( "unbalanced document" );
+            }
+            if ( text.startsWith( "</", i ) )
+            {
+                return i;
+            }
+
+            final int special = skipSpecial( text, i );
+            if ( special == i )
+            {
+                throw new UnsupportedEditException( path + " has element content in the original document" );
+            }
+            i = special;
+        }
+    }
+
+    private static final class Frame
+    {
+        private final String path;
+
+        private final String indent;
+
+        private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        private String childIndent;
+
+        private Frame( final String path, final String indent )
+        {
+            this.path = path;
+            this.indent = indent == null ? "" : indent;
+        }
+
+        private int next( final String name )
+        {
+            final Integer count = counts.get( name );
+            final int index = count == null ? 0 : count;
+            counts.put( name, index + 1 );
+            return index;
+        }
+    }
+
+    /**
+     * Writes the patched document, holding back any trailing whitespace; that is all the patching ever needs to look
+     * back at or take back.
+     */
+    private static final class Output
+    {
+        private final Writer writer;
+
+        private final StringBuilder whitespace = new StringBuilder();
+
+        private boolean written;
+
+        private char last;
+
+        private Output( final Writer writer )
+        {
+            this.writer = new BufferedWriter( writer );
+        }
+
+        private Output append( final CharSequence text )
+            throws IOException
+        {
+            return append( text, 0, text.length() );
+        }
+
+        private Output append( final CharSequence text, final int start, final int end )
+            throws IOException
+        {
+            int q = end;
+            while ( q > start && isWhitespace( text.charAt( q - 1 ) ) )
+            {
+                q--;
+            }
+            if ( q > start )
+            {
+                flush();
+                writer.append( text, start, q );
+                last = text.charAt( q - 1 );
+                written = true;
+            }
+            whitespace.append( text, q, end );
+            return this;
+        }
+
+        private Output append( final char c )
+            throws IOException
+        {
+            return append( String.valueOf( c ) );
+        }
+
+        /**
+         * @return the whitespace between the last line break and the end of the output, or null if the output since
+         * the last line break is not just whitespace.
+         */
+        private String lineIndent()
+        {
+            int q = whitespace.length();
+            while ( q > 0 && ( whitespace.charAt( q - 1 ) == ' ' || whitespace.charAt( q - 1 ) == '\t' ) )
+            {
+                q--;
+            }
+            if ( q > 0 ? whitespace.charAt( q - 1 ) == '\n' : !written )
+            {
+                return whitespace.substring( q );
+            }
+            return null;
+        }
+
+        /**
+         * Remove the indentation and line break preceding an element that is being dropped.
+         */
+        private void trimLine()
+        {
+            int q = whitespace.length();
+            while ( q > 0 && ( whitespace.charAt( q - 1 ) == ' ' || whitespace.charAt( q - 1 ) == '\t' ) )
+            {
+                q--;
+            }
+            if ( q > 0 && whitespace.charAt( q - 1 ) == '\n' )
+            {
+                q--;
+                if ( q > 0 && whitespace.charAt( q - 1 ) == '\r' )
+                {
+                    q--;
+                }
+                whitespace.setLength( q );
+            }
+        }
+
+        /**
+         * @return the whitespace at the end of the output, which is removed from it.
+         */
+        private String takeTrailingWhitespace()
+        {
+            final String result = whitespace.toString();
+            whitespace.setLength( 0 );
+            return result;
+        }
+
+        private boolean isEmpty()
+        {
+            return !written && whitespace.length() == 0;
+        }
+
+        private char lastChar()
+        {
+            return whitespace.length() > 0 ? whitespace.charAt( whitespace.length() - 1 ) : last;
+        }
+
+        private void close()
+            throws IOException
+        {
+            flush();
+            writer.close();
+        }
+
+        private void flush()
+            throws IOException
+        {
+            if ( whitespace.length() > 0 )
+            {
+                writer.append( whitespace );
+                whitespace.setLength( 0 );
+            }
+        }
+
+        private static boolean isWhitespace( final char c )
+        {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+    }
+
+    private static final class Edits
+    {
+        private final Map<String, String> replacements = new HashMap<String, String>();
+
+        private final Set<String> removals = new HashSet<String>();
+
+        /**
+         * Elements to append, keyed by the path of their parent.
+         */
+        private final Map<String, List<Xpp3Dom>> insertions = new HashMap<String, List<Xpp3Dom>>();
+
+        /**
+         * Elements to insert, keyed by the path of the existing element they precede.
+         */
+        private final Map<String, List<Xpp3Dom>> insertionsBefore = new HashMap<String, List<Xpp3Dom>>();
+
+        private boolean isEmpty()
+        {
+            return replacements.isEmpty() && removals.isEmpty() && insertions.isEmpty() && insertionsBefore.isEmpty();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Edits{" +
+                    "replacements=" + replacements +
+                    ", removals=" + removals +
+                    ", insertions=" + insertions.keySet() +
+                    ", insertionsBefore=" + insertionsBefore.keySet() +
+                    '}';
+        }
+    }
+
+    private static final class UnsupportedEditException
+        extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedEditException( final String message )
+        {
+            super( message );
+        }
+    }
+}
@@ -17,6 +17,7 @@ package org.commonjava.maven.ext.manip.resolver;
 
 import java.io.File;
 import java.util.List;
+import java.util.Properties;
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
@@ -31,7 +32,8 @@ import org.commonjava.maven.ext.manip.ManipulationException;
 public interface ExtensionInfrastructure
 {
     void init( final File targetDirectory, final List<ArtifactRepository> remoteRepositories,
-               final ArtifactRepository localRepository, final Settings settings, final List<String> activeProfiles)
+               final ArtifactRepository localRepository, final Settings settings, final List<String> activeProfiles,
+               final Properties userProperties )
         throws ManipulationException;
 
     void finish ();
@@ -15,16 +15,32 @@
  */
 package org.commonjava.maven.ext.manip.resolver;
 
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.commonjava.maven.atlas.ident.ref.ArtifactRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectRef;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.io.PomIO;
 import org.commonjava.maven.galley.TransferException;
 import org.commonjava.maven.galley.maven.GalleyMavenException;
 import org.commonjava.maven.galley.maven.model.view.DocRef;
@@ -34,6 +50,8 @@ import org.commonjava.maven.galley.maven.model.view.meta.MavenMetadataView;
 import org.commonjava.maven.galley.maven.parse.GalleyMavenXMLException;
 import org.commonjava.maven.galley.model.Location;
 import org.commonjava.maven.galley.model.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
@@ -55,6 +73,8 @@ public class GalleyAPIWrapper
         private static final long serialVersionUID = 1L;
     };
 
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
     @Requirement( role = ExtensionInfrastructure.class, hint = "galley" )
     private GalleyInfrastructure infra;
 
@@ -98,6 +118,107 @@ public class GalleyAPIWrapper
                     .getMetadata( ref, MAVEN_REPOS );
     }
 
+    /**
+     * Read the versions listed in the repository metadata (<code>maven-metadata.xml</code>) of a project, from every
+     * repository.
+     *
+     * @param ref the project to read the metadata of.
+     * @return the versions; empty if no repository has metadata for the project.
+     * @throws GalleyMavenException if the metadata cannot be retrieved or parsed.
+     */
+    public Set<String> readMetadataVersions( final ProjectRef ref )
+        throws GalleyMavenException
+    {
+        final Set<String> versions = new HashSet<String>();
+        for ( final Location location : getMetadataLocations() )
+        {
+            versions.addAll( readMetadataVersions( location, ref ) );
+        }
+        return versions;
+    }
+
+    /**
+     * Read the repository metadata versions of several projects, fetching the metadata of each project from each
+     * repository concurrently. Failures are logged and the project is left out of the result, so that the error is
+     * reported if its versions are later read through {@link #readMetadataVersions(ProjectRef)}.
+     *
+     * @param refs the projects to read the metadata of.
+     * @param threads the maximum number of concurrent fetches.
+     * @return the versions of each project whose metadata could be read.
+     * @throws GalleyMavenException if the repositories cannot be determined.
+     */
+    public Map<ProjectRef, Set<String>> readMetadataVersions( final Collection<ProjectRef> refs, final int threads )
+        throws GalleyMavenException
+    {
+        final List<Location> locations = getMetadataLocations();
+        final Map<ProjectRef, Set<String>> result = new HashMap<ProjectRef, Set<String>>();
+        for ( final ProjectRef ref : refs )
+        {
+            result.put( ref, new HashSet<String>() );
+        }
+
+        final int count = result.size() * locations.size();
+        if ( count == 0 )
+        {
+            return result;
+        }
+
+        final ExecutorService executor = PomIO.newExecutor( Math.max( 1, Math.min( threads, count ) ),
+                                                            "metadata-prefetch" );
+        try
+        {
+            final List<ProjectRef> submitted = new ArrayList<ProjectRef>( count );
+            final List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>( count );
+            for ( final ProjectRef ref : result.keySet() )
+            {
+                for ( final Location location : locations )
+                {
+                    submitted.add( ref );
+                    futures.add( executor.submit( new Callable<List<String>>()
+                    {
+                        @Override
+                        public List<String> call()
+                            throws GalleyMavenException
+                        {
+                            return readMetadataVersions( location, ref );
+                        }
+                    } ) );
+                }
+            }
+
+            final Set<ProjectRef> failed = new HashSet<ProjectRef>();
+            for ( int i = 0; i < futures.size(); i++ )
+            {
+                final ProjectRef ref = submitted.get( i );
+                try
+                {
+                    result.get( ref )
+                          .addAll( futures.get( i )
+                                          .get() );
+                }
+                catch ( final ExecutionException e )
+                {
+                    logger.debug( "Prefetch of metadata for {} failed: {}", ref, e.getCause() );
+                    failed.add( ref );
+                }
+            }
+            result.keySet()
+                  .removeAll( failed );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread()
+                  .interrupt();
+            result.clear();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return result;
+    }
+
     public Transfer resolveArtifact( final ArtifactRef asPomArtifact )
         throws TransferException
     {
@@ -105,6 +226,57 @@ public class GalleyAPIWrapper
                     .retrieveFirst( MAVEN_REPOS, asPomArtifact );
     }
 
+    private List<Location> getMetadataLocations()
+        throws GalleyMavenException
+    {
+        try
+        {
+            return infra.getLocationExpander()
+                        .expand( MAVEN_REPOS );
+        }
+        catch ( final TransferException e )
+        {
+            throw new GalleyMavenException( "Failed to expand repository locations: %s", e, e.getMessage() );
+        }
+    }
+
+    private List<String> readMetadataVersions( final Location location, final ProjectRef ref )
+        throws GalleyMavenException
+    {
+        InputStream stream = null;
+        try
+        {
+            final Transfer transfer = infra.getMetadataManager()
+                                           .retrieve( location, ref );
+            if ( transfer == null || !transfer.exists() )
+            {
+                return Collections.emptyList();
+            }
+
+            stream = transfer.openInputStream();
+            return MetadataVersionParser.parse( stream );
+        }
+        catch ( final TransferException e )
+        {
+            throw new GalleyMavenException( "Failed to retrieve metadata for: %s from: %s. Reason: %s", e, ref,
+                                            location, e.getMessage() );
+        }
+        catch ( final IOException e )
+        {
+            throw new GalleyMavenException( "Failed to read metadata for: %s from: %s. Reason: %s", e, ref, location,
+                                            e.getMessage() );
+        }
+        catch ( final XMLStreamException e )
+        {
+            throw new GalleyMavenException( "Failed to parse metadata for: %s from: %s. Reason: %s", e, ref, location,
+                                            e.getMessage() );
+        }
+        finally
+        {
+            closeQuietly( stream );
+        }
+    }
+
     public String toXML( final Node config, final boolean includeXmlDeclaration )
     {
         return infra.getXml()
@@ -15,12 +15,15 @@
  */
 package org.commonjava.maven.ext.manip.resolver;
 
+import static org.commonjava.maven.ext.manip.util.PropertiesUtils.getIntegerProperty;
+
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.repository.MirrorSelector;
@@ -68,6 +71,8 @@ import org.commonjava.maven.galley.spi.transport.TransportManager;
 import org.commonjava.maven.galley.transport.TransportManagerImpl;
 import org.commonjava.maven.galley.transport.htcli.HttpClientTransport;
 import org.commonjava.maven.galley.transport.htcli.HttpImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Manager component responsible for setting up and managing the Galley API instances used to resolve POMs and metadata.
@@ -78,22 +83,87 @@ import org.commonjava.maven.galley.transport.htcli.HttpImpl;
 public class GalleyInfrastructure
     implements ExtensionInfrastructure
 {
+    /**
+     * The number of threads used for Galley transfers before further transfers are queued.
+     */
+    public static final String TRANSFER_CORE_THREADS_PROPERTY = "manipulation.transfer.coreThreads";
+
+    public static final int DEFAULT_TRANSFER_CORE_THREADS = 4;
+
+    /**
+     * The maximum number of threads used for Galley transfers, once the queue is full.
+     */
+    public static final String TRANSFER_MAX_THREADS_PROPERTY = "manipulation.transfer.maxThreads";
+
+    public static final int DEFAULT_TRANSFER_MAX_THREADS = 16;
+
+    /**
+     * The maximum number of queued Galley transfers. Beyond this, the thread requesting a transfer performs it itself.
+     */
+    public static final String TRANSFER_QUEUE_SIZE_PROPERTY = "manipulation.transfer.queueSize";
+
+    public static final int DEFAULT_TRANSFER_QUEUE_SIZE = 256;
+
+    /**
+     * Whether to perform Galley transfers on virtual threads. Requires JDK 21 or later; ignored otherwise.
+     */
+    public static final String TRANSFER_VIRTUAL_THREADS_PROPERTY = "manipulation.transfer.virtualThreads";
+
+    /**
+     * How long {@link #finish()} waits for transfers in progress to complete, in seconds.
+     */
+    public static final String TRANSFER_SHUTDOWN_TIMEOUT_PROPERTY = "manipulation.transfer.shutdownTimeout";
+
+    public static final int DEFAULT_TRANSFER_SHUTDOWN_TIMEOUT = 30;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
     @Requirement
     private MirrorSelector mirrorSelector;
 
-    private MavenPomReader pomReader;
-
     private LocationExpander locationExpander;
 
+    private Transport customTransport;
+
+    private File cacheDir;
+
+    private int coreThreads;
+
+    private int maxThreads;
+
+    private int queueSize;
+
+    private boolean virtualThreads;
+
+    private int shutdownTimeout;
+
+    /**
+     * Set once the Galley components below have been created by {@link #start()}.
+     */
+    private volatile boolean started;
+
+    private MavenPomReader pomReader;
+
     private ArtifactManager artifactManager;
 
+    private ArtifactMetadataManager metadataManager;
+
     private MavenMetadataReader metadataReader;
 
     private XMLInfrastructure xml;
 
     private XPathManager xpaths;
 
-    private ExecutorService executor;
+    /**
+     * Runs the individual downloads and uploads.
+     */
+    private TransferExecutor transferExecutor;
+
+    /**
+     * Runs the parts of batch operations (e.g. retrieving from several locations), which wait for the individual
+     * transfers; a separate pool, so that they cannot occupy every thread needed by those transfers.
+     */
+    private TransferExecutor batchExecutor;
 
     protected GalleyInfrastructure()
     {
@@ -103,7 +173,7 @@ public class GalleyInfrastructure
                                  final Settings settings, final List<String> activeProfiles)
         throws ManipulationException
     {
-        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles);
+        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles, new Properties() );
     }
 
     public GalleyInfrastructure( final File targetDirectory, final List<ArtifactRepository> remoteRepositories, final ArtifactRepository localRepository,
@@ -112,25 +182,34 @@ public class GalleyInfrastructure
         throws ManipulationException
     {
         this.mirrorSelector = mirrorSelector;
-        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles, customLocation, customTransport, cacheDir );
+        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles, new Properties(),
+              customLocation, customTransport, cacheDir );
     }
 
     public MavenPomReader getPomReader()
     {
+        start();
         return pomReader;
     }
 
     @Override
     public void init( final File targetDirectory, final List<ArtifactRepository> remoteRepositories, final ArtifactRepository localRepository,
-                      final Settings settings, final List<String> activeProfiles)
+                      final Settings settings, final List<String> activeProfiles, final Properties userProperties )
         throws ManipulationException
     {
-        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles, null, null, null );
+        finish();
+        init( targetDirectory, remoteRepositories, localRepository, settings, activeProfiles, userProperties, null,
+              null, null );
     }
 
-    private void init( final File targetDirectory, final List<ArtifactRepository> remoteRepositories, final ArtifactRepository localRepository,
-                      final Settings settings, final List<String> activeProfiles, final Location customLocation,
-                       final Transport customTransport, File cacheDir )
+    /**
+     * Only the repository locations and configuration are set up here, so that errors in them are still reported
+     * immediately. The rest of the Galley stack (transports, cache, thread pools and readers) is created by
+     * {@link #start()} on first use, as builds which do not need to resolve anything remotely should not pay for it.
+     */
+    private synchronized void init( final File targetDirectory, final List<ArtifactRepository> remoteRepositories, final ArtifactRepository localRepository,
+                      final Settings settings, final List<String> activeProfiles, final Properties userProperties,
+                      final Location customLocation, final Transport customTransport, final File cacheDir )
         throws ManipulationException
     {
         try
@@ -148,79 +227,175 @@ public class GalleyInfrastructure
             throw new ManipulationException( "Failed to setup Maven-specific LocationExpander: %s", e, e.getMessage() );
         }
 
-        xml = new XMLInfrastructure();
-        xpaths = new XPathManager();
+        this.customTransport = customTransport;
+        this.cacheDir = cacheDir == null ? new File( targetDirectory, "manipulator-cache" ) : cacheDir;
 
-        final TransportManager transports;
-        if ( customTransport != null )
+        coreThreads =
+            getIntegerProperty( userProperties, TRANSFER_CORE_THREADS_PROPERTY, DEFAULT_TRANSFER_CORE_THREADS, 1 );
+        maxThreads = getIntegerProperty( userProperties, TRANSFER_MAX_THREADS_PROPERTY,
+                                         Math.max( coreThreads, DEFAULT_TRANSFER_MAX_THREADS ), 1 );
+        if ( maxThreads < coreThreads )
         {
-            transports = new TransportManagerImpl( customTransport );
+            throw new ManipulationException( "Invalid value for " + TRANSFER_MAX_THREADS_PROPERTY + ": " + maxThreads
+                + " is less than " + TRANSFER_CORE_THREADS_PROPERTY + " (" + coreThreads + ")" );
         }
-        else
+        queueSize = getIntegerProperty( userProperties, TRANSFER_QUEUE_SIZE_PROPERTY, DEFAULT_TRANSFER_QUEUE_SIZE, 1 );
+        virtualThreads = Boolean.parseBoolean( userProperties.getProperty( TRANSFER_VIRTUAL_THREADS_PROPERTY ) );
+        shutdownTimeout = getIntegerProperty( userProperties, TRANSFER_SHUTDOWN_TIMEOUT_PROPERTY,
+                                              DEFAULT_TRANSFER_SHUTDOWN_TIMEOUT, 1 );
+    }
+
+    private void start()
+    {
+        if ( started )
         {
-            transports =
-                new TransportManagerImpl( new HttpClientTransport( new HttpImpl( new MemoryPasswordManager() ) ),
-                                          new FileTransport(), new ZipJarTransport() );
+            return;
         }
 
-        if ( cacheDir == null )
+        synchronized ( this )
         {
-            cacheDir = new File( targetDirectory, "manipulator-cache" );
-        }
+            if ( started )
+            {
+                return;
+            }
+
+            xml = new XMLInfrastructure();
+            xpaths = new XPathManager();
+
+            final TransportManager transports;
+            if ( customTransport != null )
+            {
+                transports = new TransportManagerImpl( customTransport );
+            }
+            else
+            {
+                transports =
+                    new TransportManagerImpl( new HttpClientTransport( new HttpImpl( new MemoryPasswordManager() ) ),
+                                              new FileTransport(), new ZipJarTransport() );
+            }
 
-        final FileEventManager fileEvents = new NoOpFileEventManager();
+            final FileEventManager fileEvents = new NoOpFileEventManager();
 
-        final CacheProvider cache =
-            new FileCacheProvider( cacheDir, new HashedLocationPathGenerator(), fileEvents, new NoOpTransferDecorator() );
+            final CacheProvider cache =
+                new FileCacheProvider( cacheDir, new HashedLocationPathGenerator(), fileEvents, new NoOpTransferDecorator() );
 
-        final NotFoundCache nfc = new MemoryNotFoundCache();
-        executor = Executors.newCachedThreadPool();
+            final NotFoundCache nfc = new MemoryNotFoundCache();
+            transferExecutor =
+                new TransferExecutor( "galley-transfer", coreThreads, maxThreads, queueSize, virtualThreads );
+            batchExecutor = new TransferExecutor( "galley-batch", coreThreads, maxThreads, queueSize, virtualThreads );
 
-        final TransferManager transfers =
-            new TransferManagerImpl( transports, cache, nfc, fileEvents, new DownloadHandler( nfc, executor ),
-                                     new UploadHandler( nfc, executor ), new ListingHandler( nfc ),
-                                     new ExistenceHandler( nfc ), executor );
+            final TransferManager transfers =
+                new TransferManagerImpl( transports, cache, nfc, fileEvents,
+                                         new DownloadHandler( nfc, transferExecutor ),
+                                         new UploadHandler( nfc, transferExecutor ), new ListingHandler( nfc ),
+                                         new ExistenceHandler( nfc ), batchExecutor );
 
-        final TypeMapper types = new StandardTypeMapper();
-        final ArtifactMetadataManager metadataManager = new ArtifactMetadataManagerImpl( transfers, locationExpander );
+            final TypeMapper types = new StandardTypeMapper();
+            metadataManager = new ArtifactMetadataManagerImpl( transfers, locationExpander );
 
-        final VersionResolver versionResolver =
-            new VersionResolverImpl( new MavenMetadataReader( xml, locationExpander, metadataManager, xpaths ) );
+            final VersionResolver versionResolver =
+                new VersionResolverImpl( new MavenMetadataReader( xml, locationExpander, metadataManager, xpaths ) );
 
-        artifactManager = new ArtifactManagerImpl( transfers, locationExpander, types, versionResolver );
+            artifactManager = new ArtifactManagerImpl( transfers, locationExpander, types, versionResolver );
 
-        // TODO: auto-adjust this to the current Maven runtime!
-        final MavenPluginDefaults pluginDefaults = new StandardMaven304PluginDefaults();
+            // TODO: auto-adjust this to the current Maven runtime!
+            final MavenPluginDefaults pluginDefaults = new StandardMaven304PluginDefaults();
 
-        final MavenPluginImplications pluginImplications = new StandardMavenPluginImplications( xml );
+            final MavenPluginImplications pluginImplications = new StandardMavenPluginImplications( xml );
 
-        pomReader =
-            new MavenPomReader( xml, locationExpander, artifactManager, xpaths, pluginDefaults, pluginImplications );
+            pomReader =
+                new MavenPomReader( xml, locationExpander, artifactManager, xpaths, pluginDefaults, pluginImplications );
 
-        metadataReader = new MavenMetadataReader( xml, locationExpander, metadataManager, xpaths );
+            metadataReader = new MavenMetadataReader( xml, locationExpander, metadataManager, xpaths );
+
+            started = true;
+        }
     }
 
     public XMLInfrastructure getXml()
     {
+        start();
         return xml;
     }
 
     public MavenMetadataReader getMetadataReader()
     {
+        start();
         return metadataReader;
     }
 
+    public ArtifactMetadataManager getMetadataManager()
+    {
+        start();
+        return metadataManager;
+    }
+
+    public LocationExpander getLocationExpander()
+    {
+        return locationExpander;
+    }
+
     public ArtifactManager getArtifactManager()
     {
+        start();
         return artifactManager;
     }
 
     public XPathManager getXPath()
     {
+        start();
         return xpaths;
     }
 
-    public void finish() {
-        executor.shutdown();
+    /**
+     * Shut down the thread pools, if the Galley components were ever created; they are created again if needed.
+     * Transfers in progress are given up to {@link #TRANSFER_SHUTDOWN_TIMEOUT_PROPERTY} seconds to complete before
+     * they are interrupted.
+     */
+    @Override
+    public void finish()
+    {
+        final List<TransferExecutor> executors;
+        synchronized ( this )
+        {
+            if ( !started )
+            {
+                return;
+            }
+            started = false;
+            // Batch operations wait for the transfers, so are stopped first.
+            executors = Arrays.asList( batchExecutor, transferExecutor );
+        }
+
+        for ( final TransferExecutor executor : executors )
+        {
+            executor.shutdown();
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( shutdownTimeout );
+        try
+        {
+            for ( final TransferExecutor executor : executors )
+            {
+                if ( !executor.awaitTermination( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ) )
+                {
+                    logger.warn( "Galley transfers did not complete within {} seconds; interrupting them.",
+                                 shutdownTimeout );
+                    executor.shutdownNow();
+                }
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            for ( final TransferExecutor executor : executors )
+            {
+                executor.shutdownNow();
+            }
+            Thread.currentThread()
+                  .interrupt();
+        }
+
+        logger.debug( "Galley transfer pool: {}", transferExecutor );
+        logger.debug( "Galley batch pool: {}", batchExecutor );
     }
 }
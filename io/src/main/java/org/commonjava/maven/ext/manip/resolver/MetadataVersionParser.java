@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.resolver;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader for the <code>/metadata/versioning/versions/version</code> entries of a
+ * <code>maven-metadata.xml</code> file. Only the versions are needed to calculate incremental versions, so this avoids
+ * building a DOM and evaluating XPath for each file.
+ */
+final class MetadataVersionParser
+{
+    private static final String[] VERSION_PATH = { "metadata", "versioning", "versions", "version" };
+
+    private static final XMLInputFactory FACTORY;
+
+    static
+    {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        FACTORY.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        FACTORY.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, false );
+    }
+
+    private MetadataVersionParser()
+    {
+    }
+
+    /**
+     * @param stream the metadata to parse; not closed by this method.
+     * @return the trimmed, non-empty versions, in document order.
+     * @throws XMLStreamException if the metadata is not well formed.
+     */
+    static List<String> parse( final InputStream stream )
+        throws XMLStreamException
+    {
+        final List<String> versions = new ArrayList<String>();
+        final XMLStreamReader reader = FACTORY.createXMLStreamReader( stream );
+        try
+        {
+            // Depth of the current element, and how many of the enclosing elements match VERSION_PATH.
+            int depth = 0;
+            int matched = 0;
+            while ( reader.hasNext() )
+            {
+                final int event = reader.next();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    if ( matched == depth && depth < VERSION_PATH.length
+                        && VERSION_PATH[depth].equals( reader.getLocalName() ) )
+                    {
+                        matched++;
+                    }
+                    depth++;
+
+                    if ( matched == VERSION_PATH.length && depth == matched )
+                    {
+                        final String version = reader.getElementText()
+                                                     .trim();
+                        if ( version.length() > 0 )
+                        {
+                            versions.add( version );
+                        }
+                        // getElementText leaves the reader on the end element.
+                        depth--;
+                        matched--;
+                    }
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    if ( matched == depth )
+                    {
+                        matched--;
+                    }
+                    depth--;
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return versions;
+    }
+}
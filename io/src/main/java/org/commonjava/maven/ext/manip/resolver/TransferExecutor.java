@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.resolver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.maven.ext.manip.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded thread pool for Galley transfers, so that bursts of parallel resolution cannot create an unbounded number
+ * of threads (and connections to the repository manager).
+ * <p>
+ * Tasks are queued once the core threads are busy, and further threads (up to the maximum) are only started when the
+ * queue is full. A task which cannot be queued either is run by the submitting thread, which throttles the submitter
+ * rather than failing the transfer. Idle threads, including core threads, are released after a minute.
+ * </p>
+ * <p>
+ * The pool keeps statistics on the time tasks spend queued and running, and on how often the pool was saturated; see
+ * {@link #toString()}.
+ * </p>
+ */
+public class TransferExecutor
+    extends ThreadPoolExecutor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( TransferExecutor.class );
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final AtomicLong runNanos = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name the prefix of the thread names.
+     * @param coreThreads the number of threads to start before tasks are queued.
+     * @param maxThreads the maximum number of threads.
+     * @param queueSize the maximum number of queued tasks.
+     * @param virtualThreads whether to use virtual threads, if the JVM supports them.
+     */
+    public TransferExecutor( final String name, final int coreThreads, final int maxThreads, final int queueSize,
+                             final boolean virtualThreads )
+    {
+        super( coreThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+               new ArrayBlockingQueue<Runnable>( queueSize ), newThreadFactory( name, virtualThreads ) );
+        allowCoreThreadTimeOut( true );
+        setRejectedExecutionHandler( new CallerRunsHandler() );
+    }
+
+    @Override
+    public void execute( final Runnable command )
+    {
+        if ( command == null )
+        {
+            throw new NullPointerException();
+        }
+        super.execute( new TimedTask( command ) );
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread.
+     */
+    public int getQueueDepth()
+    {
+        return getQueue().size();
+    }
+
+    /**
+     * @return the number of tasks run (whether or not they succeeded) through this pool or by the submitting thread.
+     */
+    public long getRunCount()
+    {
+        return completed.get();
+    }
+
+    /**
+     * @return the number of tasks which were run by the submitting thread because the pool was saturated.
+     */
+    public long getRejectedCount()
+    {
+        return rejected.get();
+    }
+
+    /**
+     * @return the average time between a task being submitted and starting, in milliseconds.
+     */
+    public double getAverageWaitMillis()
+    {
+        return average( waitNanos.get() );
+    }
+
+    /**
+     * @return the longest time between a task being submitted and starting, in milliseconds.
+     */
+    public double getMaxWaitMillis()
+    {
+        return maxWaitNanos.get() / 1000000.0;
+    }
+
+    /**
+     * @return the average time taken to run a task, in milliseconds.
+     */
+    public double getAverageRunMillis()
+    {
+        return average( runNanos.get() );
+    }
+
+    private double average( final long totalNanos )
+    {
+        final long count = completed.get();
+        return count == 0 ? 0 : totalNanos / 1000000.0 / count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "active=%d, queued=%d, largest pool=%d, tasks=%d, rejected=%d, "
+                                  + "wait avg/max=%.1f/%.1f ms, run avg=%.1f ms", getActiveCount(), getQueueDepth(),
+                              getLargestPoolSize(), getRunCount(), getRejectedCount(), getAverageWaitMillis(),
+                              getMaxWaitMillis(), getAverageRunMillis() );
+    }
+
+    private static ThreadFactory newThreadFactory( final String name, final boolean virtualThreads )
+    {
+        if ( virtualThreads )
+        {
+            try
+            {
+                // Thread.ofVirtual().name( name + "-", 1 ).factory(), on JDK 21 and later.
+                final Object builder = Thread.class.getMethod( "ofVirtual" )
+                                                   .invoke( null );
+                final Class<?> builderType = Class.forName( "java.lang.Thread$Builder" );
+                final Method setName = builderType.getMethod( "name", String.class, long.class );
+                final Method factory = builderType.getMethod( "factory" );
+
+                return (ThreadFactory) factory.invoke( setName.invoke( builder, name + "-", 1L ) );
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.warn( "Virtual threads are not supported by this JVM; using platform threads for {}.", name );
+            }
+        }
+
+        return new DaemonThreadFactory( name );
+    }
+
+    private final class TimedTask
+        implements Runnable
+    {
+        private final Runnable task;
+
+        private final long submitted = System.nanoTime();
+
+        private TimedTask( final Runnable task )
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            final long start = System.nanoTime();
+            final long wait = start - submitted;
+            waitNanos.addAndGet( wait );
+
+            long max;
+            while ( wait > ( max = maxWaitNanos.get() ) && !maxWaitNanos.compareAndSet( max, wait ) )
+            {
+                // retry
+            }
+
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                runNanos.addAndGet( System.nanoTime() - start );
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    private final class CallerRunsHandler
+        implements RejectedExecutionHandler
+    {
+        @Override
+        public void rejectedExecution( final Runnable task, final ThreadPoolExecutor executor )
+        {
+            if ( executor.isShutdown() )
+            {
+                throw new RejectedExecutionException( "Transfer pool has been shut down." );
+            }
+
+            rejected.incrementAndGet();
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ *  Copyright (C) 2015 Red Hat, Inc (jcasey@redhat.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.rest;
+
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.rest.exception.RestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Wraps a {@link VersionTranslator} with an on-disk cache of its translations, so that only GAVs which have not been
+ * translated recently are sent to the server.
+ * <p>
+ * Translations are stored per endpoint, in a properties file named after a hash of the endpoint URL. Each entry
+ * records when it was fetched and the translated version, or nothing if the server had no translation for the GAV.
+ * Translations expire after the TTL; missing translations after the (usually shorter) negative TTL.
+ * </p>
+ * <p>
+ * The GAVs of the projects being built are never cached: their translation depends on what has been released since,
+ * and is used to calculate the next build number, so a stale answer would repeat a release version.
+ * </p>
+ * <p>
+ * If the server cannot be reached, expired entries are used in place of the lost responses as long as every
+ * requested GAV has one, allowing builds to continue while the service is briefly unavailable.
+ * </p>
+ */
+public class CachingVersionTranslator
+    implements VersionTranslator
+{
+    private static final String NO_TRANSLATION = "";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final VersionTranslator delegate;
+
+    private final String endpointUrl;
+
+    private final File cacheFile;
+
+    private final long ttl;
+
+    private final long negativeTtl;
+
+    private Properties entries;
+
+    /**
+     * @param delegate - translator to send cache misses to
+     * @param endpointUrl - URL of the REST service, used to keep the translations of different services apart
+     * @param directory - directory to store the cache in
+     * @param ttl - time in milliseconds a translation is used for
+     * @param negativeTtl - time in milliseconds the absence of a translation is remembered for
+     */
+    public CachingVersionTranslator( VersionTranslator delegate, String endpointUrl, File directory, long ttl,
+                                     long negativeTtl )
+    {
+        this.delegate = delegate;
+        this.endpointUrl = endpointUrl;
+        this.cacheFile = new File( directory, hash( endpointUrl ) + ".properties" );
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    public Map<ProjectVersionRef, String> translateVersions( List<ProjectVersionRef> projects )
+    {
+        return translateVersions( projects, Collections.<ProjectVersionRef>emptySet() );
+    }
+
+    /**
+     * @param projects - List of projects (GAVs)
+     * @param uncached - the GAVs among them which must always be translated by the server, such as the GAVs of the
+     *            projects being built
+     * @return Map of ProjectVersionRef objects as keys and translated versions as values
+     */
+    public synchronized Map<ProjectVersionRef, String> translateVersions( List<ProjectVersionRef> projects,
+                                                                       Set<ProjectVersionRef> uncached )
+    {
+        if ( entries == null )
+        {
+            entries = load();
+        }
+
+        final long now = System.currentTimeMillis();
+        final List<ProjectVersionRef> misses = new ArrayList<ProjectVersionRef>();
+        final Map<ProjectVersionRef, String> live = new HashMap<ProjectVersionRef, String>();
+        for ( ProjectVersionRef project : projects )
+        {
+            if ( uncached.contains( project ) )
+            {
+                // Possibly left by an earlier version of the cache.
+                entries.remove( key( project ) );
+                misses.add( project );
+                continue;
+            }
+
+            final String entry = entries.getProperty( key( project ) );
+            if ( entry == null || isExpired( entry, now ) )
+            {
+                misses.add( project );
+            }
+        }
+
+        logger.debug( "REST translation cache for '{}' holds {} of {} versions", endpointUrl,
+                      projects.size() - misses.size(), projects.size() );
+
+        if ( !misses.isEmpty() )
+        {
+            try
+            {
+                final Map<ProjectVersionRef, String> translated = delegate.translateVersions( misses );
+                for ( ProjectVersionRef project : uncached )
+                {
+                    final String version = translated.get( project );
+                    if ( version != null )
+                    {
+                        live.put( project, version );
+                    }
+                }
+                update( misses, uncached, translated, now );
+            }
+            catch ( RestException e )
+            {
+                for ( ProjectVersionRef project : misses )
+                {
+                    if ( uncached.contains( project ) || !entries.containsKey( key( project ) ) )
+                    {
+                        throw e;
+                    }
+                }
+                logger.warn( "Using expired translations of {} versions from the cache as the request failed: {}",
+                             misses.size(), e.getMessage() );
+            }
+        }
+
+        final Map<ProjectVersionRef, String> result = new LinkedHashMap<ProjectVersionRef, String>();
+        for ( ProjectVersionRef project : projects )
+        {
+            final String version =
+                uncached.contains( project ) ? live.get( project ) : version( entries.getProperty( key( project ) ) );
+            if ( version != null )
+            {
+                result.put( project, version );
+            }
+        }
+        return result;
+    }
+
+    private void update( List<ProjectVersionRef> requested, Set<ProjectVersionRef> uncached,
+                         Map<ProjectVersionRef, String> translated, long now )
+    {
+        for ( ProjectVersionRef project : requested )
+        {
+            if ( uncached.contains( project ) )
+            {
+                continue;
+            }
+            final String version = translated.get( project );
+            entries.setProperty( key( project ), now + "," + ( version == null ? NO_TRANSLATION : version ) );
+        }
+        store( now );
+    }
+
+    private boolean isExpired( String entry, long now )
+    {
+        return now - fetched( entry ) >= ( version( entry ) == null ? negativeTtl : ttl );
+    }
+
+    private static long fetched( String entry )
+    {
+        return Long.parseLong( entry.substring( 0, entry.indexOf( ',' ) ) );
+    }
+
+    private static String version( String entry )
+    {
+        if ( entry == null )
+        {
+            return null;
+        }
+        final String version = entry.substring( entry.indexOf( ',' ) + 1 );
+        return version.equals( NO_TRANSLATION ) ? null : version;
+    }
+
+    private static String key( ProjectVersionRef project )
+    {
+        return project.getGroupId() + ':' + project.getArtifactId() + ':' + project.getVersionString();
+    }
+
+    private Properties load()
+    {
+        final Properties properties = new Properties();
+        if ( !cacheFile.exists() )
+        {
+            return properties;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( cacheFile );
+            properties.load( in );
+
+            for ( String key : properties.stringPropertyNames() )
+            {
+                final String entry = properties.getProperty( key );
+                final int separator = entry.indexOf( ',' );
+                if ( separator < 1 || !isNumber( entry.substring( 0, separator ) ) )
+                {
+                    properties.remove( key );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.debug( "Discarding unreadable REST translation cache " + cacheFile, e );
+            properties.clear();
+        }
+        finally
+        {
+            closeQuietly( in );
+        }
+        return properties;
+    }
+
+    /**
+     * Writes the cache to a temporary file which is renamed into place, so that a concurrent or interrupted run
+     * never observes a partial cache. Failures are logged and otherwise ignored; the cache is only an optimisation.
+     * <p>
+     * Expired entries are left out of the file, unless they were fetched by this request: with a TTL of 0 those are
+     * expired at once, but are still the fallback should the server be unavailable next time. They stay in memory,
+     * so that later requests of this run can still fall back on them.
+     * </p>
+     */
+    private void store( long now )
+    {
+        final Properties live = new Properties();
+        for ( String key : entries.stringPropertyNames() )
+        {
+            final String entry = entries.getProperty( key );
+            if ( fetched( entry ) == now || !isExpired( entry, now ) )
+            {
+                live.setProperty( key, entry );
+            }
+        }
+
+        File tmp = null;
+        OutputStream out = null;
+        try
+        {
+            cacheFile.getParentFile().mkdirs();
+            tmp = File.createTempFile( "translations", ".tmp", cacheFile.getParentFile() );
+
+            out = new FileOutputStream( tmp );
+            live.store( out, "REST version translations for " + endpointUrl );
+            out.close();
+            out = null;
+
+            // renameTo will not replace an existing file on every platform.
+            if ( !tmp.renameTo( cacheFile ) && !( cacheFile.delete() && tmp.renameTo( cacheFile ) ) )
+            {
+                logger.debug( "Unable to store REST translation cache {}", cacheFile );
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.debug( "Unable to store REST translation cache " + cacheFile, e );
+        }
+        finally
+        {
+            closeQuietly( out );
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static boolean isNumber( String value )
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            if ( !Character.isDigit( value.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return value.length() > 0;
+    }
+
+    private static String hash( String value )
+    {
+        try
+        {
+            final StringBuilder sb = new StringBuilder();
+            for ( byte b : MessageDigest.getInstance( "SHA-1" ).digest( value.getBytes( "UTF-8" ) ) )
+            {
+                sb.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+            }
+            return sb.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is not supported", e );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( "UTF-8 is not supported", e );
+        }
+    }
+}
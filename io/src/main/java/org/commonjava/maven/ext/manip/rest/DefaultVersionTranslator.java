@@ -1,16 +1,22 @@
 package org.commonjava.maven.ext.manip.rest;
 
-import com.mashape.unirest.http.HttpResponse;
-import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.exceptions.UnirestException;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.io.PomIO;
 import org.commonjava.maven.ext.manip.rest.exception.ClientException;
 import org.commonjava.maven.ext.manip.rest.exception.RestException;
-import org.commonjava.maven.ext.manip.rest.exception.ServerException;
-import org.commonjava.maven.ext.manip.rest.mapper.ProjectVersionRefMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author vdedik@redhat.com
@@ -18,49 +24,194 @@ import java.util.Map;
 public class DefaultVersionTranslator
     implements VersionTranslator
 {
+    private static final long INITIAL_BACKOFF = 250;
+
+    private static final long MAX_BACKOFF = 8000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
     private String endpointUrl;
 
+    private final RestTransport transport;
+
+    private final int chunkSize;
+
+    private final int threads;
+
+    private final int retries;
+
+    private final long deadline;
+
     public DefaultVersionTranslator( String endpointUrl )
+    {
+        this( endpointUrl, 0, 1, 0, 0 );
+    }
+
+    public DefaultVersionTranslator( String endpointUrl, int chunkSize, int threads, int retries, long deadline )
+    {
+        this( endpointUrl, new RestTransport(), chunkSize, threads, retries, deadline );
+    }
+
+    /**
+     * @param endpointUrl - URL of the REST service
+     * @param transport - HTTP transport to send the requests with
+     * @param chunkSize - maximum number of GAVs sent in a single request, or 0 to send them all at once
+     * @param threads - maximum number of requests in flight at once
+     * @param retries - number of times a request failing with a server or connection error is retried
+     * @param deadline - time in milliseconds allowed for the whole translation, or 0 for no limit
+     */
+    public DefaultVersionTranslator( String endpointUrl, RestTransport transport, int chunkSize, int threads,
+                                     int retries, long deadline )
     {
         this.endpointUrl = endpointUrl;
-        Unirest.setObjectMapper( new ProjectVersionRefMapper() );
+        this.transport = transport;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.retries = retries;
+        this.deadline = deadline;
     }
 
-    @SuppressWarnings( "unchecked" )
     public Map<ProjectVersionRef, String> translateVersions( List<ProjectVersionRef> projects )
     {
-        // Execute request to get translated versions
-        HttpResponse<Map> r;
+        final long end = deadline > 0 ? System.currentTimeMillis() + deadline : Long.MAX_VALUE;
+        final List<List<ProjectVersionRef>> chunks = partition( projects );
+        final Map<ProjectVersionRef, String> result = new HashMap<ProjectVersionRef, String>();
+
+        // Without a deadline there is no need to hand the requests to other threads unless they run concurrently.
+        if ( deadline <= 0 && ( chunks.size() == 1 || threads <= 1 ) )
+        {
+            for ( List<ProjectVersionRef> chunk : chunks )
+            {
+                result.putAll( translateChunk( chunk, end ) );
+            }
+            return result;
+        }
+
+        logger.debug( "Translating {} versions in {} requests", projects.size(), chunks.size() );
+
+        final ExecutorService executor =
+            PomIO.newExecutor( Math.max( 1, Math.min( threads, chunks.size() ) ), "rest-translation" );
         try
         {
-            r = Unirest.post( this.endpointUrl )
-                       .header( "accept", "application/json" )
-                       .header( "Content-Type", "application/json" )
-                       .body( projects )
-                       .asObject( Map.class );
+            final List<Future<Map<ProjectVersionRef, String>>> futures =
+                new ArrayList<Future<Map<ProjectVersionRef, String>>>( chunks.size() );
+            for ( final List<ProjectVersionRef> chunk : chunks )
+            {
+                futures.add( executor.submit( new Callable<Map<ProjectVersionRef, String>>()
+                {
+                    @Override
+                    public Map<ProjectVersionRef, String> call()
+                    {
+                        return translateChunk( chunk, end );
+                    }
+                } ) );
+            }
+
+            for ( Future<Map<ProjectVersionRef, String>> future : futures )
+            {
+                result.putAll( future.get( end - System.currentTimeMillis(), TimeUnit.MILLISECONDS ) );
+            }
         }
-        catch ( UnirestException e )
+        catch ( InterruptedException e )
         {
+            Thread.currentThread().interrupt();
+            throw new RestException(
+                String.format( "Interrupted while waiting for server '%s' to translate versions.", this.endpointUrl ) );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RestException )
+            {
+                throw (RestException) e.getCause();
+            }
             throw new RestException(
                 String.format( "Request to server '%s' failed. Exception message: %s", this.endpointUrl,
-                               e.getMessage() ) );
+                               e.getCause().getMessage() ) );
+        }
+        catch ( TimeoutException e )
+        {
+            throw deadlineExceeded( projects.size() );
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
 
-        // Handle some corner cases (5xx, 4xx)
-        if ( r.getStatus() / 100 == 5 )
+        return result;
+    }
+
+    /**
+     * Translates a single chunk, retrying server and connection failures with exponential backoff until either the
+     * retries are exhausted or the next attempt would start after the deadline. Client errors (4xx) are not retried.
+     */
+    private Map<ProjectVersionRef, String> translateChunk( List<ProjectVersionRef> chunk, long end )
+    {
+        long backoff = INITIAL_BACKOFF;
+        for ( int attempt = 0; ; attempt++ )
         {
-            throw new ServerException(
-                String.format( "Server at '%s' failed to translate versions. HTTP status code %s.",
-                               this.endpointUrl, r.getStatus() ) );
+            if ( System.currentTimeMillis() >= end )
+            {
+                throw deadlineExceeded( chunk.size() );
+            }
+
+            try
+            {
+                return translate( chunk );
+            }
+            catch ( ClientException e )
+            {
+                throw e;
+            }
+            catch ( RestException e )
+            {
+                if ( attempt >= retries || System.currentTimeMillis() + backoff >= end )
+                {
+                    throw e;
+                }
+
+                logger.warn( "Retrying translation of {} versions in {} ms: {}", chunk.size(), backoff,
+                             e.getMessage() );
+                try
+                {
+                    Thread.sleep( backoff );
+                }
+                catch ( InterruptedException ie )
+                {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoff = Math.min( backoff * 2, MAX_BACKOFF );
+            }
         }
-        else if ( r.getStatus() / 100 == 4 )
+    }
+
+    private Map<ProjectVersionRef, String> translate( List<ProjectVersionRef> projects )
+    {
+        return transport.translateVersions( this.endpointUrl, projects );
+    }
+
+    private List<List<ProjectVersionRef>> partition( List<ProjectVersionRef> projects )
+    {
+        final List<List<ProjectVersionRef>> chunks = new ArrayList<List<ProjectVersionRef>>();
+        if ( chunkSize <= 0 || projects.size() <= chunkSize )
         {
-            throw new ClientException(
-                String.format( "Server at '%s' could not translate versions. HTTP status code %s.",
-                               this.endpointUrl, r.getStatus() ) );
+            chunks.add( projects );
+            return chunks;
         }
 
-        return r.getBody();
+        for ( int i = 0; i < projects.size(); i += chunkSize )
+        {
+            chunks.add( new ArrayList<ProjectVersionRef>(
+                projects.subList( i, Math.min( i + chunkSize, projects.size() ) ) ) );
+        }
+        return chunks;
+    }
+
+    private RestException deadlineExceeded( int count )
+    {
+        return new RestException(
+            String.format( "Server at '%s' did not translate %s versions within %s ms.", this.endpointUrl, count,
+                           this.deadline ) );
     }
 
     public String getEndpointUrl()
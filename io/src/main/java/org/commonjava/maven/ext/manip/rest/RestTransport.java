@@ -0,0 +1,172 @@
+/**
+ *  Copyright (C) 2015 Red Hat, Inc (jcasey@redhat.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.rest.exception.ClientException;
+import org.commonjava.maven.ext.manip.rest.exception.RestException;
+import org.commonjava.maven.ext.manip.rest.exception.ServerException;
+import org.commonjava.maven.ext.manip.rest.mapper.ProjectVersionRefMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * HTTP transport for version translation requests.
+ * <p>
+ * Connections are pooled and kept alive between requests, and gzip or deflate encoded responses are accepted and
+ * decoded transparently. Request bodies may optionally be gzipped, or encoded as Smile (binary JSON), for servers
+ * which support them.
+ * </p>
+ */
+public class RestTransport
+    implements Closeable
+{
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    private static final ContentType SMILE = ContentType.create( "application/x-jackson-smile" );
+
+    private final CloseableHttpClient client;
+
+    private final ProjectVersionRefMapper mapper;
+
+    private final ContentType contentType;
+
+    private final boolean compress;
+
+    public RestTransport()
+    {
+        this( DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_CONNECTIONS, false, false );
+    }
+
+    /**
+     * @param connectTimeout - time in milliseconds allowed to establish (or lease from the pool) a connection
+     * @param readTimeout - time in milliseconds allowed between two packets of the response
+     * @param maxConnections - maximum number of pooled connections
+     * @param compress - whether to gzip request bodies
+     * @param smile - whether to exchange Smile rather than JSON
+     */
+    public RestTransport( int connectTimeout, int readTimeout, int maxConnections, boolean compress, boolean smile )
+    {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal( maxConnections );
+        connectionManager.setDefaultMaxPerRoute( maxConnections );
+
+        final RequestConfig config = RequestConfig.custom()
+                                                  .setConnectTimeout( connectTimeout )
+                                                  .setConnectionRequestTimeout( connectTimeout )
+                                                  .setSocketTimeout( readTimeout )
+                                                  .build();
+
+        // Content compression is enabled by default, which both sends Accept-Encoding and decodes the response.
+        this.client = HttpClientBuilder.create()
+                                       .setConnectionManager( connectionManager )
+                                       .setDefaultRequestConfig( config )
+                                       .build();
+        this.mapper = new ProjectVersionRefMapper( smile ? new SmileFactory() : new JsonFactory() );
+        this.contentType = smile ? SMILE : ContentType.APPLICATION_JSON;
+        this.compress = compress;
+    }
+
+    /**
+     * Executes HTTP request to a REST service that translates versions
+     *
+     * @param endpointUrl - URL of the REST service
+     * @param projects - List of projects (GAVs)
+     * @return Map of ProjectVersionRef objects as keys and translated versions as values
+     */
+    public Map<ProjectVersionRef, String> translateVersions( String endpointUrl, List<ProjectVersionRef> projects )
+    {
+        HttpEntity entity = new ByteArrayEntity( mapper.writeBytes( projects ), contentType );
+        if ( compress )
+        {
+            entity = new GzipCompressingEntity( entity );
+        }
+
+        final HttpPost post = new HttpPost( endpointUrl );
+        post.setHeader( "Accept", contentType.getMimeType() );
+        post.setEntity( entity );
+
+        CloseableHttpResponse r = null;
+        try
+        {
+            r = client.execute( post );
+
+            // Handle some corner cases (5xx, 4xx)
+            final int status = r.getStatusLine().getStatusCode();
+            if ( status / 100 == 5 )
+            {
+                throw new ServerException(
+                    String.format( "Server at '%s' failed to translate versions. HTTP status code %s.", endpointUrl,
+                                   status ) );
+            }
+            else if ( status / 100 == 4 )
+            {
+                throw new ClientException(
+                    String.format( "Server at '%s' could not translate versions. HTTP status code %s.", endpointUrl,
+                                   status ) );
+            }
+            else if ( r.getEntity() == null )
+            {
+                throw new RestException(
+                    String.format( "Server at '%s' returned no content. HTTP status code %s.", endpointUrl, status ) );
+            }
+
+            return mapper.readValue( r.getEntity().getContent() );
+        }
+        catch ( IOException e )
+        {
+            throw new RestException(
+                String.format( "Request to server '%s' failed. Exception message: %s", endpointUrl, e.getMessage() ) );
+        }
+        finally
+        {
+            if ( r != null )
+            {
+                // Consume the remainder of the response so that the connection can be reused.
+                EntityUtils.consumeQuietly( r.getEntity() );
+                closeQuietly( r );
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closeQuietly( client );
+    }
+}
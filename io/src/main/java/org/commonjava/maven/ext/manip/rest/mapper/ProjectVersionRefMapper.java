@@ -16,82 +16,213 @@
 
 package org.commonjava.maven.ext.manip.rest.mapper;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.mashape.unirest.http.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.rest.exception.RestException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Converts between {@link ProjectVersionRef}s and the JSON used by the version translation service. The JSON is
+ * read and written token by token, so that no intermediate tree of maps is built for large requests.
+ *
  * @author vdedik@redhat.com
  */
-@SuppressWarnings( "unchecked" )
-public class ProjectVersionRefMapper implements ObjectMapper
+public class ProjectVersionRefMapper
 {
+    private final JsonFactory jsonFactory;
 
-    private com.fasterxml.jackson.databind.ObjectMapper objectMapper
-        = new com.fasterxml.jackson.databind.ObjectMapper();
+    public ProjectVersionRefMapper()
+    {
+        this( new JsonFactory() );
+    }
 
-    @Override
+    /**
+     * @param jsonFactory the factory for the parsers and generators, e.g. a SmileFactory for binary JSON. Only the
+     * stream based methods are supported by binary formats.
+     */
+    public ProjectVersionRefMapper( JsonFactory jsonFactory )
+    {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @param s the response body
+     * @return Map of ProjectVersionRef objects as keys and translated versions as values
+     */
     public Map<ProjectVersionRef, String> readValue( String s )
     {
-        List<Map<String, Object>> responseBody;
-        Map<ProjectVersionRef, String> result = new HashMap<ProjectVersionRef, String>();
+        try
+        {
+            return read( jsonFactory.createParser( s ) );
+        }
+        catch ( IOException e )
+        {
+            throw new RestException( e.getMessage() );
+        }
+    }
+
+    /**
+     * Reads a response from a stream, converting each entry as soon as it has been parsed.
+     *
+     * @param in the response body
+     * @return Map of ProjectVersionRef objects as keys and translated versions as values
+     * @see #read(JsonParser)
+     */
+    public Map<ProjectVersionRef, String> readValue( InputStream in )
+    {
+        try
+        {
+            return read( jsonFactory.createParser( in ) );
+        }
+        catch ( IOException e )
+        {
+            throw new RestException( e.getMessage() );
+        }
+    }
 
+    /**
+     * @param projects - List of projects (GAVs)
+     * @return the request body
+     */
+    public String writeValue( List<ProjectVersionRef> projects )
+    {
+        StringWriter writer = new StringWriter( projects.size() * 80 );
         try
         {
-            responseBody = objectMapper.readValue( s, List.class );
+            write( jsonFactory.createGenerator( writer ), projects );
         }
         catch ( IOException e )
         {
             throw new RestException( e.getMessage() );
         }
+        return writer.toString();
+    }
 
-        for ( Map<String, Object> gav: responseBody )
+    /**
+     * @param projects - List of projects (GAVs)
+     * @return the request body, encoded as UTF-8 for JSON
+     */
+    public byte[] writeBytes( List<ProjectVersionRef> projects )
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( projects.size() * 80 );
+        try
+        {
+            write( jsonFactory.createGenerator( out ), projects );
+        }
+        catch ( IOException e )
         {
-            String groupId = (String) gav.get( "groupId" );
-            String artifactId = (String) gav.get( "artifactId" );
-            String version = (String) gav.get( "version" );
-            String bestMatchVersion = (String) gav.get( "bestMatchVersion" );
+            throw new RestException( e.getMessage() );
+        }
+        return out.toByteArray();
+    }
 
-            if ( bestMatchVersion != null )
+    private void write( JsonGenerator generator, List<ProjectVersionRef> projects )
+        throws IOException
+    {
+        generator.writeStartArray();
+        for ( ProjectVersionRef project : projects )
+        {
+            generator.writeStartObject();
+            generator.writeStringField( "groupId", project.getGroupId() );
+            generator.writeStringField( "artifactId", project.getArtifactId() );
+            generator.writeStringField( "version", project.getVersionString() );
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    /**
+     * Reads either a JSON array of entries or newline delimited JSON (NDJSON), i.e. a sequence of entries which are
+     * not enclosed in an array. Entries without a bestMatchVersion are skipped.
+     */
+    private Map<ProjectVersionRef, String> read( JsonParser parser )
+        throws IOException
+    {
+        Map<ProjectVersionRef, String> result = new HashMap<ProjectVersionRef, String>();
+        try
+        {
+            JsonToken token = parser.nextToken();
+            if ( token == null )
             {
-                ProjectVersionRef project = new ProjectVersionRef( groupId, artifactId, version );
-                result.put( project, bestMatchVersion );
+                throw new RestException( "No content in response" );
             }
-        }
 
+            boolean array = token == JsonToken.START_ARRAY;
+            if ( array )
+            {
+                token = parser.nextToken();
+            }
+            while ( token == JsonToken.START_OBJECT )
+            {
+                readEntry( parser, result );
+                token = parser.nextToken();
+            }
+
+            if ( array ? token != JsonToken.END_ARRAY : token != null )
+            {
+                throw new RestException( String.format( "Unexpected %s in response at %s", token,
+                                                        parser.getCurrentLocation() ) );
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
         return result;
     }
 
-    @Override
-    public String writeValue( Object value )
+    private void readEntry( JsonParser parser, Map<ProjectVersionRef, String> result )
+        throws IOException
     {
-        List<ProjectVersionRef> projects = (List<ProjectVersionRef>) value;
+        String groupId = null;
+        String artifactId = null;
+        String version = null;
+        String bestMatchVersion = null;
 
-        List requestBody = new ArrayList();
-        for ( ProjectVersionRef project : projects )
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
         {
-            Map<String, Object> gav = new HashMap<String, Object>();
-            gav.put( "groupId", project.getGroupId() );
-            gav.put( "artifactId", project.getArtifactId() );
-            gav.put( "version", project.getVersionString() );
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ( !value.isScalarValue() )
+            {
+                parser.skipChildren();
+                continue;
+            }
 
-            requestBody.add( gav );
+            String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            if ( "groupId".equals( field ) )
+            {
+                groupId = text;
+            }
+            else if ( "artifactId".equals( field ) )
+            {
+                artifactId = text;
+            }
+            else if ( "version".equals( field ) )
+            {
+                version = text;
+            }
+            else if ( "bestMatchVersion".equals( field ) )
+            {
+                bestMatchVersion = text;
+            }
         }
 
-        try
-        {
-            return objectMapper.writeValueAsString( requestBody );
-        }
-        catch ( JsonProcessingException e )
+        if ( bestMatchVersion != null )
         {
-            throw new RestException( e.getMessage() );
+            ProjectVersionRef project = new ProjectVersionRef( groupId, artifactId, version );
+            result.put( project, bestMatchVersion );
         }
     }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModelCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDisabledByDefault()
+        throws Exception
+    {
+        assertNull( ModelCache.create( new Properties() ) );
+    }
+
+    @Test
+    public void testInvalidMaxSize()
+        throws Exception
+    {
+        for ( final String size : new String[] { "0", "-1", "large", "8796093022208" } )
+        {
+            final Properties properties = new Properties();
+            properties.setProperty( ModelCache.CACHE_DIR_PROPERTY, folder.getRoot().getPath() );
+            properties.setProperty( ModelCache.CACHE_SIZE_PROPERTY, size );
+            try
+            {
+                ModelCache.create( properties );
+                fail( "Failed to throw ManipulationException for a maximum size of " + size );
+            }
+            catch ( final ManipulationException e )
+            {
+                // Pass
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip()
+        throws Exception
+    {
+        final ModelCache cache = new ModelCache( folder.newFolder( "cache" ), 1024 * 1024 );
+        final File pom = writePom( "1.0" );
+
+        assertNull( get( cache, pom ) );
+
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model( "1.0" ) );
+
+        final Model cached = get( cache, pom );
+        assertNotNull( cached );
+        assertEquals( "1.0", cached.getVersion() );
+    }
+
+    @Test
+    public void testModifiedPomInvalidatesEntry()
+        throws Exception
+    {
+        final ModelCache cache = new ModelCache( folder.newFolder( "cache" ), 1024 * 1024 );
+        final File pom = writePom( "1.0" );
+
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model( "1.0" ) );
+
+        // Same size and modification time, so only the content hash can tell the difference.
+        final long lastModified = pom.lastModified();
+        writePom( "2.0" );
+        pom.setLastModified( lastModified );
+
+        assertNull( get( cache, pom ) );
+    }
+
+    @Test
+    public void testModifiedPomInvalidatesOldEntry()
+        throws Exception
+    {
+        final ModelCache cache = new ModelCache( folder.newFolder( "cache" ), 1024 * 1024 );
+        final File pom = writePom( "1.0" );
+        // Long before the entry is written, so the modification time alone would look trustworthy.
+        final long lastModified = System.currentTimeMillis() - 3600 * 1000;
+        pom.setLastModified( lastModified );
+
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model( "1.0" ) );
+
+        writePom( "2.0" );
+        pom.setLastModified( lastModified );
+
+        assertNull( get( cache, pom ) );
+    }
+
+    @Test
+    public void testUnexpectedClassDiscardsEntry()
+        throws Exception
+    {
+        final File dir = folder.newFolder( "cache" );
+        final ModelCache cache = new ModelCache( dir, 1024 * 1024 );
+        final File pom = writePom( "1.0" );
+
+        final Model model = model( "1.0" );
+        model.getProperties()
+             .put( "date", new Date() );
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model );
+        assertEquals( 1, dir.list().length );
+
+        assertNull( get( cache, pom ) );
+        assertEquals( 0, dir.list().length );
+    }
+
+    @Test
+    public void testPluginConfigurationRoundTrip()
+        throws Exception
+    {
+        final ModelCache cache = new ModelCache( folder.newFolder( "cache" ), 1024 * 1024 );
+        final File pom = writePom( "1.0" );
+
+        final Xpp3Dom child = new Xpp3Dom( "skip" );
+        child.setValue( "true" );
+        final Xpp3Dom configuration = new Xpp3Dom( "configuration" );
+        configuration.addChild( child );
+        final Plugin plugin = new Plugin();
+        plugin.setArtifactId( "maven-foo-plugin" );
+        plugin.setConfiguration( configuration );
+        final Model model = model( "1.0" );
+        model.setBuild( new Build() );
+        model.getBuild()
+             .addPlugin( plugin );
+        model.getProperties()
+             .setProperty( "foo", "bar" );
+
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model );
+
+        final Model cached = get( cache, pom );
+        assertNotNull( cached );
+        assertEquals( "bar", cached.getProperties()
+                                   .getProperty( "foo" ) );
+        final Xpp3Dom cachedConfiguration = (Xpp3Dom) cached.getBuild()
+                                                            .getPlugins()
+                                                            .get( 0 )
+                                                            .getConfiguration();
+        assertEquals( "true", cachedConfiguration.getChild( "skip" )
+                                                 .getValue() );
+    }
+
+    @Test
+    public void testTrimIgnoresTemporaryFiles()
+        throws Exception
+    {
+        final File dir = folder.newFolder( "cache" );
+        final ModelCache cache = new ModelCache( dir, 1 );
+        // An entry being written by another run.
+        final File tmp = new File( dir, "entry123.tmp" );
+        FileUtils.writeStringToFile( tmp, "partial entry" );
+
+        cache.trim();
+        assertTrue( tmp.exists() );
+    }
+
+    @Test
+    public void testTrimEvictsLeastRecentlyUsed()
+        throws Exception
+    {
+        final File dir = folder.newFolder( "cache" );
+        final ModelCache cache = new ModelCache( dir, 1 );
+        final File pom = writePom( "1.0" );
+
+        cache.put( pom, pom.lastModified(), ModelCache.readContent( pom ), model( "1.0" ) );
+        assertEquals( 1, dir.list().length );
+
+        cache.trim();
+        assertEquals( 0, dir.list().length );
+        assertNull( get( cache, pom ) );
+    }
+
+    private Model get( final ModelCache cache, final File pom )
+        throws Exception
+    {
+        return cache.get( pom, pom.lastModified(), ModelCache.readContent( pom ) );
+    }
+
+    private File writePom( final String version )
+        throws Exception
+    {
+        final File pom = new File( folder.getRoot(), "pom.xml" );
+        FileUtils.writeStringToFile( pom, "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId>"
+                        + "<artifactId>bar</artifactId><version>" + version + "</version></project>" );
+        return pom;
+    }
+
+    private Model model( final String version )
+    {
+        final Model model = new Model();
+        model.setGroupId( "org.foo" );
+        model.setArtifactId( "bar" );
+        model.setVersion( version );
+        return model;
+    }
+}
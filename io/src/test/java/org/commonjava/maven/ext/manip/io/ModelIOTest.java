@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.junit.Test;
+
+public class ModelIOTest
+{
+    private static final ProjectVersionRef REF = new ProjectVersionRef( "org.foo", "bar", "1.0" );
+
+    @Test
+    public void testConcurrentCallersReadOnce()
+        throws Exception
+    {
+        final CountingModelIO modelIO = new CountingModelIO( 200 );
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<Model>> futures = new ArrayList<Future<Model>>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures.add( executor.submit( new Callable<Model>()
+                {
+                    @Override
+                    public Model call()
+                        throws Exception
+                    {
+                        start.await();
+                        return modelIO.resolveRawModel( REF );
+                    }
+                } ) );
+            }
+            start.countDown();
+
+            for ( final Future<Model> future : futures )
+            {
+                assertEquals( "1.0", future.get().getVersion() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals( 1, modelIO.reads.get() );
+    }
+
+    @Test
+    public void testFailureIsNotCached()
+        throws Exception
+    {
+        final CountingModelIO modelIO = new CountingModelIO( 0 );
+        modelIO.failures.set( 1 );
+
+        try
+        {
+            modelIO.resolveRawModel( REF );
+            fail( "Expected the first read to fail" );
+        }
+        catch ( final ManipulationException e )
+        {
+            // expected
+        }
+
+        assertEquals( "1.0", modelIO.resolveRawModel( REF ).getVersion() );
+        assertEquals( 2, modelIO.reads.get() );
+    }
+
+    @Test
+    public void testModifyingResultDoesNotAffectCache()
+        throws Exception
+    {
+        final CountingModelIO modelIO = new CountingModelIO( 0 );
+
+        final Model first = modelIO.resolveRawModel( REF );
+        first.setVersion( "changed" );
+        first.getProperties()
+             .setProperty( "version.dep", "changed" );
+        first.getDependencies()
+             .get( 0 )
+             .setVersion( "changed" );
+        first.addDependency( new Dependency() );
+
+        final Model second = modelIO.resolveRawModel( REF );
+        assertNotSame( first, second );
+        assertEquals( "1.0", second.getVersion() );
+        assertEquals( "2.0", second.getProperties()
+                                   .getProperty( "version.dep" ) );
+        assertEquals( 1, second.getDependencies()
+                               .size() );
+        assertEquals( "${version.dep}", second.getDependencies()
+                                              .get( 0 )
+                                              .getVersion() );
+        assertEquals( 1, modelIO.reads.get() );
+    }
+
+    private static final class CountingModelIO
+        extends ModelIO
+    {
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final long delay;
+
+        private CountingModelIO( final long delay )
+        {
+            this.delay = delay;
+        }
+
+        @Override
+        protected Model readRawModel( final ProjectVersionRef ref )
+            throws ManipulationException
+        {
+            reads.incrementAndGet();
+            try
+            {
+                // Gives concurrent callers time to arrive while the read is in progress.
+                Thread.sleep( delay );
+            }
+            catch ( final InterruptedException e )
+            {
+                throw new ManipulationException( "Interrupted", e );
+            }
+            if ( failures.getAndDecrement() > 0 )
+            {
+                throw new ManipulationException( "Failed to resolve POM: " + ref );
+            }
+
+            final Dependency dependency = new Dependency();
+            dependency.setGroupId( "org.dep" );
+            dependency.setArtifactId( "dep" );
+            dependency.setVersion( "${version.dep}" );
+
+            final Model model = new Model();
+            model.setGroupId( ref.getGroupId() );
+            model.setArtifactId( ref.getArtifactId() );
+            model.setVersion( ref.getVersionString() );
+            model.getProperties()
+                 .setProperty( "version.dep", "2.0" );
+            model.addDependency( dependency );
+            return model;
+        }
+    }
+}
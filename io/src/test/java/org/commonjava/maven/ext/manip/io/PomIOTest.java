@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.maven.ext.manip.ManipulationException;
+import org.commonjava.maven.ext.manip.model.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PomIOTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDefaultParentRelativePathIsNotFollowed()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null, "<modules><module>tools/x</module></modules>" );
+        // Not a module, and only the directory above x.
+        writePom( "tools/pom.xml", "org.foo", "tools", null, "" );
+        writePom( "tools/x/pom.xml", "org.foo", "x", "<parent><groupId>org.external</groupId>"
+            + "<artifactId>parent</artifactId><version>1</version></parent>", "" );
+
+        assertEquals( Arrays.asList( "top", "x" ), artifactIds( new PomIO().parseProject( top ) ) );
+    }
+
+    @Test
+    public void testDeclaredParentRelativePathIsFollowed()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null, "<modules><module>tools/x</module></modules>" );
+        writePom( "tools/pom.xml", "org.foo", "tools", null, "" );
+        writePom( "tools/x/pom.xml", "org.foo", "x", "<parent><groupId>org.foo</groupId><artifactId>tools</artifactId>"
+            + "<version>1</version><relativePath>../pom.xml</relativePath></parent>", "" );
+
+        assertEquals( Arrays.asList( "top", "x", "tools" ), artifactIds( new PomIO().parseProject( top ) ) );
+    }
+
+    @Test
+    public void testInvalidModulePomIsSkipped()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null,
+                                   "<modules><module>a</module><module>template</module></modules>" );
+        writePom( "a/pom.xml", "org.foo", "a", null, "" );
+        write( "template/pom.xml", "<project><artifactId>${name}</artifactId><bogus></project>" );
+
+        assertEquals( Arrays.asList( "top", "a" ), artifactIds( new PomIO().parseProject( top ) ) );
+    }
+
+    @Test
+    public void testInvalidModelModulePomFails()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null,
+                                   "<modules><module>a</module><module>b</module></modules>" );
+        writePom( "a/pom.xml", "org.foo", "a", null, "" );
+        // Well-formed, but not a valid model, so must not be silently left out of the build.
+        final File b = write( "b/pom.xml", "<project><modelVersion>4.0.0</modelVersion><groupId>org.foo</groupId>"
+            + "<artifactId>b</artifactId><version>1</version><unknown/></project>" );
+
+        try
+        {
+            new PomIO().parseProject( top );
+            fail( "Expected the strict parse of " + b + " to fail" );
+        }
+        catch ( final ManipulationException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( b.getCanonicalPath() ) );
+        }
+    }
+
+    @Test
+    public void testInvalidTopLevelPomFails()
+        throws Exception
+    {
+        final File top = write( "pom.xml", "<project><modelVersion>4.0.0</modelVersion><unknown/></project>" );
+
+        try
+        {
+            new PomIO().parseProject( top );
+            fail( "Expected the strict parse of " + top + " to fail" );
+        }
+        catch ( final ManipulationException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentParseKeepsProjectOrder()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null,
+                                   "<modules><module>a</module><module>b</module><module>c</module></modules>" );
+        writePom( "a/pom.xml", "org.foo", "a", null, "<modules><module>a1</module><module>a2</module></modules>" );
+        writePom( "a/a1/pom.xml", "org.foo", "a1", null, "" );
+        writePom( "a/a2/pom.xml", "org.foo", "a2", null, "" );
+        writePom( "b/pom.xml", "org.foo", "b", null, "" );
+        writePom( "c/pom.xml", "org.foo", "c", null, "<modules><module>c1</module></modules>" );
+        writePom( "c/c1/pom.xml", "org.foo", "c1", null, "" );
+
+        final List<String> expected = artifactIds( new PomIO().parseProject( top, 1, null ) );
+        assertEquals( 7, expected.size() );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( expected, artifactIds( new PomIO().parseProject( top, 4, null ) ) );
+        }
+    }
+
+    @Test
+    public void testRewriteLeavesUnchangedPomsUntouched()
+        throws Exception
+    {
+        final File top = writePom( "pom.xml", "org.foo", "top", null,
+                                   "<modules><module>a</module><module>b</module></modules>" );
+        // Modules inheriting from the top POM, which is the only one to get the modified-by comment.
+        final String parent =
+                        "<parent><groupId>org.foo</groupId><artifactId>top</artifactId><version>1</version></parent>";
+        final File a = writePom( "a/pom.xml", "org.foo", "a", parent, "" );
+        final File b = writePom( "b/pom.xml", "org.foo", "b", parent, "" );
+        final byte[] aContent = FileUtils.readFileToByteArray( a );
+        final byte[] bContent = FileUtils.readFileToByteArray( b );
+        final long lastModified = top.lastModified() - 60 * 1000;
+        a.setLastModified( lastModified );
+        b.setLastModified( lastModified );
+
+        final Set<Project> changed = new HashSet<Project>();
+        for ( final Project project : new PomIO().parseProject( top ) )
+        {
+            if ( project.getArtifactId().equals( "a" ) )
+            {
+                changed.add( project );
+            }
+            else if ( project.getArtifactId().equals( "b" ) )
+            {
+                project.getModel().setVersion( "1.redhat-1" );
+                changed.add( project );
+            }
+        }
+
+        new PomIO().rewritePOMs( changed, 2, true );
+
+        assertArrayEquals( aContent, FileUtils.readFileToByteArray( a ) );
+        assertEquals( lastModified, a.lastModified() );
+
+        assertFalse( Arrays.equals( bContent, FileUtils.readFileToByteArray( b ) ) );
+        assertTrue( FileUtils.readFileToString( b ).contains( "<version>1.redhat-1</version>" ) );
+    }
+
+    private File writePom( final String path, final String groupId, final String artifactId, final String parent,
+                           final String content )
+        throws Exception
+    {
+        return write( path, "<project><modelVersion>4.0.0</modelVersion>" + ( parent == null ? "" : parent )
+            + "<groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId><version>1</version>"
+            + content + "</project>" );
+    }
+
+    private File write( final String path, final String content )
+        throws Exception
+    {
+        final File file = new File( folder.getRoot(), path );
+        FileUtils.writeStringToFile( file, content );
+        return file;
+    }
+
+    private static List<String> artifactIds( final List<Project> projects )
+    {
+        final List<String> result = new ArrayList<String>();
+        for ( final Project project : projects )
+        {
+            result.add( project.getArtifactId() );
+        }
+        return result;
+    }
+}
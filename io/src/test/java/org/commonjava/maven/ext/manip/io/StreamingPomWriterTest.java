@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.junit.Test;
+
+public class StreamingPomWriterTest
+{
+    private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<!-- header -->\n"
+        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "    <modelVersion>4.0.0</modelVersion>\n"
+        + "    <groupId>org.foo</groupId>\n"
+        + "    <artifactId>bar</artifactId>\n"
+        + "    <version>1.0</version>\n"
+        + "    <properties>\n"
+        + "        <!-- keep me -->\n"
+        + "        <foo.version>1.2</foo.version>\n"
+        + "        <old>x</old>\n"
+        + "    </properties>\n"
+        + "    <dependencies>\n"
+        + "        <dependency>\n"
+        + "            <artifactId>a</artifactId>\n"
+        + "            <groupId>org.a</groupId>\n"
+        + "            <version>${foo.version}</version>\n"
+        + "        </dependency>\n"
+        + "    </dependencies>\n"
+        + "</project>\n";
+
+    @Test
+    public void testUnchangedModelIsCopied()
+        throws Exception
+    {
+        final byte[] original = POM.getBytes( "UTF-8" );
+
+        assertArrayEquals( original, new StreamingPomWriter().rewrite( original, read( POM ), null ) );
+    }
+
+    @Test
+    public void testTextReplacementsPreserveFormatting()
+        throws Exception
+    {
+        final Model model = read( POM );
+        model.setVersion( "1.0.redhat-1" );
+        model.getProperties()
+             .setProperty( "foo.version", "1.2.redhat-1" );
+
+        final String result = rewrite( model, null );
+
+        assertEquals( POM.replace( "<version>1.0</version>", "<version>1.0.redhat-1</version>" )
+                         .replace( "<foo.version>1.2</foo.version>", "<foo.version>1.2.redhat-1</foo.version>" ),
+                      result );
+    }
+
+    @Test
+    public void testInsertionsAndRemovals()
+        throws Exception
+    {
+        final Model model = read( POM );
+        model.getProperties()
+             .remove( "old" );
+        model.getProperties()
+             .setProperty( "new.prop", "a<b" );
+
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.c" );
+        dependency.setArtifactId( "c" );
+        dependency.setVersion( "3" );
+        final DependencyManagement dependencyManagement = new DependencyManagement();
+        dependencyManagement.addDependency( dependency );
+        model.setDependencyManagement( dependencyManagement );
+
+        final String result = rewrite( model, null );
+
+        assertFalse( result.contains( "<old>" ) );
+        assertTrue( result.contains( "        <!-- keep me -->\n" ) );
+        assertTrue( result.contains( "        <foo.version>1.2</foo.version>\n        <new.prop>a&lt;b</new.prop>\n    </properties>" ) );
+        assertTrue( result.contains( "    <dependencyManagement>\n"
+                                         + "        <dependencies>\n"
+                                         + "            <dependency>\n"
+                                         + "                <groupId>org.c</groupId>\n" ) );
+
+        final Model written = read( result );
+        assertEquals( "3", written.getDependencyManagement()
+                                  .getDependencies()
+                                  .get( 0 )
+                                  .getVersion() );
+    }
+
+    @Test
+    public void testManagedDependencyInsertedAtStart()
+        throws Exception
+    {
+        final String pom = POM.replace( "    <dependencies>\n", "    <dependencyManagement>\n"
+            + "        <dependencies>\n"
+            + "            <dependency>\n"
+            + "                <groupId>org.b</groupId>\n"
+            + "                <artifactId>b</artifactId>\n"
+            + "                <version>2</version>\n"
+            + "            </dependency>\n"
+            + "        </dependencies>\n"
+            + "    </dependencyManagement>\n"
+            + "    <dependencies>\n" );
+        final Model model = read( pom );
+
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.c" );
+        dependency.setArtifactId( "c" );
+        dependency.setVersion( "3" );
+        // As CommonDependencyManipulation adds remote managed dependencies ahead of the existing ones.
+        model.getDependencyManagement()
+             .getDependencies()
+             .addAll( 0, Collections.singletonList( dependency ) );
+
+        final byte[] result = new StreamingPomWriter().rewrite( pom.getBytes( "UTF-8" ), model, null );
+        assertNotNull( result );
+
+        assertEquals( pom.replace( "    <dependencyManagement>\n        <dependencies>\n",
+                                   "    <dependencyManagement>\n"
+                                       + "        <dependencies>\n"
+                                       + "            <dependency>\n"
+                                       + "                <groupId>org.c</groupId>\n"
+                                       + "                <artifactId>c</artifactId>\n"
+                                       + "                <version>3</version>\n"
+                                       + "            </dependency>\n" ), new String( result, "UTF-8" ) );
+    }
+
+    @Test
+    public void testTopLevelElementsRemovedAndAppended()
+        throws Exception
+    {
+        final Model model = read( POM );
+        model.setProperties( new Properties() );
+        model.setDescription( "a & b" );
+
+        final String result = rewrite( model, null );
+
+        assertEquals( POM.substring( 0, POM.indexOf( "    <properties>" ) )
+                          + POM.substring( POM.indexOf( "    <dependencies>" ), POM.indexOf( "</project>" ) )
+                          + "    <description>a &amp; b</description>\n</project>\n", result );
+    }
+
+    @Test
+    public void testLargePomWithSingleChange()
+        throws Exception
+    {
+        final StringBuilder managed = new StringBuilder( "    <dependencyManagement>\n        <dependencies>\n" );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            managed.append( "            <dependency>\n" )
+                   .append( "                <groupId>org.dep</groupId>\n" )
+                   .append( "                <artifactId>dep-" )
+                   .append( i )
+                   .append( "</artifactId>\n" )
+                   .append( "                <version>1.0</version>\n" )
+                   .append( "            </dependency>\n" );
+        }
+        managed.append( "        </dependencies>\n    </dependencyManagement>\n" );
+        final String pom = POM.replace( "    <dependencies>\n", managed + "    <dependencies>\n" );
+
+        final Model model = read( pom );
+        model.getDependencyManagement()
+             .getDependencies()
+             .get( 1234 )
+             .setVersion( "1.0.redhat-1" );
+
+        final byte[] result = new StreamingPomWriter().rewrite( pom.getBytes( "UTF-8" ), model, null );
+        assertNotNull( result );
+
+        final String dependency = "<artifactId>dep-1234</artifactId>\n                <version>";
+        assertEquals( pom.replace( dependency + "1.0<", dependency + "1.0.redhat-1<" ), new String( result, "UTF-8" ) );
+    }
+
+    @Test
+    public void testModifiedByCommentIsReplaced()
+        throws Exception
+    {
+        final Model model = read( POM );
+        final String comment = "\nModified by POM Manipulation Extension for Maven 1.0\n";
+
+        final String once = rewrite( model, comment );
+        assertTrue( once.endsWith( "</project>\n<!--" + comment + "-->\n" ) );
+
+        final byte[] twice = new StreamingPomWriter().rewrite( once.getBytes( "UTF-8" ), model, comment );
+        assertNotNull( twice );
+        assertEquals( once, new String( twice, "UTF-8" ) );
+    }
+
+    private String rewrite( final Model model, final String comment )
+        throws Exception
+    {
+        final byte[] result = new StreamingPomWriter().rewrite( POM.getBytes( "UTF-8" ), model, comment );
+        assertNotNull( result );
+        return new String( result, "UTF-8" );
+    }
+
+    private Model read( final String pom )
+        throws Exception
+    {
+        return new MavenXpp3Reader().read( new StringReader( pom ), false );
+    }
+}
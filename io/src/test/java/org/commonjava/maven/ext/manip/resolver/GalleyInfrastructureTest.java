@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.resolver;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import org.commonjava.maven.galley.maven.parse.MavenPomReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GalleyInfrastructureTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void finishBeforeStartIsNoOp()
+        throws Exception
+    {
+        final GalleyInfrastructure infra = infrastructure();
+
+        // Nothing has been used, so there are no thread pools to shut down.
+        infra.finish();
+        infra.finish();
+
+        assertNotNull( infra.getLocationExpander() );
+        assertNotNull( infra.getXml() );
+
+        infra.finish();
+    }
+
+    @Test
+    public void componentsAreCreatedAgainAfterFinish()
+        throws Exception
+    {
+        final GalleyInfrastructure infra = infrastructure();
+
+        final MavenPomReader pomReader = infra.getPomReader();
+        assertNotNull( pomReader );
+        infra.finish();
+
+        assertNotSame( pomReader, infra.getPomReader() );
+        infra.finish();
+    }
+
+    private GalleyInfrastructure infrastructure()
+        throws Exception
+    {
+        return new GalleyInfrastructure( temp.newFolder( "target" ), null, null, null, null,
+                                         null, null, null, temp.newFolder( "cache-dir" ) );
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.resolver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MetadataVersionParserTest
+{
+
+    @Test
+    public void onlyVersioningVersionsAreRead()
+        throws Exception
+    {
+        final String xml =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<metadata>\n" + "  <groupId>org.foo</groupId>\n"
+                + "  <artifactId>bar</artifactId>\n" + "  <version>0.1</version>\n" + "  <versioning>\n"
+                + "    <latest>1.1</latest>\n" + "    <versions>\n" + "      <version> 1.0 </version>\n"
+                + "      <version>1.1</version>\n" + "      <version/>\n" + "    </versions>\n"
+                + "  </versioning>\n" + "  <plugins><plugin><version>9</version></plugin></plugins>\n"
+                + "</metadata>\n";
+
+        final List<String> versions = MetadataVersionParser.parse( new ByteArrayInputStream( xml.getBytes( "UTF-8" ) ) );
+
+        assertThat( versions, equalTo( Arrays.asList( "1.0", "1.1" ) ) );
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (jcasey@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.resolver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TransferExecutorTest
+{
+
+    @Test
+    public void saturatedPoolRunsTasksInCaller()
+        throws Exception
+    {
+        final TransferExecutor executor = new TransferExecutor( "test", 1, 1, 1, false );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        try
+        {
+            final List<Future<String>> futures = new ArrayList<Future<String>>();
+            // Occupies the only thread, then the only queue slot.
+            for ( int i = 0; i < 2; i++ )
+            {
+                futures.add( executor.submit( new Callable<String>()
+                {
+                    @Override
+                    public String call()
+                        throws Exception
+                    {
+                        release.await();
+                        return Thread.currentThread().getName();
+                    }
+                } ) );
+            }
+
+            final Future<String> rejected = executor.submit( new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return Thread.currentThread().getName();
+                }
+            } );
+
+            assertThat( rejected.get(), equalTo( Thread.currentThread().getName() ) );
+            assertThat( executor.getRejectedCount(), equalTo( 1L ) );
+
+            release.countDown();
+            for ( final Future<String> future : futures )
+            {
+                assertThat( future.get(), equalTo( "test-1" ) );
+            }
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+        assertThat( executor.getRunCount(), equalTo( 3L ) );
+        assertThat( executor.getQueueDepth(), equalTo( 0 ) );
+    }
+}
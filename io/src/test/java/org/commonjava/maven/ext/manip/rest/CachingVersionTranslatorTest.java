@@ -0,0 +1,228 @@
+/**
+ *  Copyright (C) 2015 Red Hat, Inc (jcasey@redhat.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.rest;
+
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.commonjava.maven.ext.manip.rest.exception.RestException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CachingVersionTranslatorTest
+{
+    private static final String URL = "http://127.0.0.1/translate";
+
+    private static final ProjectVersionRef FOO = new ProjectVersionRef( "org.foo", "foo", "1.0" );
+
+    private static final ProjectVersionRef BAR = new ProjectVersionRef( "org.foo", "bar", "2.0" );
+
+    private static final ProjectVersionRef UNKNOWN = new ProjectVersionRef( "org.foo", "unknown", "3.0" );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyMissesAreRequested()
+        throws Exception
+    {
+        final File dir = folder.newFolder();
+        final RecordingTranslator server = new RecordingTranslator();
+
+        Map<ProjectVersionRef, String> result =
+            new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( FOO,
+                                                                                                              UNKNOWN ) );
+        assertThat( result.get( FOO ), is( "1.0-redhat-1" ) );
+        assertThat( result.containsKey( UNKNOWN ), is( false ) );
+
+        // A new instance reads the cache from disk; the missing translation of UNKNOWN is cached as well.
+        result = new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions(
+            Arrays.asList( BAR, UNKNOWN, FOO ) );
+
+        assertThat( new ArrayList<ProjectVersionRef>( result.keySet() ), is( Arrays.asList( BAR, FOO ) ) );
+        assertThat( server.requests, is( Arrays.asList( Arrays.asList( FOO, UNKNOWN ), Arrays.asList( BAR ) ) ) );
+    }
+
+    @Test
+    public void testExpiredEntriesAreRequestedAgain()
+        throws Exception
+    {
+        final File dir = folder.newFolder();
+        final RecordingTranslator server = new RecordingTranslator();
+
+        new CachingVersionTranslator( server, URL, dir, 0, 0 ).translateVersions( Arrays.asList( FOO ) );
+        new CachingVersionTranslator( server, URL, dir, 0, 0 ).translateVersions( Arrays.asList( FOO ) );
+
+        assertThat( server.requests.size(), is( 2 ) );
+    }
+
+    @Test
+    public void testExpiredEntriesAreUsedWhenServerFails()
+        throws Exception
+    {
+        final File dir = folder.newFolder();
+
+        new CachingVersionTranslator( new RecordingTranslator(), URL, dir, 0, 0 ).translateVersions(
+            Arrays.asList( FOO ) );
+
+        final RecordingTranslator failing = new RecordingTranslator();
+        failing.fail = true;
+        final VersionTranslator translator = new CachingVersionTranslator( failing, URL, dir, 0, 0 );
+
+        assertThat( translator.translateVersions( Arrays.asList( FOO ) ).get( FOO ), is( "1.0-redhat-1" ) );
+
+        try
+        {
+            translator.translateVersions( Arrays.asList( FOO, BAR ) );
+            fail( "Failed to throw RestException when a version has never been translated." );
+        }
+        catch ( RestException ex )
+        {
+            // Pass
+        }
+    }
+
+    @Test
+    public void testExpiredEntriesArePruned()
+        throws Exception
+    {
+        final File dir = folder.newFolder();
+        final RecordingTranslator server = new RecordingTranslator();
+
+        new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( FOO ) );
+
+        // Age the translation of FOO well beyond the TTL.
+        final File cacheFile = dir.listFiles()[0];
+        Properties entries = load( cacheFile );
+        entries.setProperty( "org.foo:foo:1.0", "1,1.0-redhat-1" );
+        final OutputStream out = new FileOutputStream( cacheFile );
+        try
+        {
+            entries.store( out, null );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( BAR ) );
+
+        entries = load( cacheFile );
+        assertThat( entries.containsKey( "org.foo:foo:1.0" ), is( false ) );
+        assertThat( entries.containsKey( "org.foo:bar:2.0" ), is( true ) );
+    }
+
+    @Test
+    public void testProjectVersionsAlwaysReachServer()
+        throws Exception
+    {
+        final File dir = folder.newFolder();
+        final RecordingTranslator server = new RecordingTranslator();
+        final Set<ProjectVersionRef> projects = Collections.singleton( FOO );
+
+        new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( FOO, BAR ),
+                                                                                          projects );
+
+        // A later build has been released since; the project translation must reflect that.
+        server.suffix = "-redhat-2";
+        final Map<ProjectVersionRef, String> result =
+            new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( FOO,
+                                                                                                              BAR ),
+                                                                                               projects );
+
+        assertThat( result.get( FOO ), is( "1.0-redhat-2" ) );
+        assertThat( result.get( BAR ), is( "2.0-redhat-1" ) );
+        assertThat( server.requests, is( Arrays.asList( Arrays.asList( FOO, BAR ), Arrays.asList( FOO ) ) ) );
+
+        // Nor is a stale project translation used when the server cannot be reached.
+        server.fail = true;
+        try
+        {
+            new CachingVersionTranslator( server, URL, dir, 60000, 60000 ).translateVersions( Arrays.asList( FOO ),
+                                                                                              projects );
+            fail( "Failed to throw RestException for a project version." );
+        }
+        catch ( RestException ex )
+        {
+            // Pass
+        }
+    }
+
+    private static Properties load( File file )
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream( file );
+        try
+        {
+            properties.load( in );
+        }
+        finally
+        {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static class RecordingTranslator
+        implements VersionTranslator
+    {
+        private final List<List<ProjectVersionRef>> requests = new ArrayList<List<ProjectVersionRef>>();
+
+        private boolean fail;
+
+        private String suffix = "-redhat-1";
+
+        @Override
+        public Map<ProjectVersionRef, String> translateVersions( List<ProjectVersionRef> projects )
+        {
+            if ( fail )
+            {
+                throw new RestException( "Server unavailable" );
+            }
+
+            requests.add( new ArrayList<ProjectVersionRef>( projects ) );
+
+            final Map<ProjectVersionRef, String> result = new HashMap<ProjectVersionRef, String>();
+            for ( ProjectVersionRef project : projects )
+            {
+                if ( !project.equals( UNKNOWN ) )
+                {
+                    result.put( project, project.getVersionString() + suffix );
+                }
+            }
+            return result;
+        }
+    }
+}
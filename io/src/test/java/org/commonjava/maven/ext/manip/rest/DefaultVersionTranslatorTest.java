@@ -4,7 +4,6 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mashape.unirest.http.Unirest;
 import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
 import org.commonjava.maven.ext.manip.rest.exception.RestException;
 import org.commonjava.maven.ext.manip.rest.rule.MockServer;
@@ -20,6 +19,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -74,14 +74,20 @@ public class DefaultVersionTranslatorTest
     @Test
     public void testConnection()
     {
+        RestTransport transport = new RestTransport();
         try
         {
-            Unirest.post( this.versionTranslator.getEndpointUrl() ).asString();
+            transport.translateVersions( this.versionTranslator.getEndpointUrl(),
+                                         Collections.<ProjectVersionRef>emptyList() );
         }
         catch ( Exception e )
         {
             fail( "Failed to connect to server, exception message: " + e.getMessage() );
         }
+        finally
+        {
+            transport.close();
+        }
     }
 
     @Test
@@ -107,6 +113,24 @@ public class DefaultVersionTranslatorTest
         assertThat( actualResult, is( expectedResult ) );
     }
 
+    @Test
+    public void testTranslateVersionsCompressed()
+    {
+        RestTransport transport = new RestTransport( 1000, 1000, 1, true, false );
+        VersionTranslator compressed = new DefaultVersionTranslator( mockServer.getUrl(), transport, 0, 1, 0, 0 );
+
+        assertThat( compressed.translateVersions( aLotOfGavs ), is( versionTranslator.translateVersions( aLotOfGavs ) ) );
+    }
+
+    @Test
+    public void testTranslateVersionsSmile()
+    {
+        RestTransport transport = new RestTransport( 1000, 1000, 1, false, true );
+        VersionTranslator smile = new DefaultVersionTranslator( mockServer.getUrl(), transport, 0, 1, 0, 0 );
+
+        assertThat( smile.translateVersions( aLotOfGavs ), is( versionTranslator.translateVersions( aLotOfGavs ) ) );
+    }
+
     @Test
     public void testTranslateVersionsFailNoResponse()
     {
@@ -134,6 +158,37 @@ public class DefaultVersionTranslatorTest
         }
     }
 
+    @Test
+    public void testTranslateVersionsChunked()
+    {
+        VersionTranslator chunked = new DefaultVersionTranslator( mockServer.getUrl(), 100, 4, 0, 0 );
+
+        assertThat( chunked.translateVersions( aLotOfGavs ), is( versionTranslator.translateVersions( aLotOfGavs ) ) );
+    }
+
+    @Test
+    public void testTranslateVersionsChunkedFailNoResponse()
+    {
+        // Some url that doesn't exist used here
+        VersionTranslator versionTranslator = new DefaultVersionTranslator( "http://127.0.0.2", 1, 2, 1, 5000 );
+
+        List<ProjectVersionRef> gavs = new ArrayList<ProjectVersionRef>()
+        {{
+                add( new ProjectVersionRef( "com.example", "example", "1.0" ) );
+                add( new ProjectVersionRef( "com.example", "example-dep", "2.0" ) );
+            }};
+
+        try
+        {
+            versionTranslator.translateVersions( gavs );
+            fail( "Failed to throw RestException when server failed to respond." );
+        }
+        catch ( RestException ex )
+        {
+            // Pass
+        }
+    }
+
     @Test( timeout = 500 )
     public void testTranslateVersionsPerformance()
     {
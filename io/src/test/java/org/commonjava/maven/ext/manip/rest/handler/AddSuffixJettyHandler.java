@@ -17,6 +17,7 @@
 package org.commonjava.maven.ext.manip.rest.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
@@ -26,11 +27,12 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 /**
  * @author vdedik@redhat.com
@@ -54,8 +56,12 @@ public class AddSuffixJettyHandler
 
     private final String suffix;
 
+    private static final String SMILE = "application/x-jackson-smile";
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    private ObjectMapper smileMapper = new ObjectMapper( new SmileFactory() );
+
     public AddSuffixJettyHandler()
     {
         this( DEFAULT_ENDPOINT, DEFAULT_METHOD, DEFAULT_SUFFIX );
@@ -79,17 +85,20 @@ public class AddSuffixJettyHandler
         {
             LOGGER.info( "Handling with AddSuffixJettyHandler" );
 
+            // Requests may be gzipped and encoded as either JSON or Smile; the response uses the same encoding.
+            boolean smile = request.getContentType() != null && request.getContentType().startsWith( SMILE );
+            ObjectMapper mapper = smile ? smileMapper : objectMapper;
+
             // Get Request Body
-            StringBuffer jb = new StringBuffer();
+            List<Map<String, Object>> requestBody;
             try
             {
-                String line;
-                BufferedReader reader = request.getReader();
-                while ( ( line = reader.readLine() ) != null )
+                InputStream in = request.getInputStream();
+                if ( "gzip".equals( request.getHeader( "Content-Encoding" ) ) )
                 {
-                    jb.append( line );
+                    in = new GZIPInputStream( in );
                 }
-
+                requestBody = mapper.readValue( in, List.class );
             }
             catch ( Exception e )
             {
@@ -97,8 +106,6 @@ public class AddSuffixJettyHandler
                 return;
             }
 
-            List<Map<String, Object>> requestBody = objectMapper.readValue( jb.toString(), List.class );
-
             // Prepare Response
             List<Map<String, Object>> responseBody = new ArrayList<Map<String, Object>>();
             for ( Map<String, Object> gav : requestBody)
@@ -117,10 +124,10 @@ public class AddSuffixJettyHandler
             }
 
             // Set Response
-            response.setContentType( "application/json;charset=utf-8" );
+            response.setContentType( smile ? SMILE : "application/json;charset=utf-8" );
             response.setStatus( HttpServletResponse.SC_OK );
             baseRequest.setHandled( true );
-            response.getWriter().println( objectMapper.writeValueAsString( responseBody ) );
+            response.getOutputStream().write( mapper.writeValueAsBytes( responseBody ) );
         }
         else
         {
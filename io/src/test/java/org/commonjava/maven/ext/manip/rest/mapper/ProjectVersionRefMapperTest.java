@@ -0,0 +1,77 @@
+/**
+ *  Copyright (C) 2015 Red Hat, Inc (jcasey@redhat.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.commonjava.maven.ext.manip.rest.mapper;
+
+import org.commonjava.maven.atlas.ident.ref.ProjectVersionRef;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ProjectVersionRefMapperTest
+{
+    private final ProjectVersionRefMapper mapper = new ProjectVersionRefMapper();
+
+    @Test
+    public void testWriteValue()
+    {
+        List<ProjectVersionRef> projects = new ArrayList<ProjectVersionRef>()
+        {{
+                add( new ProjectVersionRef( "com.example", "example", "1.0" ) );
+                add( new ProjectVersionRef( "org.commonjava", "example", "1.1" ) );
+            }};
+
+        assertThat( mapper.writeValue( projects ),
+                    is( "[{\"groupId\":\"com.example\",\"artifactId\":\"example\",\"version\":\"1.0\"},"
+                            + "{\"groupId\":\"org.commonjava\",\"artifactId\":\"example\",\"version\":\"1.1\"}]" ) );
+    }
+
+    @Test
+    public void testReadValue()
+    {
+        String response = "[{\"groupId\":\"com.example\",\"artifactId\":\"example\",\"version\":\"1.0\","
+            + "\"bestMatchVersion\":\"1.0-redhat-1\",\"whitelisted\":false,\"availableVersions\":[\"1.0-redhat-1\"]},"
+            + "{\"groupId\":\"org.commonjava\",\"artifactId\":\"example\",\"version\":\"1.1\","
+            + "\"bestMatchVersion\":null,\"availableVersions\":[]}]";
+
+        Map<ProjectVersionRef, String> expected = new HashMap<ProjectVersionRef, String>();
+        expected.put( new ProjectVersionRef( "com.example", "example", "1.0" ), "1.0-redhat-1" );
+
+        assertThat( mapper.readValue( response ), is( expected ) );
+    }
+
+    @Test
+    public void testReadNDJSON()
+        throws Exception
+    {
+        String response = "{\"groupId\":\"com.example\",\"artifactId\":\"example\",\"version\":\"1.0\","
+            + "\"bestMatchVersion\":\"1.0-redhat-1\"}\n"
+            + "{\"groupId\":\"org.commonjava\",\"artifactId\":\"example\",\"version\":\"1.1\","
+            + "\"bestMatchVersion\":\"1.1-redhat-1\"}\n";
+
+        Map<ProjectVersionRef, String> expected = new HashMap<ProjectVersionRef, String>();
+        expected.put( new ProjectVersionRef( "com.example", "example", "1.0" ), "1.0-redhat-1" );
+        expected.put( new ProjectVersionRef( "org.commonjava", "example", "1.1" ), "1.1-redhat-1" );
+
+        assertThat( mapper.readValue( new ByteArrayInputStream( response.getBytes( "UTF-8" ) ) ), is( expected ) );
+    }
+}